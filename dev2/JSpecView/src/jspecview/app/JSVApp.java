@@ -606,6 +606,12 @@ public class JSVApp implements PanelListener, JSVAppInterface {
 
 	}
 
+	@Override
+	public JDXSource siCreateSource(Object data, String filePath,
+			int firstSpec, int lastSpec) throws Exception {
+		return vwr.createSource(data, filePath, firstSpec, lastSpec, null);
+	}
+
 	/**
 	 * overloaded in JSVAppletPro
 	 * 
@@ -0,0 +1,537 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.application;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+import javax.print.attribute.standard.MediaSizeName;
+
+import javajs.util.Lst;
+import javajs.util.OC;
+
+import jspecview.api.JSVPanel;
+import jspecview.api.ScriptInterface;
+import jspecview.common.ExportType;
+import jspecview.common.JSVFileManager;
+import jspecview.common.JSViewer;
+import jspecview.common.PanelNode;
+import jspecview.common.PrintLayout;
+import jspecview.common.ScriptToken;
+import jspecview.common.Spectrum;
+import jspecview.export.Exporter;
+import jspecview.java.AwtPanel;
+import jspecview.source.JDXReader;
+import jspecview.source.JDXSource;
+
+import org.jmol.util.Logger;
+
+/**
+ * Converts files or whole directory trees of JCAMP-DX, CML, AnIML, and zip
+ * files to one or more export formats without a display, for example:
+ *
+ * <pre>
+ * java -jar JSpecView.jar -convert -type XY,SVG,PDF -out converted data
+ * </pre>
+ *
+ * Files are read and exported in parallel, each worker thread using its own
+ * viewer. Each file's time and result is reported as it completes, followed
+ * by a summary. Peak tables, which have no CML or AnIML form, are skipped
+ * for those types. The exit status is 1 if any file could not be converted.
+ *
+ */
+public class BatchConverter implements ScriptInterface {
+
+  private final static String USAGE = "usage: JSpecView -convert [-type XY,DIF,DIFDUP,FIX,PAC,SQZ,CML,AML,SVG,SVGI,PDF,PNG,JPG]"
+      + " [-out directory] [-threads n] [-verbose] file-or-directory ...";
+
+  private final static String[] INPUT_EXTENSIONS = { ".jdx", ".dx", ".jcm",
+      ".cml", ".xml", ".animl", ".zip" };
+
+  private final static int IMAGE_WIDTH = 800;
+  private final static int IMAGE_HEIGHT = 500;
+
+  private JSViewer vwr;
+  private ExportType[] types;
+
+  /**
+   * the spectrum as last painted for PNG or JPG export
+   */
+  private BufferedImage image;
+
+  private BatchConverter(ExportType[] types) {
+    this.types = types;
+    vwr = new JSViewer(this, false, false);
+  }
+
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    Lst<ExportType> types = new Lst<ExportType>();
+    File outDir = null;
+    int nThreads = Runtime.getRuntime().availableProcessors();
+    boolean isVerbose = false;
+    Lst<String> inputs = new Lst<String>();
+    String arg = null;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        arg = args[i];
+        if (arg.equalsIgnoreCase("-type")) {
+          String[] list = args[++i].split(",");
+          for (int j = 0; j < list.length; j++) {
+            ExportType type = ExportType.getType(list[j].trim());
+            switch (type) {
+            case UNK:
+            case SOURCE:
+              throw new IllegalArgumentException("cannot convert to " + list[j]);
+            default:
+              types.addLast(type);
+            }
+          }
+        } else if (arg.equalsIgnoreCase("-out")) {
+          outDir = new File(args[++i]);
+        } else if (arg.equalsIgnoreCase("-threads")) {
+          nThreads = Integer.parseInt(args[++i]);
+        } else if (arg.equalsIgnoreCase("-verbose")) {
+          isVerbose = true;
+        } else if (arg.startsWith("-")) {
+          throw new IllegalArgumentException("unknown option " + arg);
+        } else {
+          inputs.addLast(arg);
+        }
+      }
+    } catch (RuntimeException e) {
+      System.err.println(e instanceof IllegalArgumentException ? e.getMessage()
+          : "missing or invalid value for " + arg);
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    if (inputs.size() == 0) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    if (types.size() == 0)
+      types.addLast(ExportType.XY);
+    if (!isVerbose)
+      Logger.setLogLevel(Logger.LEVEL_WARN);
+    System.exit(convert(inputs, types.toArray(new ExportType[types.size()]),
+        outDir, Math.max(1, nThreads)) == 0 ? 0 : 1);
+  }
+
+  /**
+   * Converts files, reporting each on System.out as it is done. Meanwhile,
+   * anything else written to System.out, such as messages from reading files
+   * on the worker threads, goes to System.err, so that the report is not
+   * mixed with it.
+   *
+   * @param inputs
+   *        files or directories, which are searched recursively
+   * @param types
+   * @param outDir
+   *        or null to write each output next to its input
+   * @param nThreads
+   * @return the number of files that could not be converted
+   */
+  public static int convert(Lst<String> inputs, ExportType[] types,
+                            File outDir, int nThreads) {
+    PrintStream report = System.out;
+    System.setOut(System.err);
+    try {
+      return convert(inputs, types, outDir, nThreads, report);
+    } finally {
+      System.setOut(report);
+    }
+  }
+
+  private static int convert(Lst<String> inputs, final ExportType[] types,
+                             final File outDir, int nThreads,
+                             PrintStream report) {
+    long t0 = System.currentTimeMillis();
+    Lst<File> files = new Lst<File>();
+    Lst<File> outDirs = new Lst<File>();
+    for (int i = 0; i < inputs.size(); i++) {
+      File f = new File(inputs.get(i));
+      if (f.isDirectory())
+        addFiles(f, outDir, files, outDirs);
+      else {
+        files.addLast(f);
+        outDirs.addLast(outDir);
+      }
+    }
+    // if the files themselves are read in parallel, each is read on one thread
+    final int readThreads = (nThreads > 1 ? 1 : 0);
+    final ThreadLocal<BatchConverter> converters = new ThreadLocal<BatchConverter>() {
+      @Override
+      protected BatchConverter initialValue() {
+        BatchConverter converter = new BatchConverter(types);
+        converter.vwr.loadThreads = readThreads;
+        return converter;
+      }
+    };
+    JSVFileManager.setDocumentBase(converters.get().vwr, null);
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(nThreads,
+        Math.max(1, files.size())));
+    Lst<Future<Result>> results = new Lst<Future<Result>>();
+    for (int i = 0; i < files.size(); i++) {
+      final File file = files.get(i);
+      final File dir = outDirs.get(i);
+      results.addLast(pool.submit(new Callable<Result>() {
+        @Override
+        public Result call() {
+          return converters.get().convertFile(file, dir);
+        }
+      }));
+    }
+    pool.shutdown();
+    int nFailed = 0;
+    int nSpectra = 0;
+    int nOutputs = 0;
+    int nSkipped = 0;
+    for (int i = 0; i < results.size(); i++) {
+      Result result;
+      try {
+        result = results.get(i).get();
+      } catch (Exception e) {
+        result = new Result();
+        result.report = "ERROR " + files.get(i) + ": " + e;
+      }
+      report.println(result.report);
+      if (result.isOK) {
+        nSpectra += result.nSpectra;
+        nOutputs += result.nOutputs;
+        nSkipped += result.nSkipped;
+      } else {
+        nFailed++;
+      }
+    }
+    report.println("Converted " + (files.size() - nFailed) + " of "
+        + files.size() + " files (" + nSpectra + " spectra) to " + nOutputs
+        + " files in " + (System.currentTimeMillis() - t0) + " ms"
+        + (nSkipped == 0 ? "" : "; " + nSkipped + " skipped")
+        + (nFailed == 0 ? "" : "; " + nFailed + " failed"));
+    return nFailed;
+  }
+
+  private static void addFiles(File dir, File outDir, Lst<File> files,
+                               Lst<File> outDirs) {
+    String[] names = dir.list();
+    if (names == null)
+      return;
+    Arrays.sort(names);
+    for (int i = 0; i < names.length; i++) {
+      File f = new File(dir, names[i]);
+      if (f.isDirectory()) {
+        addFiles(f, outDir == null ? null : new File(outDir, names[i]), files,
+            outDirs);
+      } else if (isInputFile(names[i])) {
+        files.addLast(f);
+        outDirs.addLast(outDir);
+      }
+    }
+  }
+
+  private static boolean isInputFile(String name) {
+    name = name.toLowerCase();
+    for (int i = 0; i < INPUT_EXTENSIONS.length; i++)
+      if (name.endsWith(INPUT_EXTENSIONS[i]))
+        return true;
+    return false;
+  }
+
+  private static class Result {
+    boolean isOK;
+    String report;
+    int nSpectra;
+    int nOutputs;
+    int nSkipped;
+  }
+
+  /**
+   * @param file
+   * @param dir
+   *        the directory for the output files, or null for the directory of
+   *        the file
+   * @return the result, with a line for the report
+   */
+  Result convertFile(File file, File dir) {
+    long t0 = System.currentTimeMillis();
+    String path = file.getPath();
+    Result result = new Result();
+    try {
+      JDXSource source = JDXReader.createJDXSource(null,
+          file.getAbsolutePath(), false, false, -1, -1, Float.NaN, null,
+          vwr.loadThreads, false, 0);
+      Lst<Spectrum> spectra = source.getSpectra();
+      if (dir == null)
+        dir = file.getAbsoluteFile().getParentFile();
+      if (!dir.isDirectory() && !dir.mkdirs())
+        throw new Exception("cannot create directory " + dir);
+      String name = file.getName();
+      int pt = name.lastIndexOf(".");
+      if (pt > 0)
+        name = name.substring(0, pt);
+      int n = spectra.size();
+      for (int i = 0; i < n; i++) {
+        Spectrum spec = spectra.get(i);
+        String specName = (n == 1 ? name : name + "_" + (i + 1));
+        AwtPanel panel = null;
+        try {
+          for (int j = 0; j < types.length; j++) {
+            ExportType type = types[j];
+            if (!spec.isContinuous()
+                && (type == ExportType.CML || type == ExportType.AML)) {
+              // there are no XML templates for peak tables
+              result.nSkipped++;
+              continue;
+            }
+            File outFile = new File(dir, specName + getSuffix(type));
+            String msg;
+            switch (type) {
+            case PDF:
+            case PNG:
+            case JPG:
+              if (panel == null)
+                panel = getPanel(spec);
+              msg = exportImage(panel, type, outFile);
+              break;
+            default:
+              msg = new Exporter().exportTheSpectrum(vwr, type,
+                  vwr.getOutputChannel(outFile.getPath(), false), spec, 0,
+                  spec.getXValues().length - 1, null, false);
+              break;
+            }
+            if (msg == null || !msg.startsWith("OK"))
+              throw new Exception("exporting " + outFile + ": " + msg);
+            result.nOutputs++;
+          }
+        } finally {
+          if (panel != null)
+            panel.dispose();
+        }
+      }
+      result.nSpectra = n;
+      result.isOK = true;
+      result.report = "OK " + (System.currentTimeMillis() - t0) + " ms " + path
+          + ": " + n + (n == 1 ? " spectrum, " : " spectra, ")
+          + result.nOutputs + " files"
+          + (result.nSkipped == 0 ? "" : ", " + result.nSkipped + " skipped");
+    } catch (Throwable e) {
+      String msg = e.getMessage();
+      result.report = "ERROR " + path + ": "
+          + (msg == null ? e.toString() : msg);
+    }
+    return result;
+  }
+
+  /**
+   * suffixes are those that the application suggests for its export dialogs
+   *
+   * @param type
+   * @return the file name suffix
+   */
+  private static String getSuffix(ExportType type) {
+    switch (type) {
+    case XY:
+    case FIX:
+    case PAC:
+    case SQZ:
+    case DIF:
+    case DIFDUP:
+      return "_" + type + ".jdx";
+    case AML:
+      return ".xml";
+    default:
+      return "." + type.name().toLowerCase();
+    }
+  }
+
+  /**
+   * Creates a panel for the spectrum, with default display settings, and
+   * paints it once so that it has a graphics context to measure text with.
+   * 
+   * @param spec
+   * @return the panel
+   */
+  private AwtPanel getPanel(Spectrum spec) {
+    AwtPanel panel = AwtPanel.getPanelOne(vwr, spec);
+    vwr.parameters.setFor(panel, null, true);
+    panel.setSize(IMAGE_WIDTH, IMAGE_HEIGHT);
+    image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT,
+        BufferedImage.TYPE_INT_RGB);
+    panel.paint(image.getGraphics());
+    return panel;
+  }
+
+  private String exportImage(AwtPanel panel, ExportType type, File file)
+      throws Exception {
+    if (type != ExportType.PDF)
+      return (ImageIO.write(image, type.name().toLowerCase(), file) ? "OK"
+          : "no writer for " + type);
+    PrintLayout pl = new PrintLayout(panel.getPanelData());
+    pl.paper = MediaSizeName.NA_LETTER;
+    OC out = vwr.getOutputChannel(file.getPath(), true);
+    panel.printPanel(pl, out, panel.getPanelData().getPrintJobTitle(true));
+    // printPanel reports but does not throw errors
+    return (file.length() > 0 ? "OK" : "no PDF created");
+  }
+
+  // ScriptInterface -- there is no display, so there is nothing to do
+
+  @Override
+  public void repaint() {
+  }
+
+  @Override
+  public void setCursor(int id) {
+  }
+
+  @Override
+  public boolean isSigned() {
+    return true;
+  }
+
+  @Override
+  public void runScript(String script) {
+  }
+
+  @Override
+  public boolean runScriptNow(String script) {
+    return false;
+  }
+
+  @Override
+  public void syncToJmol(String value) {
+  }
+
+  @Override
+  public void writeStatus(String msg) {
+  }
+
+  @Override
+  public void siCheckCallbacks(String title) {
+  }
+
+  @Override
+  public void siSourceClosed(JDXSource source) {
+  }
+
+  @Override
+  public void siExecHidden(boolean b) {
+  }
+
+  @Override
+  public String siLoaded(String value) {
+    return null;
+  }
+
+  @Override
+  public void siExecScriptComplete(String msg, boolean isOK) {
+  }
+
+  @Override
+  public void siExecSetCallback(ScriptToken st, String value) {
+  }
+
+  @Override
+  public void siExecTest(String value) {
+  }
+
+  @Override
+  public JSVPanel siGetNewJSVPanel(Spectrum spec) {
+    return AwtPanel.getPanelOne(vwr, spec);
+  }
+
+  @Override
+  public JSVPanel siGetNewJSVPanel2(Lst<Spectrum> specs) {
+    return null;
+  }
+
+  @Override
+  public void siOpenDataOrFile(Object data, String name, Lst<Spectrum> specs,
+                               String url, int firstSpec, int lastSpec,
+                               boolean doCheck, String script, String id) {
+  }
+
+  @Override
+  public JDXSource siCreateSource(Object data, String filePath,
+                                  int firstSpec, int lastSpec)
+      throws Exception {
+    return vwr.createSource(data, filePath, firstSpec, lastSpec, null);
+  }
+
+  @Override
+  public void siProcessCommand(String script) {
+  }
+
+  @Override
+  public void siSendPanelChange() {
+  }
+
+  @Override
+  public void siSetCurrentSource(JDXSource source) {
+  }
+
+  @Override
+  public void siSetLoaded(String fileName, String filePath) {
+  }
+
+  @Override
+  public void siSetMenuEnables(PanelNode node, boolean isSplit) {
+  }
+
+  @Override
+  public void siNodeSet(PanelNode node) {
+  }
+
+  @Override
+  public void siSetPropertiesFromPreferences(JSVPanel jsvp, boolean b) {
+  }
+
+  @Override
+  public void siSetSelectedPanel(JSVPanel jsvp) {
+  }
+
+  @Override
+  public void siSyncLoad(String fileName) {
+  }
+
+  @Override
+  public void siUpdateBoolean(ScriptToken st, boolean TF) {
+  }
+
+  @Override
+  public void siUpdateRecentMenus(String filePath) {
+  }
+
+  @Override
+  public void siValidateAndRepaint(boolean isAll) {
+  }
+
+  @Override
+  public void siNewWindow(boolean isSelected, boolean fromFrame) {
+  }
+
+}
@@ -71,6 +71,13 @@ public class JSpecView implements JSVInterface {
   //  ------------------------ Program Properties -------------------------
 
   public static void main(String args[]) {
+    if (args.length > 0 && args[0].equalsIgnoreCase("-convert")) {
+      // headless batch conversion; see BatchConverter
+      String[] a = new String[args.length - 1];
+      System.arraycopy(args, 1, a, 0, a.length);
+      BatchConverter.main(a);
+      return;
+    }
     try {
       UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
     } catch (Exception e) {
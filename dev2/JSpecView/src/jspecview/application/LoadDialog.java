@@ -0,0 +1,212 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.application;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+import javax.swing.border.EmptyBorder;
+
+import javajs.util.DF;
+
+import jspecview.common.JSVFileManager;
+import jspecview.common.JSViewer;
+import jspecview.exception.JSVException;
+import jspecview.source.JDXLoadMonitor;
+import jspecview.source.JDXSource;
+
+/**
+ * Reads a file on a worker thread. The event thread waits for it, as it
+ * did when it read the file itself, so the caller (and any script that
+ * follows the LOAD command) gets the file just as before. If the file takes
+ * more than a moment to read, this dialog appears, showing progress, with a
+ * button to cancel. The dialog is modal, so while it is up the event thread
+ * keeps the main frame painted and its status line up to date, and the main
+ * frame takes no input.
+ */
+public class LoadDialog extends JDialog {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * milliseconds to wait before showing the dialog
+   */
+  private final static int SHOW_DELAY = 500;
+
+  /**
+   * milliseconds between progress updates
+   */
+  private final static int UPDATE_INTERVAL = 250;
+
+  private MainFrame mainFrame;
+  private JLabel label;
+  private JButton cancelButton;
+  private String fileName;
+  private long fileLength;
+  private JDXLoadMonitor monitor = new JDXLoadMonitor();
+  private JDXSource source;
+  private Exception exception;
+
+  private LoadDialog(MainFrame mainFrame, String filePath) {
+    super(mainFrame, "Loading", true);
+    this.mainFrame = mainFrame;
+    fileName = (filePath == null ? "data" : JSVFileManager
+        .getTagName(filePath));
+    if (filePath != null && !JSVFileManager.isURL(filePath)) {
+      File f = new File(filePath);
+      if (f.isFile())
+        fileLength = f.length();
+    }
+    // sized for the longest message expected
+    label = new JLabel(getProgress() + ", 00000 spectra");
+    cancelButton = new JButton("Cancel");
+    cancelButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        cancel();
+      }
+    });
+    JPanel p = new JPanel(new BorderLayout(10, 10));
+    p.setBorder(new EmptyBorder(10, 10, 10, 10));
+    p.add(label, BorderLayout.CENTER);
+    JPanel buttonPanel = new JPanel();
+    buttonPanel.add(cancelButton);
+    p.add(buttonPanel, BorderLayout.SOUTH);
+    getContentPane().add(p);
+    setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+    addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        cancel();
+      }
+    });
+    pack();
+    label.setText(getProgress());
+    setResizable(false);
+    setLocationRelativeTo(mainFrame);
+  }
+
+  /**
+   * Reads a file or inline data; on the event thread, this is done on a worker
+   * thread, showing progress.
+   *
+   * @param mainFrame
+   * @param vwr
+   * @param data
+   * @param filePath
+   * @param firstSpec
+   * @param lastSpec
+   * @return the new source, or null if the user cancelled
+   * @throws Exception
+   */
+  static JDXSource createSource(final MainFrame mainFrame, final JSViewer vwr,
+                                final Object data, final String filePath,
+                                final int firstSpec, final int lastSpec)
+      throws Exception {
+    if (!SwingUtilities.isEventDispatchThread())
+      return vwr.createSource(data, filePath, firstSpec, lastSpec, null);
+    final LoadDialog d = new LoadDialog(mainFrame, filePath);
+    Thread worker = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          d.source = vwr.createSource(data, filePath, firstSpec, lastSpec,
+              d.monitor);
+        } catch (Exception e) {
+          d.exception = e;
+        } catch (Throwable e) {
+          d.exception = new JSVException(e.toString());
+        } finally {
+          SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+              d.dispose();
+            }
+          });
+        }
+      }
+    }, "JSpecView-load");
+    worker.setDaemon(true);
+    worker.start();
+    try {
+      // most files are read in less time than this, with nothing shown
+      worker.join(SHOW_DELAY);
+      if (worker.isAlive()) {
+        Timer timer = new Timer(UPDATE_INTERVAL, new ActionListener() {
+          @Override
+          public void actionPerformed(ActionEvent e) {
+            d.showProgress();
+          }
+        });
+        timer.start();
+        // returns when the worker disposes of the dialog
+        d.setVisible(true);
+        timer.stop();
+        mainFrame.writeStatus("");
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      d.monitor.cancel();
+    }
+    if (d.monitor.isCancelled())
+      return null;
+    if (d.exception != null)
+      throw d.exception;
+    return d.source;
+  }
+
+  private void cancel() {
+    monitor.cancel();
+    cancelButton.setEnabled(false);
+    label.setText("Cancelling...");
+  }
+
+  private void showProgress() {
+    if (monitor.isCancelled())
+      return;
+    String s = getProgress();
+    label.setText(s);
+    mainFrame.writeStatus(s);
+  }
+
+  private String getProgress() {
+    String s = "Reading " + fileName + ": "
+        + DF.formatDecimalDbl(monitor.getCharsRead() / 1048576.0, 1);
+    if (fileLength > 0)
+      s += " of " + DF.formatDecimalDbl(fileLength / 1048576.0, 1);
+    s += " MB";
+    int n = monitor.getSpectraRead();
+    if (n > 0)
+      s += ", " + n + (n == 1 ? " spectrum" : " spectra");
+    return s;
+  }
+
+}
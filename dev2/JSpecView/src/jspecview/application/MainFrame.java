@@ -316,6 +316,7 @@ public class MainFrame extends JFrame implements JmolSyncInterface,
 		properties.setProperty("integralFactor", "50");
 		properties.setProperty("integralOffset", "30");
 		properties.setProperty("integralPlotColor", "#ff0000");
+		properties.setProperty("snapshotDirectory", "");
 
 		jmolOrAdvancedApplet.setProperties(properties);
 
@@ -429,6 +430,8 @@ public class MainFrame extends JFrame implements JmolSyncInterface,
 				.getProperty("useDirectoryLastExportedFile"));
 		fh.dirLastOpened = properties.getProperty("directoryLastOpenedFile");
 		fh.dirLastExported = properties.getProperty("directoryLastExportedFile");
+		JSVFileManager.setSnapshotDirectory(properties
+				.getProperty("snapshotDirectory"));
 
 		sidePanelOn = Boolean.parseBoolean(properties.getProperty("showSidePanel"));
 		toolbarOn = Boolean.parseBoolean(properties.getProperty("showToolBar"));
@@ -869,6 +872,13 @@ public class MainFrame extends JFrame implements JmolSyncInterface,
 		siValidateAndRepaint(false);
 	}
 
+	@Override
+	public JDXSource siCreateSource(Object data, String filePath,
+			int firstSpec, int lastSpec) throws Exception {
+		return LoadDialog.createSource(this, vwr, data, filePath, firstSpec,
+				lastSpec);
+	}
+
 	@Override
 	public void siSetCurrentSource(JDXSource source) {
 		vwr.currentSource = source;
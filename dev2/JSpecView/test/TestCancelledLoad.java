@@ -0,0 +1,111 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import jspecview.api.ScriptInterface;
+import jspecview.common.JSVFileManager;
+import jspecview.common.JSViewer;
+import jspecview.source.JDXLoadMonitor;
+import jspecview.source.JDXSource;
+
+/**
+ * Cancels the reading of a BLOCKS file partway, with snapshots kept, and
+ * checks that reopening the file still gets all of its spectra.
+ */
+public class TestCancelledLoad {
+
+  private final static int N_BLOCKS = 4;
+
+  public static void main(String[] args) throws Exception {
+    File dir = File.createTempFile("jsvtest", "");
+    dir.delete();
+    dir.mkdir();
+    File file = new File(dir, "blocks.jdx");
+    File snapshots = new File(dir, "snapshots");
+    try {
+      writeBlocks(file);
+      JSViewer vwr = new JSViewer((ScriptInterface) Proxy.newProxyInstance(
+          ScriptInterface.class.getClassLoader(),
+          new Class<?>[] { ScriptInterface.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              return (method.getReturnType() == boolean.class ? Boolean.FALSE
+                  : null);
+            }
+          }), false, false);
+      vwr.loadThreads = 1;
+      JSVFileManager.setDocumentBase(vwr, null);
+      JSVFileManager.setSnapshotDirectory(snapshots.getPath());
+      JDXLoadMonitor monitor = new JDXLoadMonitor() {
+        @Override
+        public boolean isCancelled() {
+          return (getSpectraRead() >= 2 || super.isCancelled());
+        }
+      };
+      JDXSource source = vwr.createSource(null, file.getPath(), -1, -1,
+          monitor);
+      if (source != null)
+        throw new Exception("cancelled read returned "
+            + source.getSpectra().size() + " spectra");
+      System.out.println("cancelled: OK");
+      // the first time read again, the second from its snapshot
+      for (int i = 0; i < 2; i++) {
+        source = vwr.createSource(null, file.getPath(), -1, -1, null);
+        int n = source.getSpectra().size();
+        if (n != N_BLOCKS)
+          throw new Exception("reopened with " + n + " spectra");
+        System.out.println("reopened: OK");
+      }
+    } finally {
+      JSVFileManager.setSnapshotDirectory(null);
+      File[] files = snapshots.listFiles();
+      if (files != null)
+        for (int i = files.length; --i >= 0;)
+          files[i].delete();
+      snapshots.delete();
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  private static void writeBlocks(File file) throws IOException {
+    FileWriter w = new FileWriter(file);
+    w.write("##TITLE=blocks\n##JCAMP-DX=5.01\n##DATA TYPE=LINK\n##BLOCKS="
+        + N_BLOCKS + "\n");
+    for (int i = 1; i <= N_BLOCKS; i++)
+      w.write("##TITLE=" + i + "\n##JCAMP-DX=5.01\n"
+          + "##DATA TYPE=INFRARED SPECTRUM\n##BLOCK_ID=" + i + "\n"
+          + "##XUNITS=1/CM\n##YUNITS=ABSORBANCE\n##XFACTOR=1\n"
+          + "##YFACTOR=1\n##FIRSTX=1000\n##LASTX=1015\n##NPOINTS=16\n"
+          + "##XYDATA=(X++(Y..Y))\n"
+          + "1000 10 11 12 13 14 15 16 10\n1008 11 12 13 14 15 16 10 11\n"
+          + "##END=\n");
+    w.write("##END=\n");
+    w.close();
+  }
+
+}
@@ -0,0 +1,86 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jspecview.common.Annotation.AType;
+import jspecview.common.IntegralData;
+import jspecview.common.JSViewer;
+import jspecview.common.PeakData;
+import jspecview.common.ScaleData;
+import jspecview.common.Spectrum;
+
+/**
+ * Peak picking, with PeakData.setPeakList, and integration, with IntegralData
+ * both from the current integration parameters and automatically.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+  @Param({ "synthetic-1000000.jdx", "diethyl_phthalate_HNMR.JDX", "aspirinNMR.jdx" })
+  public String file;
+
+  private JSViewer vwr;
+  private Spectrum spec;
+  private ScaleData view;
+
+  @Setup
+  public void setup() throws Exception {
+    vwr = BenchmarkSupport.newViewer();
+    spec = BenchmarkSupport.getSource(file).getSpectra().get(0);
+    view = new ScaleData(spec, 0, spec.getXYCoords().length - 1, true, false);
+  }
+
+  @Benchmark
+  public PeakData peakList() {
+    PeakData peaks = new PeakData(AType.PeakList, spec);
+    peaks.setPeakList(vwr.parameters, Integer.MIN_VALUE, view);
+    return peaks;
+  }
+
+  @Benchmark
+  public IntegralData integrate() {
+    return new IntegralData(spec, vwr.parameters);
+  }
+
+  @Benchmark
+  public IntegralData autoIntegrate() {
+    return new IntegralData(spec, null);
+  }
+
+}
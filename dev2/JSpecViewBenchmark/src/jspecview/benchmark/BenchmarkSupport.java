@@ -0,0 +1,212 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javajs.util.OC;
+
+import jspecview.api.ScriptInterface;
+import jspecview.common.ExportType;
+import jspecview.common.JSVFileManager;
+import jspecview.common.JSViewer;
+import jspecview.common.Spectrum;
+import jspecview.export.Exporter;
+import jspecview.source.JDXReader;
+import jspecview.source.JDXSource;
+
+import org.jmol.util.Logger;
+
+/**
+ * What the benchmarks share: a viewer with no display, and reading and
+ * exporting spectra in memory, so that file access is not timed.
+ */
+final class BenchmarkSupport {
+
+  /**
+   * the directory of sample files; by default JSpecView/data, relative to this
+   * project
+   */
+  final static String DATA_DIR = System.getProperty("jsv.data",
+      "../JSpecView/data");
+
+  static {
+    System.setProperty("java.awt.headless", "true");
+    Logger.setLogLevel(Logger.LEVEL_WARN);
+  }
+
+  private BenchmarkSupport() {
+  }
+
+  /**
+   * @return a viewer whose script interface does nothing
+   */
+  static JSViewer newViewer() {
+    ScriptInterface si = (ScriptInterface) Proxy.newProxyInstance(
+        ScriptInterface.class.getClassLoader(),
+        new Class<?>[] { ScriptInterface.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            Class<?> type = method.getReturnType();
+            return (type == boolean.class ? Boolean.TRUE
+                : type == int.class ? Integer.valueOf(0) : null);
+          }
+        });
+    JSViewer vwr = new JSViewer(si, false, false);
+    JSVFileManager.setDocumentBase(vwr, null);
+    return vwr;
+  }
+
+  /**
+   * @param data
+   *        JCAMP-DX, CML, or AnIML
+   * @param name
+   *        the file name to give the source
+   * @return the source
+   * @throws Exception
+   */
+  static JDXSource read(String data, String name) throws Exception {
+    return JDXReader.createJDXSource(new BufferedReader(new StringReader(
+        data)), name, false, false, -1, -1, Float.NaN);
+  }
+
+  /**
+   * @param name
+   *        a file in DATA_DIR
+   * @return its contents
+   * @throws IOException
+   */
+  static String readFile(String name) throws IOException {
+    File file = new File(DATA_DIR, name);
+    InputStream is = new FileInputStream(file);
+    try {
+      byte[] bytes = new byte[(int) file.length()];
+      for (int pt = 0, n; pt < bytes.length; pt += n)
+        if ((n = is.read(bytes, pt, bytes.length - pt)) < 0)
+          throw new IOException("unexpected end of " + file);
+      return new String(bytes, "ISO-8859-1");
+    } finally {
+      is.close();
+    }
+  }
+
+  /**
+   * Returns the contents of a file in DATA_DIR, or synthetic data with n
+   * points (or n x n points for 2D) if the name is one of:
+   * 
+   * <pre>
+   * synthetic-n.jdx      a 1H NMR spectrum
+   * synthetic-n.cml      the same as CML
+   * synthetic-n.xml      the same as AnIML
+   * synthetic-2d-n.dx    a 2D NMR NTUPLES file
+   * </pre>
+   * 
+   * @param file
+   * @return the data
+   * @throws Exception
+   */
+  static String getData(String file) throws Exception {
+    if (!file.startsWith("synthetic-"))
+      return readFile(file);
+    String name = file.substring(0, file.lastIndexOf('.'));
+    int n = Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+    if (name.startsWith("synthetic-2d-"))
+      return SpectrumGenerator.get2D(n, n, 1);
+    String data = SpectrumGenerator.getSpectrum(n, 1);
+    if (file.endsWith(".jdx"))
+      return data;
+    Spectrum spec = read(data, file).getSpectra().get(0);
+    return export(newViewer(), spec, file.endsWith(".cml") ? ExportType.CML
+        : ExportType.AML);
+  }
+
+  /**
+   * @param file
+   *        as for getData
+   * @return the file's source
+   * @throws Exception
+   */
+  static JDXSource getSource(String file) throws Exception {
+    return read(getData(file), file);
+  }
+
+  /**
+   * @param vwr
+   * @param spec
+   * @param type
+   * @return the exported spectrum as text
+   * @throws Exception
+   */
+  static String export(JSViewer vwr, Spectrum spec, ExportType type)
+      throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    export(vwr, spec, type, os);
+    return os.toString("UTF-8");
+  }
+
+  /**
+   * @param vwr
+   * @param spec
+   * @param type
+   * @param os
+   * @return the exporter's "OK ..." message
+   * @throws Exception
+   */
+  static String export(JSViewer vwr, Spectrum spec, ExportType type,
+                       OutputStream os) throws Exception {
+    OC out = new OC().setParams(null, null, true, os);
+    String msg = new Exporter().exportTheSpectrum(vwr, type, out, spec, 0,
+        spec.getXYCoords().length - 1, null, false);
+    if (msg == null || !msg.startsWith("OK"))
+      throw new Exception("exporting " + type + ": " + msg);
+    return msg;
+  }
+
+  /**
+   * An output stream that only counts, for timing exports without the cost of
+   * keeping their output.
+   */
+  static class NullOutputStream extends OutputStream {
+
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+  }
+
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.benchmark;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import jspecview.common.JSViewer;
+import jspecview.common.PanelData;
+import jspecview.java.AwtPanel;
+
+/**
+ * Drawing a spectrum, through PanelData.drawGraph and GraphSet.drawPlot, into
+ * an off-screen image, as the application does for every repaint. For a 2D
+ * spectrum this includes its contour image, from the image already made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DrawBenchmark {
+
+  @Param({ "synthetic-1000000.jdx", "synthetic-2d-1024.dx", "aquation20.jdx",
+      "pregnenolone-cosy.dx" })
+  public String file;
+
+  @Param({ "800" })
+  public int width;
+
+  @Param({ "500" })
+  public int height;
+
+  private AwtPanel panel;
+  private PanelData pd;
+  private Graphics g;
+
+  @Setup
+  public void setup() throws Exception {
+    JSViewer vwr = BenchmarkSupport.newViewer();
+    panel = AwtPanel.getPanelOne(vwr, BenchmarkSupport.getSource(file)
+        .getSpectra().get(0));
+    vwr.parameters.setFor(panel, null, true);
+    panel.setSize(width, height);
+    pd = panel.getPanelData();
+    g = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+        .getGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    g.dispose();
+    panel.dispose();
+  }
+
+  @Benchmark
+  public Graphics draw() {
+    pd.setTaintedAll();
+    panel.paint(g);
+    return g;
+  }
+
+}
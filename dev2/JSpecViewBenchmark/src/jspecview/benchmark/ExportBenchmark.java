@@ -0,0 +1,76 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jspecview.common.ExportType;
+import jspecview.common.JSViewer;
+import jspecview.common.Spectrum;
+
+/**
+ * Each exporter: JDXExporter for each compression type, and CMLExporter,
+ * AMLExporter, and SVGExporter. The output is counted but not kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+  @Param({ "XY", "FIX", "PAC", "SQZ", "DIF", "DIFDUP", "CML", "AML", "SVG" })
+  public String type;
+
+  @Param({ "synthetic-1000000.jdx", "aspirinNMR.jdx" })
+  public String file;
+
+  private JSViewer vwr;
+  private Spectrum spec;
+  private ExportType exportType;
+
+  @Setup
+  public void setup() throws Exception {
+    vwr = BenchmarkSupport.newViewer();
+    spec = BenchmarkSupport.getSource(file).getSpectra().get(0);
+    exportType = ExportType.getType(type);
+  }
+
+  @Benchmark
+  public long export() throws Exception {
+    BenchmarkSupport.NullOutputStream os = new BenchmarkSupport.NullOutputStream();
+    BenchmarkSupport.export(vwr, spec, exportType, os);
+    return os.count;
+  }
+
+}
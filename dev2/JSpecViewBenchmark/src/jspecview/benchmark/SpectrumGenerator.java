@@ -0,0 +1,303 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javajs.util.SB;
+
+import jspecview.common.ExportType;
+import jspecview.common.JSViewer;
+import jspecview.common.Spectrum;
+
+/**
+ * Synthetic JCAMP-DX data for the benchmarks: one-dimensional 1H NMR spectra
+ * of any number of points, and 2D NMR NTUPLES data of any size. Both are sums
+ * of Lorentzian peaks with a little noise, so they compress much as real
+ * spectra do. The same seed always gives the same data.
+ *
+ * The data are written in FIX form, (X++(Y..Y)) with ten values per line;
+ * the other forms and CML and AnIML are made from these using the exporters.
+ *
+ * Run as an application to write a set of files for trying out by hand:
+ *
+ * <pre>
+ * java jspecview.benchmark.SpectrumGenerator [directory [nPoints [nRows]]]
+ * </pre>
+ */
+public class SpectrumGenerator {
+
+  /**
+   * Hz per point for 1D data, so 25 ppm for a million points
+   */
+  private final static double HZ_PER_POINT = 0.01;
+
+  /**
+   * Hz per point in both dimensions for 2D data, so 10 ppm for 1000 points
+   */
+  private final static double HZ_PER_POINT_2D = 4;
+
+  private final static double OBSERVE_FREQUENCY = 400.0;
+
+  /**
+   * @param nPoints
+   * @param seed
+   * @return a 1H NMR spectrum with nPoints points, as JCAMP-DX
+   */
+  public static String getSpectrum(int nPoints, long seed) {
+    Random r = new Random(seed);
+    int[] y = new int[nPoints];
+    addNoise(y, 50, r);
+    int nPeaks = Math.max(1, nPoints / 5000);
+    for (int i = 0; i < nPeaks; i++)
+      addPeak(y, r.nextInt(nPoints), 2 + r.nextDouble() * nPoints / 20000,
+          10000 + r.nextInt(1000000));
+    SB sb = new SB();
+    sb.append("##TITLE=synthetic 1H NMR spectrum, ").appendI(nPoints)
+        .append(" points\n");
+    sb.append("##JCAMP-DX=5.01\n");
+    sb.append("##DATA TYPE=NMR SPECTRUM\n");
+    sb.append("##DATA CLASS=XYDATA\n");
+    sb.append("##ORIGIN=JSpecView SpectrumGenerator, seed ").append(
+        Long.toString(seed)).append("\n");
+    sb.append("##OWNER=public domain\n");
+    sb.append("##.OBSERVE FREQUENCY=").appendD(OBSERVE_FREQUENCY)
+        .append("\n");
+    sb.append("##.OBSERVE NUCLEUS=^1H\n");
+    sb.append("##XUNITS=HZ\n");
+    sb.append("##YUNITS=ARBITRARY UNITS\n");
+    sb.append("##XFACTOR=").appendD(HZ_PER_POINT).append("\n");
+    sb.append("##YFACTOR=1\n");
+    sb.append("##FIRSTX=").appendD((nPoints - 1) * HZ_PER_POINT).append("\n");
+    sb.append("##LASTX=0\n");
+    sb.append("##DELTAX=").appendD(-HZ_PER_POINT).append("\n");
+    sb.append("##MINY=").appendI(getMin(y)).append("\n");
+    sb.append("##MAXY=").appendI(getMax(y)).append("\n");
+    sb.append("##NPOINTS=").appendI(nPoints).append("\n");
+    sb.append("##FIRSTY=").appendI(y[0]).append("\n");
+    sb.append("##XYDATA=(X++(Y..Y))\n");
+    appendData(sb, y);
+    sb.append("##END=\n");
+    return sb.toString();
+  }
+
+  /**
+   * @param nRows
+   *        the number of F1 points, one page each
+   * @param nCols
+   *        the number of F2 points
+   * @param seed
+   * @return a 1H-1H 2D NMR spectrum as a JCAMP-DX NTUPLES block
+   */
+  public static String get2D(int nRows, int nCols, long seed) {
+    Random r = new Random(seed);
+    int[][] y = new int[nRows][nCols];
+    for (int i = 0; i < nRows; i++)
+      addNoise(y[i], 50, r);
+    // diagonal peaks and a few cross peaks between them
+    int nPeaks = Math.max(2, Math.min(nRows, nCols) / 32);
+    double[] shifts = new double[nPeaks];
+    for (int i = 0; i < nPeaks; i++) {
+      shifts[i] = r.nextDouble();
+      add2DPeak(y, shifts[i], shifts[i], 100000 + r.nextInt(1000000));
+    }
+    for (int i = 0; i < nPeaks; i++) {
+      int j = r.nextInt(nPeaks);
+      if (j != i) {
+        int h = 10000 + r.nextInt(100000);
+        add2DPeak(y, shifts[i], shifts[j], h);
+        add2DPeak(y, shifts[j], shifts[i], h);
+      }
+    }
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i = 0; i < nRows; i++) {
+      min = Math.min(min, getMin(y[i]));
+      max = Math.max(max, getMax(y[i]));
+    }
+    double first1 = (nRows - 1) * HZ_PER_POINT_2D;
+    double first2 = (nCols - 1) * HZ_PER_POINT_2D;
+    SB sb = new SB();
+    sb.append("##TITLE=synthetic 2D NMR spectrum, ").appendI(nRows).append(
+        " x ").appendI(nCols).append(" points\n");
+    sb.append("##JCAMP-DX=6.0\n");
+    sb.append("##DATA TYPE=nD NMR SPECTRUM\n");
+    sb.append("##DATA CLASS=NTUPLES\n");
+    sb.append("##NUM DIM=2\n");
+    sb.append("##ORIGIN=JSpecView SpectrumGenerator, seed ").append(
+        Long.toString(seed)).append("\n");
+    sb.append("##OWNER=public domain\n");
+    sb.append("##.OBSERVE FREQUENCY=").appendD(OBSERVE_FREQUENCY)
+        .append("\n");
+    sb.append("##.OBSERVE NUCLEUS=^1H\n");
+    sb.append("##NTUPLES=nD NMR SPECTRUM\n");
+    sb.append("##VAR_NAME=FREQUENCY1, FREQUENCY2, SPECTRUM\n");
+    sb.append("##SYMBOL=F1, F2, Y\n");
+    sb.append("##.NUCLEUS=1H, 1H\n");
+    sb.append("##VAR_TYPE=INDEPENDENT, INDEPENDENT, DEPENDENT\n");
+    sb.append("##VAR_FORM=AFFN, AFFN, ASDF\n");
+    sb.append("##VAR_DIM=").appendI(nRows).append(", ").appendI(nCols)
+        .append(", ").appendI(nCols).append("\n");
+    sb.append("##UNITS=HZ, HZ, ARBITRARY UNITS\n");
+    sb.append("##FACTOR=").appendD(HZ_PER_POINT_2D).append(", ").appendD(
+        HZ_PER_POINT_2D).append(", 1\n");
+    sb.append("##FIRST=").appendD(first1).append(", ").appendD(first2)
+        .append(", ").appendI(y[0][0]).append("\n");
+    sb.append("##LAST=0, 0, ").appendI(y[nRows - 1][nCols - 1]).append("\n");
+    sb.append("##MIN=0, 0, ").appendI(min).append("\n");
+    sb.append("##MAX=").appendD(first1).append(", ").appendD(first2).append(
+        ", ").appendI(max).append("\n");
+    for (int i = 0; i < nRows; i++) {
+      double f1 = (nRows - 1 - i) * HZ_PER_POINT_2D;
+      sb.append("##PAGE=F1=").appendD(f1).append("\n");
+      sb.append("##FIRST=").appendD(f1).append(", ").appendD(first2).append(
+          ", ").appendI(y[i][0]).append("\n");
+      sb.append("##DATA TABLE=(F2++(Y..Y)), PROFILE\n");
+      appendData(sb, y[i]);
+    }
+    sb.append("##END NTUPLES=nD NMR SPECTRUM\n");
+    sb.append("##END=\n");
+    return sb.toString();
+  }
+
+  private static void addNoise(int[] y, int noise, Random r) {
+    for (int i = y.length; --i >= 0;)
+      y[i] = r.nextInt(2 * noise + 1) - noise;
+  }
+
+  /**
+   * Adds a Lorentzian peak, out to where it is less than one unit high.
+   *
+   * @param y
+   * @param center
+   * @param width
+   *        the half width at half height, in points
+   * @param height
+   */
+  private static void addPeak(int[] y, int center, double width, int height) {
+    int range = (int) Math.min(y.length, width * Math.sqrt(height));
+    for (int i = Math.max(0, center - range), n = Math.min(y.length, center
+        + range + 1); i < n; i++) {
+      double d = (i - center) / width;
+      y[i] += (int) (height / (1 + d * d));
+    }
+  }
+
+  /**
+   * @param y
+   * @param f1
+   *        the peak's F1 position, as a fraction of the F1 range
+   * @param f2
+   *        the peak's F2 position, as a fraction of the F2 range
+   * @param height
+   */
+  private static void add2DPeak(int[][] y, double f1, double f2, int height) {
+    int nRows = y.length;
+    int nCols = y[0].length;
+    double w1 = Math.max(1, nRows / 400.0);
+    double w2 = Math.max(1, nCols / 400.0);
+    int c1 = (int) (f1 * (nRows - 1));
+    int c2 = (int) (f2 * (nCols - 1));
+    int range1 = (int) (w1 * Math.sqrt(height));
+    int range2 = (int) (w2 * Math.sqrt(height));
+    for (int i = Math.max(0, c1 - range1), n = Math.min(nRows, c1 + range1
+        + 1); i < n; i++) {
+      double d1 = (i - c1) / w1;
+      double h = height / (1 + d1 * d1);
+      if (h < 1)
+        continue;
+      int[] row = y[i];
+      for (int j = Math.max(0, c2 - range2), m = Math.min(nCols, c2 + range2
+          + 1); j < m; j++) {
+        double d2 = (j - c2) / w2;
+        row[j] += (int) (h / (1 + d2 * d2));
+      }
+    }
+  }
+
+  /**
+   * Appends (X++(Y..Y)) lines, with X in points (that is, in units of the x
+   * factor), decreasing to 0 at the last point.
+   *
+   * @param sb
+   * @param y
+   */
+  private static void appendData(SB sb, int[] y) {
+    int n = y.length;
+    for (int i = 0; i < n; i += 10) {
+      sb.appendI(n - 1 - i);
+      for (int j = i, m = Math.min(n, i + 10); j < m; j++)
+        sb.append(" ").appendI(y[j]);
+      sb.append("\n");
+    }
+  }
+
+  private static int getMin(int[] y) {
+    int min = Integer.MAX_VALUE;
+    for (int i = y.length; --i >= 0;)
+      if (y[i] < min)
+        min = y[i];
+    return min;
+  }
+
+  private static int getMax(int[] y) {
+    int max = Integer.MIN_VALUE;
+    for (int i = y.length; --i >= 0;)
+      if (y[i] > max)
+        max = y[i];
+    return max;
+  }
+
+  public static void main(String[] args) throws Exception {
+    File dir = new File(args.length > 0 ? args[0] : ".");
+    int nPoints = (args.length > 1 ? Integer.parseInt(args[1]) : 1000000);
+    int nRows = (args.length > 2 ? Integer.parseInt(args[2]) : 512);
+    if (!dir.isDirectory() && !dir.mkdirs())
+      throw new Exception("cannot create directory " + dir);
+    String name = "synthetic-" + nPoints;
+    String data = getSpectrum(nPoints, 1);
+    write(new File(dir, name + "_FIX.jdx"), data);
+    JSViewer vwr = BenchmarkSupport.newViewer();
+    Spectrum spec = BenchmarkSupport.read(data, name).getSpectra().get(0);
+    ExportType[] types = new ExportType[] { ExportType.PAC, ExportType.SQZ,
+        ExportType.DIF, ExportType.DIFDUP };
+    for (int i = 0; i < types.length; i++)
+      write(new File(dir, name + "_" + types[i] + ".jdx"), BenchmarkSupport.export(vwr, spec,
+          types[i]));
+    write(new File(dir, name + ".cml"), BenchmarkSupport.export(vwr, spec, ExportType.CML));
+    write(new File(dir, name + ".xml"), BenchmarkSupport.export(vwr, spec, ExportType.AML));
+    write(new File(dir, "synthetic-2d-" + nRows + ".dx"), get2D(nRows, nRows,
+        1));
+  }
+
+  private static void write(File file, String data) throws Exception {
+    OutputStream os = new FileOutputStream(file);
+    try {
+      os.write(data.getBytes("UTF-8"));
+    } finally {
+      os.close();
+    }
+    System.out.println("wrote " + file);
+  }
+
+}
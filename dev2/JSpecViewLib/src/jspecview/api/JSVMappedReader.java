@@ -0,0 +1,46 @@
+package jspecview.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * A reader for a memory-mapped local file (Java only), with a way for
+ * JDXSourceStreamTokenizer to read data lines straight into its buffer.
+ */
+public interface JSVMappedReader {
+
+	/**
+	 * @param path
+	 *          a local file
+	 * @return this reader, or null if the file is small, cannot be mapped, or
+	 *         is a ZIP or GZIP file
+	 */
+	BufferedReader set(String path);
+
+	/**
+	 * Reads the next line into buf without creating a String.
+	 *
+	 * @param buf
+	 * @return the number of characters read, -1 at the end of the file, or, if
+	 *         the line might not fit in buf, -2 - n, where n is a length that
+	 *         will fit; the line is not read in that case
+	 * @throws IOException
+	 */
+	int readLineChars(char[] buf) throws IOException;
+
+	/**
+	 * @return the offset in the file of the next line to be read
+	 */
+	int getPosition();
+
+	/**
+	 * @param start
+	 * @param end
+	 * @return a new reader for just the lines from offset start to offset end
+	 *         (its own offsets starting from 0), holding a copy of them if this
+	 *         reader is for a mapped file, so that it remains valid after this
+	 *         reader is closed
+	 */
+	BufferedReader getSection(int start, int end);
+
+}
@@ -12,4 +12,14 @@ public interface JSVZipInterface {
 	public abstract BufferedReader newJSVZipFileSequentialReader(InputStream in,
 			String[] subFileList, String startCode);
 
+	/**
+	 * @param path
+	 *          a local file (Java only)
+	 * @param subFileList
+	 * @param startCode
+	 * @return a reader for the file, or null if it is not a ZIP file
+	 */
+	public abstract BufferedReader newJSVZipFileReader(String path,
+			String[] subFileList, String startCode);
+
 }
\ No newline at end of file
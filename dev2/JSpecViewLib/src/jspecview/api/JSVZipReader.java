@@ -7,4 +7,12 @@ public interface JSVZipReader {
 
 	BufferedReader set(InputStream in, String[] subFileList, String startCode);
 
+	/**
+	 * @param n
+	 *          the number of threads that may decompress entries while others
+	 *          are being read, if the reader can read ahead at all; to be set
+	 *          before anything is read
+	 */
+	void setParallelism(int n);
+
 }
@@ -43,6 +43,20 @@ public interface ScriptInterface {
 	public void siOpenDataOrFile(Object data, String name, Lst<Spectrum> specs,
 			String url, int firstSpec, int lastSpec, boolean doCheck, String script, String id);
 
+	/**
+	 * Reads a file or inline data, generally using JSViewer.createSource. This
+	 * may be done on another thread, but must not return until it is complete.
+	 * 
+	 * @param data
+	 * @param filePath
+	 * @param firstSpec
+	 * @param lastSpec
+	 * @return the new source, or null if the user cancelled loading
+	 * @throws Exception
+	 */
+	public JDXSource siCreateSource(Object data, String filePath, int firstSpec,
+			int lastSpec) throws Exception;
+
 	public void siProcessCommand(String script);
 	
 	public void siSendPanelChange();
@@ -5,6 +5,10 @@ package jspecview.common;
 
 import java.util.Comparator;
 
+/**
+ * @deprecated used only by the deprecated Coordinate[] binary search
+ */
+@Deprecated
 class CoordComparator implements Comparator<Coordinate> {
   @Override
 	public int compare(Coordinate c1, Coordinate c2) {
@@ -160,45 +160,32 @@ public class Coordinate {
   /**
    * Determines if the y values of a spectrum are in a certain range
    * 
-   * @param xyCoords
+   * @param yValues
    * @param min
    * @param max
-  * @return true is in range, otherwise false
+   * @return true is in range, otherwise false
    */
-  public static boolean isYInRange(Coordinate[] xyCoords, double min,
-                                    double max) {
-    return (getMinY(xyCoords, 0, xyCoords.length) >= min 
-        && getMaxY(xyCoords, 0, xyCoords.length) >= max);
+  public static boolean isYInRange(double[] yValues, double min, double max) {
+    return (getMin(yValues, 0, yValues.length) >= min 
+        && getMax(yValues, 0, yValues.length) >= max);
   }
 
   /**
    * Normalises the y values of a spectrum to a certain range
    * 
-   * @param xyCoords
+   * @param yValues
    * @param min
    * @param max
-   * @return array of normalised coordinates
+   * @return array of normalised y values
    */
-  public static Coordinate[] normalise(Coordinate[] xyCoords, double min,
-                                        double max) {
-    Coordinate[] newXYCoords = new Coordinate[xyCoords.length];
-    double minY = getMinY(xyCoords, 0, xyCoords.length);
-    double maxY = getMaxY(xyCoords, 0, xyCoords.length);
+  public static double[] normalise(double[] yValues, double min, double max) {
+    double[] newYValues = new double[yValues.length];
+    double minY = getMin(yValues, 0, yValues.length);
+    double maxY = getMax(yValues, 0, yValues.length);
     double factor = (maxY - minY) / (max - min); // range = 0-5
-    for (int i = 0; i < xyCoords.length; i++)
-      newXYCoords[i] = new Coordinate().set(xyCoords[i].getXVal(), 
-          ((xyCoords[i].getYVal() - minY) / factor) - min);
-    return newXYCoords;
-  }
-
-  public static Coordinate[] reverse(Coordinate[] x) {
-    int n = x.length;
-    for (int i = 0; i < n; i++) {
-      Coordinate v = x[i];
-      x[i] = x[--n];
-      x[n] = v;
-    }
-    return x;
+    for (int i = 0; i < yValues.length; i++)
+      newYValues[i] = ((yValues[i] - minY) / factor) - min;
+    return newYValues;
   }
 
   /**
@@ -256,45 +243,31 @@ public class Coordinate {
   }
 
   /**
-   * Removes the scale factor from the coordinates
+   * Checks the order of an array of values
    * 
-   * @param xyCoords
-   *        the array of coordinates
-   * @param xScale
-   *        the scale for the x values
-   * @param yScale
-   *        the scale for the y values
+   * @param values
+   * @return 1 if no value is less than the one before it, -1 if none is
+   *         greater, or 0 if neither (or a value is NaN)
    */
-  public static void removeScale(Coordinate[] xyCoords, double xScale,
-                                 double yScale) {
-    applyScale(xyCoords, (1 / xScale), (1 / yScale));
-  }
-
-  /**
-   * Apply the scale factor to the coordinates
-   * 
-   * @param xyCoords
-   *        the array of coordinates
-   * @param xScale
-   *        the scale for the x values
-   * @param yScale
-   *        the scale for the y values
-   */
-  public static void applyScale(Coordinate[] xyCoords, double xScale,
-                                double yScale) {
-    if (xScale != 1 || yScale != 1) {
-      for (int i = 0; i < xyCoords.length; i++) {
-        xyCoords[i].setXVal(xyCoords[i].getXVal() * xScale);
-        xyCoords[i].setYVal(xyCoords[i].getYVal() * yScale);
-      }
+  public static int getOrder(double[] values) {
+    boolean up = true, down = true;
+    for (int i = values.length; --i > 0;) {
+      double d = values[i] - values[i - 1];
+      if (d < 0)
+        up = false;
+      else if (d > 0)
+        down = false;
+      else if (d != 0)
+        return 0;
     }
+    return (up ? 1 : down ? -1 : 0);
   }
 
   /**
-   * Applies the shift reference to all coordinates
+   * Applies the shift reference to all x values
    * 
-   * @param xyCoords
-   *        an array of coordinates
+   * @param xValues
+   *        the x values
    * @param dataPointNum
    *        the number of the data point in the the spectrum, indexed from 1
    * @param firstX
@@ -307,23 +280,16 @@ public class Coordinate {
    *        the observed frequency
    * @param shiftRefType
    *        the type of shift
-   * @throws IndexOutOfBoundsException
    */
-  public static void applyShiftReference(Coordinate[] xyCoords,
-                                         int dataPointNum, double firstX,
-                                         double lastX, double offset,
-                                         double observedFreq, int shiftRefType)
-      throws IndexOutOfBoundsException {
-  
-    if (dataPointNum > xyCoords.length || dataPointNum < 0)
-      //throw new IndexOutOfBoundsException();
+  public static void applyShiftReference(double[] xValues, int dataPointNum,
+                                         double firstX, double lastX,
+                                         double offset, double observedFreq,
+                                         int shiftRefType) {
+    if (dataPointNum > xValues.length || dataPointNum < 0)
       return;
-  
-    Coordinate coord;
     switch (shiftRefType) {
     case 0:
-      //double deltaX = JSpecViewUtils.deltaX(xyCoords[xyCoords.length - 1].getXVal(), xyCoords[0].getXVal(), xyCoords.length);     
-      offset = xyCoords[xyCoords.length - dataPointNum].getXVal() - offset * observedFreq;
+      offset = xValues[xValues.length - dataPointNum] - offset * observedFreq;
       break;
     case 1:
       offset = firstX - offset * observedFreq;
@@ -332,36 +298,7 @@ public class Coordinate {
       offset = lastX + offset;
       break;
     }
-  
-    for (int index = 0; index < xyCoords.length; index++) {
-      coord = xyCoords[index];
-      coord.setXVal(coord.getXVal() - offset);
-      xyCoords[index] = coord;
-    }
-  
-    firstX -= offset;
-    lastX -= offset;
-  }
-
-  /**
-   * Returns the minimum x value of an array of <code>Coordinate</code>s
-   * 
-   * @param coords
-   *        the coordinates
-   * @param start
-   *        the starting index
-   * @param end
-   *        the ending index
-   * @return the maximum x value of an array of <code>Coordinate</code>s
-   */
-  public static double getMinX(Coordinate[] coords, int start, int end) {   
-    double min = Double.MAX_VALUE;
-    for (int index = start; index < end; index++) {
-      double tmp = coords[index].getXVal();
-      if (tmp < min)
-      min = tmp;
-    }
-    return min;
+    shift(xValues, -offset);
   }
 
   /**
@@ -376,35 +313,13 @@ public class Coordinate {
   public static double getMinX(Lst<Spectrum> spectra, ViewData vd) {
     double min = Double.MAX_VALUE;
     for (int i = 0; i < spectra.size(); i++) {
-    	Coordinate[] xyCoords = spectra.get(i).getXYCoords();
-      double tmp = getMinX(xyCoords, vd.getStartingPointIndex(i), vd.getEndingPointIndex(i));
+      double tmp = getMinX(spectra.get(i), vd.getStartingPointIndex(i), vd.getEndingPointIndex(i));
       if (tmp < min)
         min = tmp;
     }
     return min;
   }
 
-  /**
-   * Returns the minimum x value of an array of <code>Coordinate</code>s
-   * 
-   * @param coords
-   *        the coordinates
-   * @param start
-   *        the starting index
-   * @param end
-   *        the ending index
-   * @return the minimum x value of an array of <code>Coordinate</code>s
-   */
-  public static double getMaxX(Coordinate[] coords, int start, int end) {
-    double max = -Double.MAX_VALUE;
-    for (int index = start; index < end; index++) {
-      double tmp = coords[index].getXVal();
-      if (tmp > max)
-        max = tmp;
-    }
-    return max;
-  }
-
   /**
    * Returns the maximum x value value from an array of arrays of
    * <code>Coordinate</code>s.
@@ -416,8 +331,7 @@ public class Coordinate {
   public static double getMaxX(Lst<Spectrum> spectra, ViewData vd) {
     double max = -Double.MAX_VALUE;
     for (int i = 0; i < spectra.size(); i++) {
-    	Coordinate[] xyCoords = spectra.get(i).getXYCoords();
-      double tmp = getMaxX(xyCoords, vd.getStartingPointIndex(i), vd.getEndingPointIndex(i));
+      double tmp = getMaxX(spectra.get(i), vd.getStartingPointIndex(i), vd.getEndingPointIndex(i));
       if (tmp > max)
         max = tmp;
     }
@@ -425,63 +339,81 @@ public class Coordinate {
   }
 
   /**
-   * Returns the minimum y value of an array of <code>Coordinate</code>s
-   * 
-   * @param coords
-   *        the coordinates
-   * @param start
-   *        the starting index
-   * @param end
-   *        the ending index
-   * @return the minimum y value of an array of <code>Coordinate</code>s
+   * Returns the minimum y value value from an array of arrays of
+   * <code>Coordinate</code>s.
+   * @param spectra 
+   * @param vd 
+   * @return the minimum y value value from an array of arrays of
+   *         <code>Coordinate</code>s
    */
-  public static double getMinY(Coordinate[] coords, int start, int end) {
+  public static double getMinYUser(Lst<Spectrum> spectra, ViewData vd) {
     double min = Double.MAX_VALUE;
-    for (int index = start; index < end; index++) {
-      double tmp = coords[index].getYVal();
+    for (int i = 0; i < spectra.size(); i++) {
+      double u = spectra.get(i).getUserYFactor();
+      double yref = spectra.get(i).getYRef();
+      double tmp = (getMinY(spectra.get(i), vd.getStartingPointIndex(i), vd.getEndingPointIndex(i)) - yref) * u + yref;
       if (tmp < min)
-      min = tmp;
-    }
+        min = tmp;
+    }  
     return min;
   }
 
-  
   /**
-   * Returns the minimum y value value from an array of arrays of
+   * Returns the maximum y value value from an array of arrays of
    * <code>Coordinate</code>s.
    * @param spectra 
    * @param vd 
-   * @return the minimum y value value from an array of arrays of
+   * @return the maximum y value value from an array of arrays of
    *         <code>Coordinate</code>s
    */
-  public static double getMinYUser(Lst<Spectrum> spectra, ViewData vd) {
-    double min = Double.MAX_VALUE;
+  public static double getMaxYUser(Lst<Spectrum> spectra, ViewData vd) {
+    double max = -Double.MAX_VALUE;
     for (int i = 0; i < spectra.size(); i++) {
       double u = spectra.get(i).getUserYFactor();
       double yref = spectra.get(i).getYRef();
-    	Coordinate[] xyCoords = spectra.get(i).getXYCoords();
-      double tmp = (getMinY(xyCoords, vd.getStartingPointIndex(i), vd.getEndingPointIndex(i)) - yref) * u + yref;
+      double tmp = (getMaxY(spectra.get(i), vd.getStartingPointIndex(i), vd.getEndingPointIndex(i)) - yref) * u + yref;
+      if (tmp > max)
+        max = tmp;
+    }
+    return max;
+  }
+
+  /**
+   * Returns the minimum value of a primitive x or y array
+   * 
+   * @param values
+   *        the x or y values
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index
+   * @return the minimum value
+   */
+  public static double getMin(double[] values, int start, int end) {
+    double min = Double.MAX_VALUE;
+    for (int index = start; index < end; index++) {
+      double tmp = values[index];
       if (tmp < min)
         min = tmp;
-    }  
+    }
     return min;
   }
 
   /**
-   * Returns the maximum y value of an array of <code>Coordinate</code>s
+   * Returns the maximum value of a primitive x or y array
    * 
-   * @param coords
-   *        the coordinates
+   * @param values
+   *        the x or y values
    * @param start
    *        the starting index
    * @param end
    *        the ending index
-   * @return the maximum y value of an array of <code>Coordinate</code>s
+   * @return the maximum value
    */
-  public static double getMaxY(Coordinate[] coords, int start, int end) {
+  public static double getMax(double[] values, int start, int end) {
     double max = -Double.MAX_VALUE;
     for (int index = start; index < end; index++) {
-      double tmp = coords[index].getYVal();
+      double tmp = values[index];
       if (tmp > max)
         max = tmp;
     }
@@ -489,88 +421,209 @@ public class Coordinate {
   }
 
   /**
-   * Returns the maximum y value value from an array of arrays of
-   * <code>Coordinate</code>s.
-   * @param spectra 
-   * @param vd 
-   * @return the maximum y value value from an array of arrays of
-   *         <code>Coordinate</code>s
+   * Returns the minimum x value of a spectrum's current subspectrum over a
+   * range: an end point if the x values are ordered, otherwise from its min/max
+   * pyramid if it has one
+   * 
+   * @param spec
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index
+   * @return the minimum x value
    */
-  public static double getMaxYUser(Lst<Spectrum> spectra, ViewData vd) {
-    double max = -Double.MAX_VALUE;
-    for (int i = 0; i < spectra.size(); i++) {
-      double u = spectra.get(i).getUserYFactor();
-      double yref = spectra.get(i).getYRef();
-    	Coordinate[] xyCoords = spectra.get(i).getXYCoords();
-      double tmp = (getMaxY(xyCoords, vd.getStartingPointIndex(i), vd.getEndingPointIndex(i)) - yref) * u + yref;
-      if (tmp > max)
-        max = tmp;
-    }
-    return max;
+  public static double getMinX(Spectrum spec, int start, int end) {
+    spec = spec.getCurrentSubSpectrum();
+    if (start < end)
+      switch (spec.getXOrder()) {
+      case 1:
+        return spec.getXData()[start];
+      case -1:
+        return spec.getXData()[end - 1];
+      }
+    MinMaxPyramid p = spec.getXPyramid();
+    return (p == null ? getMin(spec.getXData(), start, end) : p.getMin(start, end));
   }
 
-  private final static Comparator<Coordinate> c = new CoordComparator();
-  
-  public static double getYValueAt(Coordinate[] xyCoords, double xPt) {
-  	int i = getNearestIndexForX(xyCoords, xPt);
-    if (i == 0 || i == xyCoords.length)
-      return Double.NaN;
-    double x1 = xyCoords[i].getXVal();
-    double x0 = xyCoords[i - 1].getXVal();
-    double y1 = xyCoords[i].getYVal();
-    double y0 = xyCoords[i - 1].getYVal();
-    if (x1 == x0)
-      return y1; 
-    return y0 + (y1 - y0) / (x1 - x0) * (xPt - x0);
+  /**
+   * Returns the maximum x value of a spectrum's current subspectrum over a
+   * range: an end point if the x values are ordered, otherwise from its min/max
+   * pyramid if it has one
+   * 
+   * @param spec
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index
+   * @return the maximum x value
+   */
+  public static double getMaxX(Spectrum spec, int start, int end) {
+    spec = spec.getCurrentSubSpectrum();
+    if (start < end)
+      switch (spec.getXOrder()) {
+      case 1:
+        return spec.getXData()[end - 1];
+      case -1:
+        return spec.getXData()[start];
+      }
+    MinMaxPyramid p = spec.getXPyramid();
+    return (p == null ? getMax(spec.getXData(), start, end) : p.getMax(start, end));
+  }
+
+  /**
+   * Returns the minimum y value of a spectrum's current subspectrum over a
+   * range, using its min/max pyramid if it has one
+   * 
+   * @param spec
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index
+   * @return the minimum y value
+   */
+  public static double getMinY(Spectrum spec, int start, int end) {
+    spec = spec.getCurrentSubSpectrum();
+    MinMaxPyramid p = spec.getYPyramid();
+    return (p == null ? getMin(spec.getYData(), start, end) : p.getMin(start, end));
+  }
+
+  /**
+   * Returns the maximum y value of a spectrum's current subspectrum over a
+   * range, using its min/max pyramid if it has one
+   * 
+   * @param spec
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index
+   * @return the maximum y value
+   */
+  public static double getMaxY(Spectrum spec, int start, int end) {
+    spec = spec.getCurrentSubSpectrum();
+    MinMaxPyramid p = spec.getYPyramid();
+    return (p == null ? getMax(spec.getYData(), start, end) : p.getMax(start, end));
   }
 
   static int intoRange(int i, int i0, int i1) {
     return Math.max(Math.min(i, i1), i0);
   }
 
-  public static int getNearestIndexForX(Coordinate[] xyCoords, double xPt) {
-    Coordinate x = new Coordinate().set(xPt, 0);
-    int i = Arrays.binarySearch(xyCoords, x, c);
-    if (i < 0) i = -1 - i;
-    if (i < 0)
-    	return 0;
-    if (i > xyCoords.length - 1)
-    	return xyCoords.length - 1;
-    return i;
-  }
-  
-  public static double findXForPeakNearest(Coordinate[] xyCoords, double x, 
-  		boolean isMin) {
-  	int pt = getNearestIndexForX(xyCoords, x);
-  	double f = (isMin ? -1 : 1);
-  	while (pt < xyCoords.length - 1 && f * (xyCoords[pt + 1].yVal - xyCoords[pt].yVal) > 0)
-  			pt++;
-  	while (pt >= 1 && f * (xyCoords[pt - 1].yVal - xyCoords[pt].yVal) > 0)
+	/**
+	 * Creates a <code>Coordinate</code> view of primitive x and y arrays for
+	 * callers that still require objects.
+	 * 
+	 * @param xValues
+	 * @param yValues
+	 * @return new array of coordinates
+	 */
+	public static Coordinate[] getCoordinates(double[] xValues, double[] yValues) {
+		Coordinate[] xyCoords = new Coordinate[xValues.length];
+		for (int i = xValues.length; --i >= 0;)
+			xyCoords[i] = new Coordinate().set(xValues[i], yValues[i]);
+		return xyCoords;
+	}
+
+	public static double getYValueAt(double[] xValues, double[] yValues,
+			double xPt) {
+		int i = getNearestIndexForX(xValues, xPt);
+		if (i == 0 || i == xValues.length)
+			return Double.NaN;
+		double x1 = xValues[i];
+		double x0 = xValues[i - 1];
+		double y1 = yValues[i];
+		double y0 = yValues[i - 1];
+		if (x1 == x0)
+			return y1;
+		return y0 + (y1 - y0) / (x1 - x0) * (xPt - x0);
+	}
+
+	/**
+	 * Finds the first index in a range with a value at least x -- directly for
+	 * equally spaced values, by binary search for other ordered values, and
+	 * otherwise by scanning.
+	 * 
+	 * @param values
+	 * @param x
+	 * @param iStart
+	 * @param iEnd
+	 *          the last index to check
+	 * @param isOrdered
+	 *          true if no value is less than the one before it
+	 * @return the index, or iEnd + 1 if there is none
+	 */
+	public static int getFirstIndexAtOrAbove(double[] values, double x,
+			int iStart, int iEnd, boolean isOrdered) {
+		if (!isOrdered || iStart >= iEnd || Double.isNaN(x)) {
+			for (int i = iStart; i <= iEnd; i++)
+				if (values[i] >= x)
+					return i;
+			return iEnd + 1;
+		}
+		double x0 = values[iStart];
+		double dx = values[iEnd] - x0;
+		if (dx > 0) {
+			double f = Math.ceil((x - x0) / dx * (iEnd - iStart));
+			int i = (f < 0 ? iStart : f > iEnd - iStart ? iEnd + 1 : iStart
+					+ (int) f);
+			if ((i > iEnd || values[i] >= x)
+					&& (i == iStart || values[i - 1] < x))
+				return i;
+		}
+		int lo = iStart;
+		int hi = iEnd + 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] < x)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	public static int getNearestIndexForX(double[] xValues, double xPt) {
+		int i = Arrays.binarySearch(xValues, xPt);
+		if (i < 0)
+			i = -1 - i;
+		if (i < 0)
+			return 0;
+		if (i > xValues.length - 1)
+			return xValues.length - 1;
+		return i;
+	}
+
+	public static double findXForPeakNearest(double[] xValues, double[] yValues,
+			double x, boolean isMin) {
+		int pt = getNearestIndexForX(xValues, x);
+		double f = (isMin ? -1 : 1);
+		while (pt < yValues.length - 1 && f * (yValues[pt + 1] - yValues[pt]) > 0)
+			pt++;
+		while (pt >= 1 && f * (yValues[pt - 1] - yValues[pt]) > 0)
 			pt--;
-  	// now at local max
-  	// could leave it there? 
-  	// see https://ccrma.stanford.edu/~jos/sasp/Quadratic_Interpolation_Spectral_Peaks.html
-  	if (pt == 0 || pt == xyCoords.length - 1)
-  		return xyCoords[pt].xVal;
-  	return parabolicInterpolation(xyCoords, pt);
-  }
+		if (pt == 0 || pt == xValues.length - 1)
+			return xValues[pt];
+		return parabolicInterpolation(xValues, yValues, pt);
+	}
 
-  /**
-   * 		see https://ccrma.stanford.edu/~jos/sasp/Quadratic_Interpolation_Spectral_Peaks.html
-   *
-   * @param xyCoords
-   * @param pt
-   * @return center
-   */
-	public static double parabolicInterpolation(Coordinate[] xyCoords, int pt) {
-  	double alpha = xyCoords[pt - 1].yVal;
-  	double beta = xyCoords[pt].yVal;
-  	double gamma = xyCoords[pt + 1].yVal;
-  	double p = (alpha - gamma) / 2 / (alpha - 2 * beta + gamma);
-  	return xyCoords[pt].xVal + p * (xyCoords[pt + 1].xVal - xyCoords[pt].xVal);
+	/**
+	 * see
+	 * https://ccrma.stanford.edu/~jos/sasp/Quadratic_Interpolation_Spectral_Peaks.html
+	 * 
+	 * @param xValues
+	 * @param yValues
+	 * @param pt
+	 * @return center
+	 */
+	public static double parabolicInterpolation(double[] xValues,
+			double[] yValues, int pt) {
+		double alpha = yValues[pt - 1];
+		double beta = yValues[pt];
+		double gamma = yValues[pt + 1];
+		double p = (alpha - gamma) / 2 / (alpha - 2 * beta + gamma);
+		return xValues[pt] + p * (xValues[pt + 1] - xValues[pt]);
 	}
 
-	static boolean getPickedCoordinates(Coordinate[] coordsClicked,
+	static boolean getPickedCoordinates(double[] xValues, double[] yValues,
 			Coordinate coordClicked, Coordinate coord, Coordinate actualCoord) {
 		if (coordClicked == null)
 			return false;
@@ -579,39 +632,326 @@ public class Coordinate {
 		coord.setYVal(coordClicked.getYVal());
 		if (actualCoord == null)
 			return true;
-		int pt = getNearestIndexForX(coordsClicked, x);
-		actualCoord.setXVal(coordsClicked[pt].getXVal());
-		actualCoord.setYVal(coordsClicked[pt].getYVal());
+		int pt = getNearestIndexForX(xValues, x);
+		actualCoord.setXVal(xValues[pt]);
+		actualCoord.setYVal(yValues[pt]);
 		return true;
 	}
 
+	/**
+	 * Returns a copy of a primitive x or y array
+	 * 
+	 * @param values
+	 * @return new array
+	 */
+	public static double[] copy(double[] values) {
+		double[] a = new double[values.length];
+		System.arraycopy(values, 0, a, 0, values.length);
+		return a;
+	}
+
+	/**
+	 * Adds a constant to all elements of a primitive x or y array
+	 * 
+	 * @param values
+	 * @param d
+	 */
+	public static void shift(double[] values, double d) {
+		for (int i = values.length; --i >= 0;)
+			values[i] += d;
+	}
+
+	/**
+	 * Multiplies all elements of a primitive x or y array by a factor
+	 * 
+	 * @param values
+	 * @param f
+	 */
+	public static void scale(double[] values, double f) {
+		if (f != 1)
+			for (int i = values.length; --i >= 0;)
+				values[i] *= f;
+	}
+
+	public static double getNearestXWithYAbove(double[] xValues,
+			double[] yValues, double x, double y, boolean inverted,
+			boolean andGreaterThanX) {
+		int pt = getNearestIndexForX(xValues, x);
+		double f = (inverted ? -1 : 1);
+		if (andGreaterThanX)
+			while (pt < yValues.length && f * (yValues[pt] - y) < 0)
+				pt++;
+		else
+			while (pt >= 0 && f * (yValues[pt] - y) < 0)
+				pt--;
+		if (pt == -1 || pt == xValues.length)
+			return Double.NaN;
+		return findXForPeakNearest(xValues, yValues, xValues[pt], inverted);
+	}
+
+	////// Coordinate[] versions, for callers that still hold coordinates //////
+
+	private static double[] getXValues(Coordinate[] xyCoords) {
+		double[] xValues = new double[xyCoords.length];
+		for (int i = xyCoords.length; --i >= 0;)
+			xValues[i] = xyCoords[i].xVal;
+		return xValues;
+	}
+
+	private static double[] getYValues(Coordinate[] xyCoords) {
+		double[] yValues = new double[xyCoords.length];
+		for (int i = xyCoords.length; --i >= 0;)
+			yValues[i] = xyCoords[i].yVal;
+		return yValues;
+	}
+
+	private static void setXValues(Coordinate[] xyCoords, double[] xValues) {
+		for (int i = xyCoords.length; --i >= 0;)
+			xyCoords[i].xVal = xValues[i];
+	}
+
+	/**
+	 * @deprecated use {@link #isYInRange(double[], double, double)}
+	 * 
+	 * @param xyCoords
+	 * @param min
+	 * @param max
+	 * @return true is in range, otherwise false
+	 */
+	@Deprecated
+	public static boolean isYInRange(Coordinate[] xyCoords, double min,
+			double max) {
+		return isYInRange(getYValues(xyCoords), min, max);
+	}
+
+	/**
+	 * @deprecated use {@link #normalise(double[], double, double)}
+	 * 
+	 * @param xyCoords
+	 * @param min
+	 * @param max
+	 * @return array of normalised coordinates
+	 */
+	@Deprecated
+	public static Coordinate[] normalise(Coordinate[] xyCoords, double min,
+			double max) {
+		return getCoordinates(getXValues(xyCoords),
+				normalise(getYValues(xyCoords), min, max));
+	}
+
+	/**
+	 * @deprecated spectra no longer hold coordinates
+	 * 
+	 * @param x
+	 * @return x, reversed in place
+	 */
+	@Deprecated
+	public static Coordinate[] reverse(Coordinate[] x) {
+		int n = x.length;
+		for (int i = 0; i < n; i++) {
+			Coordinate v = x[i];
+			x[i] = x[--n];
+			x[n] = v;
+		}
+		return x;
+	}
+
+	/**
+	 * @deprecated use {@link #scale(double[], double)}
+	 * 
+	 * @param xyCoords
+	 * @param xScale
+	 * @param yScale
+	 */
+	@Deprecated
+	public static void removeScale(Coordinate[] xyCoords, double xScale,
+			double yScale) {
+		applyScale(xyCoords, (1 / xScale), (1 / yScale));
+	}
+
+	/**
+	 * @deprecated use {@link #scale(double[], double)}
+	 * 
+	 * @param xyCoords
+	 * @param xScale
+	 * @param yScale
+	 */
+	@Deprecated
+	public static void applyScale(Coordinate[] xyCoords, double xScale,
+			double yScale) {
+		for (int i = xyCoords.length; --i >= 0;) {
+			xyCoords[i].xVal *= xScale;
+			xyCoords[i].yVal *= yScale;
+		}
+	}
+
+	/**
+	 * @deprecated use
+	 *             {@link #applyShiftReference(double[], int, double, double, double, double, int)}
+	 * 
+	 * @param xyCoords
+	 * @param dataPointNum
+	 * @param firstX
+	 * @param lastX
+	 * @param offset
+	 * @param observedFreq
+	 * @param shiftRefType
+	 * @throws IndexOutOfBoundsException
+	 */
+	@Deprecated
+	public static void applyShiftReference(Coordinate[] xyCoords,
+			int dataPointNum, double firstX, double lastX, double offset,
+			double observedFreq, int shiftRefType)
+			throws IndexOutOfBoundsException {
+		double[] xValues = getXValues(xyCoords);
+		applyShiftReference(xValues, dataPointNum, firstX, lastX, offset,
+				observedFreq, shiftRefType);
+		setXValues(xyCoords, xValues);
+	}
+
+	/**
+	 * @deprecated use {@link #getMin(double[], int, int)}
+	 * 
+	 * @param coords
+	 * @param start
+	 * @param end
+	 * @return the minimum x value
+	 */
+	@Deprecated
+	public static double getMinX(Coordinate[] coords, int start, int end) {
+		return getMin(getXValues(coords), start, end);
+	}
+
+	/**
+	 * @deprecated use {@link #getMax(double[], int, int)}
+	 * 
+	 * @param coords
+	 * @param start
+	 * @param end
+	 * @return the maximum x value
+	 */
+	@Deprecated
+	public static double getMaxX(Coordinate[] coords, int start, int end) {
+		return getMax(getXValues(coords), start, end);
+	}
+
+	/**
+	 * @deprecated use {@link #getMin(double[], int, int)}
+	 * 
+	 * @param coords
+	 * @param start
+	 * @param end
+	 * @return the minimum y value
+	 */
+	@Deprecated
+	public static double getMinY(Coordinate[] coords, int start, int end) {
+		return getMin(getYValues(coords), start, end);
+	}
+
+	/**
+	 * @deprecated use {@link #getMax(double[], int, int)}
+	 * 
+	 * @param coords
+	 * @param start
+	 * @param end
+	 * @return the maximum y value
+	 */
+	@Deprecated
+	public static double getMaxY(Coordinate[] coords, int start, int end) {
+		return getMax(getYValues(coords), start, end);
+	}
+
+	/**
+	 * @deprecated use {@link #getYValueAt(double[], double[], double)}
+	 * 
+	 * @param xyCoords
+	 * @param xPt
+	 * @return the interpolated y value, or NaN
+	 */
+	@Deprecated
+	public static double getYValueAt(Coordinate[] xyCoords, double xPt) {
+		return getYValueAt(getXValues(xyCoords), getYValues(xyCoords), xPt);
+	}
+
+	@Deprecated
+	private final static Comparator<Coordinate> c = new CoordComparator();
+
+	/**
+	 * @deprecated use {@link #getNearestIndexForX(double[], double)}
+	 * 
+	 * @param xyCoords
+	 * @param xPt
+	 * @return the index
+	 */
+	@Deprecated
+	public static int getNearestIndexForX(Coordinate[] xyCoords, double xPt) {
+		// a binary search, without copying the x values
+		int i = Arrays.binarySearch(xyCoords, new Coordinate().set(xPt, 0), c);
+		if (i < 0)
+			i = -1 - i;
+		if (i < 0)
+			return 0;
+		if (i > xyCoords.length - 1)
+			return xyCoords.length - 1;
+		return i;
+	}
+
+	/**
+	 * @deprecated use
+	 *             {@link #findXForPeakNearest(double[], double[], double, boolean)}
+	 * 
+	 * @param xyCoords
+	 * @param x
+	 * @param isMin
+	 * @return the interpolated x value of the peak
+	 */
+	@Deprecated
+	public static double findXForPeakNearest(Coordinate[] xyCoords, double x,
+			boolean isMin) {
+		return findXForPeakNearest(getXValues(xyCoords), getYValues(xyCoords), x,
+				isMin);
+	}
+
+	/**
+	 * @deprecated use {@link #parabolicInterpolation(double[], double[], int)}
+	 * 
+	 * @param xyCoords
+	 * @param pt
+	 * @return center
+	 */
+	@Deprecated
+	public static double parabolicInterpolation(Coordinate[] xyCoords, int pt) {
+		return parabolicInterpolation(getXValues(xyCoords), getYValues(xyCoords),
+				pt);
+	}
+
+	/**
+	 * @deprecated use {@link #shift(double[], double)}
+	 * 
+	 * @param xyCoords
+	 * @param dx
+	 */
+	@Deprecated
 	public static void shiftX(Coordinate[] xyCoords, double dx) {
-  	for (int i = xyCoords.length; --i >= 0;)
-  		xyCoords[i].xVal += dx;
+		for (int i = xyCoords.length; --i >= 0;)
+			xyCoords[i].xVal += dx;
 	}
 
 	/**
-	 * discovers nearest peak left or right of x that is above threshold y
-	 *  
+	 * @deprecated use
+	 *             {@link #getNearestXWithYAbove(double[], double[], double, double, boolean, boolean)}
+	 * 
 	 * @param xyCoords
 	 * @param x
 	 * @param y
 	 * @param inverted
 	 * @param andGreaterThanX
-	 * @return   interpolated x value or NaN
+	 * @return interpolated x value or NaN
 	 */
+	@Deprecated
 	public static double getNearestXWithYAbove(Coordinate[] xyCoords, double x,
 			double y, boolean inverted, boolean andGreaterThanX) {
-		int pt = getNearestIndexForX(xyCoords, x);
-		double f = (inverted ? -1 : 1);
-		if (andGreaterThanX)
-			while (pt < xyCoords.length && f * (xyCoords[pt].yVal - y) < 0)
-				pt++;
-		else
-			while (pt >= 0 && f * (xyCoords[pt].yVal - y) < 0)
-				pt--;
-  	if (pt == -1 || pt == xyCoords.length)
-			return Double.NaN;
-  	return findXForPeakNearest(xyCoords, xyCoords[pt].getXVal(), inverted);
+		return getNearestXWithYAbove(getXValues(xyCoords), getYValues(xyCoords),
+				x, y, inverted, andGreaterThanX);
 	}
 }
@@ -428,7 +428,7 @@ class GraphSet implements XYScaleConverter {
 		allowStacking = (spectra.get(0).isStackable());
 		showAllStacked = allowStacking && (nSpectra > 1);
 		for (int i = 0; i < nSpectra; i++) {
-			int iLast = spectra.get(i).getXYCoords().length - 1;
+			int iLast = spectra.get(i).getXValues().length - 1;
 			startIndices[i] = Coordinate.intoRange(startIndex, 0, iLast);
 			endIndices[i] = Coordinate.intoRange(endIndex, 0, iLast);
 			allowStackedYScale &= (spectra.get(i).getYUnits().equals(
@@ -786,9 +786,11 @@ class GraphSet implements XYScaleConverter {
 	 * @return  nearest x value
 	 */
 	private double getNearestPeak(Spectrum spec, double x, double y) {
-		double x0 = Coordinate.getNearestXWithYAbove(spec.getXYCoords(), x, y, spec
+		double[] xValues = spec.getXValues();
+		double[] yValues = spec.getYValues();
+		double x0 = Coordinate.getNearestXWithYAbove(xValues, yValues, x, y, spec
 				.isInverted(), false);
-		double x1 = Coordinate.getNearestXWithYAbove(spec.getXYCoords(), x, y, spec
+		double x1 = Coordinate.getNearestXWithYAbove(xValues, yValues, x, y, spec
 				.isInverted(), true);
 		return (Double.isNaN(x0) ? x1 : Double.isNaN(x1) ? x0
 				: Math.abs(x0 - x) < Math.abs(x1 - x) ? x0 : x1);
@@ -1036,11 +1038,11 @@ class GraphSet implements XYScaleConverter {
 			nextClickForSetPeak = null;
 		if (Double.isNaN(x)) {
 			pd.coordClicked = null;
-			pd.coordsClicked = null;
+			pd.spectrumClicked = null;
 			return null;
 		}
 		pd.coordClicked = new Coordinate().set(lastClickX = x, y);
-		pd.coordsClicked = getSpectrum().getXYCoords();
+		pd.spectrumClicked = getSpectrum().getCurrentSubSpectrum();
 		pd.xPixelClicked = (lastPixelX = xPixel);
 		return pd.coordClicked;
 	}
@@ -1364,7 +1366,7 @@ class GraphSet implements XYScaleConverter {
 		Spectrum spec0 = getSpectrumAt(0);
 		i = spec0.setCurrentSubSpectrum(i);
 		if (spec0.isForcedSubset())
-			viewData.setXRangeForSubSpectrum(getSpectrum().getXYCoords());
+			viewData.setXRangeForSubSpectrum(getSpectrum());
 		pd.notifySubSpectrumChange(i, getSpectrum());
 	}
 
@@ -1420,6 +1422,9 @@ class GraphSet implements XYScaleConverter {
 			if (pd.isPrinting && g2d != pd.g2d0)
 				g2d.newGrayScaleImage(gMain, image2D, imageView.imageWidth,
 						imageView.imageHeight, imageView.getBuffer());
+			else if (imageView.update2dBuffer(spec0))
+				image2D = g2d.newGrayScaleImage(gMain, image2D, imageView.imageWidth,
+						imageView.imageHeight, imageView.getBuffer());
 			if (is2DSpectrum)
 				setPositionForFrame(iSplit);
 			draw2DImage();
@@ -1895,9 +1900,11 @@ class GraphSet implements XYScaleConverter {
 	private void drawPlot(Object g, int index, Spectrum spec,
 			boolean isContinuous, int yOffset, boolean isGrey, IntegralData ig,
 			boolean isSelected, boolean hasPendingIntegral) {
-		Coordinate[] xyCoords = (ig == null ? spec.getXYCoords()
-				: getIntegrationGraph(index).getXYCoords());
 		boolean isIntegral = (ig != null);
+		double[] xValues = (isIntegral ? getIntegrationGraph(index).getXValues()
+				: spec.getXValues());
+		double[] yValues = (isIntegral ? getIntegrationGraph(index).getYValues()
+				: spec.getYValues());
 		BS bsDraw = (isIntegral ? ig.getBitSet() : null);
 		boolean fillPeaks = (hasPendingIntegral || spec.fillColor != null
 				&& isSelected);
@@ -1920,22 +1927,26 @@ class GraphSet implements XYScaleConverter {
 			// all graphics can do line to for now
 			boolean doLineTo = (isIntegral || pendingIntegral != null)
 					&& g2d.canDoLineTo();
+			if (!isIntegral && !fillPeaks && !doLineTo
+					&& iLast - iFirst > xPixels * 2) {
+				drawPlotEnvelope(g, spec.getCurrentSubSpectrum(), iFirst, iLast + 1,
+						yOffset);
+				return;
+			}
 			if (doLineTo)
 				g2d.doStroke(g, true);
 			boolean isDown = false;
 			for (int i = iFirst; i <= iLast; i++) {
-				Coordinate point1 = xyCoords[i];
-				Coordinate point2 = xyCoords[i + 1];
-				int y1 = (isIntegral ? toPixelYint(point1.getYVal()) : toPixelY(point1
-						.getYVal()));
+				double yv1 = yValues[i];
+				double yv2 = yValues[i + 1];
+				int y1 = (isIntegral ? toPixelYint(yv1) : toPixelY(yv1));
 				if (y1 == Integer.MIN_VALUE)
 					continue;
-				int y2 = (isIntegral ? toPixelYint(point2.getYVal()) : toPixelY(point2
-						.getYVal()));
+				int y2 = (isIntegral ? toPixelYint(yv2) : toPixelY(yv2));
 				if (y2 == Integer.MIN_VALUE)
 					continue;
-				double xv1 = point1.getXVal();
-				double xv2 = point2.getXVal();
+				double xv1 = xValues[i];
+				double xv2 = xValues[i + 1];
 				int x1 = toPixelX(xv1);
 				int x2 = toPixelX(xv2);
 				y1 = fixY(yOffset + y1);
@@ -1996,11 +2007,10 @@ class GraphSet implements XYScaleConverter {
 				g2d.doStroke(g, false);
 		} else {
 			for (int i = iFirst; i <= iLast; i++) {
-				Coordinate point = xyCoords[i];
-				int y2 = toPixelY(point.getYVal());
+				int y2 = toPixelY(yValues[i]);
 				if (y2 == Integer.MIN_VALUE)
 					continue;
-				int x1 = toPixelX(point.getXVal());
+				int x1 = toPixelX(xValues[i]);
 				int y1 = toPixelY(Math.max(getScale().minYOnScale, 0));
 				y1 = fixY(yOffset + y1);
 				y2 = fixY(yOffset + y2);
@@ -2016,6 +2026,99 @@ class GraphSet implements XYScaleConverter {
 		}
 	}
 
+	/**
+	 * Draws a continuous plot having many more points than pixel columns as its
+	 * min/max envelope: one vertical line spanning all the points within each
+	 * pixel column and one line joining the last point of each column to the
+	 * first point of the next. This paints the same pixels as drawing every
+	 * segment, but with at most two lines per pixel column.
+	 * 
+	 * For large spectra with ordered x values, the column boundaries are found
+	 * by binary search and each column's range from the spectrum's min/max
+	 * pyramid, so the cost is proportional to the number of pixel columns, not
+	 * points.
+	 * 
+	 * @param g
+	 * @param spec
+	 *        the (sub)spectrum owning the data
+	 * @param iFirst
+	 * @param iLast
+	 *        the last point to draw
+	 * @param yOffset
+	 */
+	private void drawPlotEnvelope(Object g, Spectrum spec, int iFirst,
+			int iLast, int yOffset) {
+		double[] xValues = spec.getXData();
+		double[] yValues = spec.getYData();
+		MinMaxPyramid pyramid = spec.getYPyramid();
+		if (pyramid != null && !pyramid.hasNaN() && spec.getXOrder() != 0) {
+			drawPlotColumns(g, xValues, yValues, pyramid, iFirst, iLast, yOffset);
+			return;
+		}
+		boolean inColumn = false;
+		int x = 0, yMin = 0, yMax = 0, yLast = 0;
+		for (int i = iFirst; i <= iLast; i++) {
+			int y = toPixelY(yValues[i]);
+			if (y == Integer.MIN_VALUE) {
+				// a gap in the plot
+				if (inColumn)
+					drawPlotSegment(g, x, yMin, x, yMax);
+				inColumn = false;
+				continue;
+			}
+			y = fixY(yOffset + y);
+			int xNew = toPixelX(xValues[i]);
+			if (inColumn) {
+				if (xNew == x) {
+					if (y < yMin)
+						yMin = y;
+					else if (y > yMax)
+						yMax = y;
+					yLast = y;
+					continue;
+				}
+				drawPlotSegment(g, x, yMin, x, yMax);
+				drawPlotSegment(g, x, yLast, xNew, y);
+			}
+			x = xNew;
+			yMin = yMax = yLast = y;
+			inColumn = true;
+		}
+		if (inColumn)
+			drawPlotSegment(g, x, yMin, x, yMax);
+	}
+
+	private void drawPlotColumns(Object g, double[] xValues, double[] yValues,
+			MinMaxPyramid pyramid, int iFirst, int iLast, int yOffset) {
+		int xPrev = 0, yPrev = 0;
+		for (int i = iFirst; i <= iLast;) {
+			int x = toPixelX(xValues[i]);
+			// last point in this pixel column
+			int j = i;
+			for (int hi = iLast; j < hi;) {
+				int mid = (j + hi + 1) >>> 1;
+				if (toPixelX(xValues[mid]) == x)
+					j = mid;
+				else
+					hi = mid - 1;
+			}
+			int y1 = fixY(yOffset + toPixelY(pyramid.getMin(i, j + 1)));
+			int y2 = fixY(yOffset + toPixelY(pyramid.getMax(i, j + 1)));
+			if (i > iFirst)
+				drawPlotSegment(g, xPrev, yPrev, x, fixY(yOffset + toPixelY(yValues[i])));
+			drawPlotSegment(g, x, Math.min(y1, y2), x, Math.max(y1, y2));
+			xPrev = x;
+			yPrev = fixY(yOffset + toPixelY(yValues[j]));
+			i = j + 1;
+		}
+	}
+
+	private void drawPlotSegment(Object g, int x1, int y1, int x2, int y2) {
+		if (y1 == y2 && (x1 == x2 || y1 == yPixel0))
+			return;
+		g2d.drawLine(g, x1, y1, x2, y2);
+	}
+
 	/**
 	 * 
 	 * @param g
@@ -2662,37 +2765,41 @@ class GraphSet implements XYScaleConverter {
 	}
 
 	private boolean isOnSpectrum(int xPixel, int yPixel, int index) {
-		Coordinate[] xyCoords = null;
+		double[] xValues, yValues;
 		boolean isContinuous = true;
 		boolean isIntegral = (index < 0);
+		Spectrum spec = null;
 
 		// ONLY getSpectrumAt(0).is1D();
 		if (isIntegral) {
 			AnnotationData ad = getDialog(AType.Integration, -1);
 			if (ad == null)
 				return false;
-			xyCoords = ((IntegralData) ad.getData()).getXYCoords();
+			IntegralData iData = (IntegralData) ad.getData();
+			xValues = iData.getXValues();
+			yValues = iData.getYValues();
 			index = getFixedSelectedSpectrumIndex();
 		} else {
 			setScale(index);
-			Spectrum spec = spectra.get(index);
-			xyCoords = spec.xyCoords;
+			spec = spectra.get(index);
+			xValues = spec.getXData();
+			yValues = spec.getYData();
 			isContinuous = spec.isContinuous();
 		}
 		int yOffset = index * (int) (yPixels * (yStackOffsetPercent / 100f));
 
 		int ix0 = viewData.getStartingPointIndex(index);
 		int ix1 = viewData.getEndingPointIndex(index);
+		if (spec != null && xPixel >= xPixel0 && xPixel <= xPixel1)
+			return getHitIndex(index, spec, ix0, ix1, yOffset).isOnSpectrum(
+					xPixel, yPixel);
 		if (isContinuous) {
 			for (int i = ix0; i < ix1; i++) {
-				Coordinate point1 = xyCoords[i];
-				Coordinate point2 = xyCoords[i + 1];
-				int x1 = toPixelX(point1.getXVal());
-				int x2 = toPixelX(point2.getXVal());
-				int y1 = (isIntegral ? toPixelYint(point1.getYVal()) : toPixelY(point1
-						.getYVal()));
-				int y2 = (isIntegral ? toPixelYint(point2.getYVal()) : toPixelY(point2
-						.getYVal()));
+				int x1 = toPixelX(xValues[i]);
+				int x2 = toPixelX(xValues[i + 1]);
+				int y1 = (isIntegral ? toPixelYint(yValues[i]) : toPixelY(yValues[i]));
+				int y2 = (isIntegral ? toPixelYint(yValues[i + 1])
+						: toPixelY(yValues[i + 1]));
 				if (y1 == Integer.MIN_VALUE || y2 == Integer.MIN_VALUE)
 					continue;
 				y1 = fixY(y1) - yOffset;
@@ -2702,11 +2809,10 @@ class GraphSet implements XYScaleConverter {
 			}
 		} else {
 			for (int i = ix0; i <= ix1; i++) {
-				Coordinate point = xyCoords[i];
-				int y2 = toPixelY(point.getYVal());
+				int y2 = toPixelY(yValues[i]);
 				if (y2 == Integer.MIN_VALUE)
 					continue;
-				int x1 = toPixelX(point.getXVal());
+				int x1 = toPixelX(xValues[i]);
 				int y1 = toPixelY(Math.max(getScale().minYOnScale, 0));
 				y1 = fixY(y1);
 				y2 = fixY(y2);
@@ -2721,6 +2827,63 @@ class GraphSet implements XYScaleConverter {
 
 	// static methods
 
+	private PixelColumnIndex[] hitIndexes;
+
+	/**
+	 * Returns the pixel-column index of a spectrum as it is currently drawn,
+	 * building it only if the data, view range, or scaling has changed since it
+	 * was last used. The pixels are found exactly as in isOnSpectrum.
+	 * 
+	 * @param index
+	 * @param spec
+	 * @param ix0
+	 * @param ix1
+	 * @param yOffset
+	 * @return the index
+	 */
+	private PixelColumnIndex getHitIndex(int index, Spectrum spec, int ix0,
+			int ix1, int yOffset) {
+		if (hitIndexes == null || hitIndexes.length != nSpectra)
+			hitIndexes = new PixelColumnIndex[nSpectra];
+		boolean isContinuous = spec.isContinuous();
+		double[] key = new double[] { spec.getDataVersion(), ix0, ix1, yOffset,
+				xPixel0, xPixel1, yPixel0, yPixel1, drawXAxisLeftToRight ? 1 : 0,
+				isContinuous ? 1 : 0 };
+		double[] scaleKey = getScale().getPixelKey();
+		PixelColumnIndex hi = hitIndexes[index];
+		if (hi != null && hi.isFor(spec, key, scaleKey))
+			return hi;
+		double[] xValues = spec.getXData();
+		double[] yValues = spec.getYData();
+		int n = Math.max(ix1 + 1 - ix0, 0);
+		int[] px = new int[n];
+		int[] py = new int[n];
+		int yBase = 0;
+		if (isContinuous) {
+			for (int i = 0; i < n; i++) {
+				px[i] = toPixelX(xValues[ix0 + i]);
+				int y = toPixelY(yValues[ix0 + i]);
+				py[i] = (y == Integer.MIN_VALUE ? y : fixY(y) - yOffset);
+			}
+		} else {
+			yBase = fixY(toPixelY(Math.max(getScale().minYOnScale, 0)));
+			for (int i = 0; i < n; i++) {
+				px[i] = toPixelX(xValues[ix0 + i]);
+				int y = toPixelY(yValues[ix0 + i]);
+				if (y != Integer.MIN_VALUE) {
+					y = fixY(y);
+					if (y == yBase && (y == yPixel0 || y == yPixel1))
+						y = Integer.MIN_VALUE;
+				}
+				py[i] = y;
+			}
+		}
+		hi = hitIndexes[index] = new PixelColumnIndex(px, py, isContinuous,
+				yBase, xPixel0, xPixel1);
+		hi.setKey(spec, key, scaleKey);
+		return hi;
+	}
+
 	private static double distance(int dx, int dy) {
 		return Math.sqrt(dx * dx + dy * dy);
 	}
@@ -2741,9 +2904,9 @@ class GraphSet implements XYScaleConverter {
 						.abs(zOrP.yPixel0 - p.yPixel0) > MIN_DRAG_PIXELS);
 	}
 
-	private final static int ONLINE_CUTOFF = 2;
+	final static int ONLINE_CUTOFF = 2;
 
-	private static boolean isOnLine(int xPixel, int yPixel, int x1, int y1,
+	static boolean isOnLine(int xPixel, int yPixel, int x1, int y1,
 			int x2, int y2) {
 		// near a point
 		int dx1 = Math.abs(x1 - xPixel);
@@ -2989,7 +3152,7 @@ class GraphSet implements XYScaleConverter {
 		Spectrum spec0 = getSpectrumAt(0);
 		int i = spec0.advanceSubSpectrum(dir);
 		if (spec0.isForcedSubset())
-			viewData.setXRangeForSubSpectrum(getSpectrum().getXYCoords());
+			viewData.setXRangeForSubSpectrum(getSpectrum());
 		pd.notifySubSpectrumChange(i, getSpectrum());
 	}
 
@@ -3631,8 +3794,8 @@ class GraphSet implements XYScaleConverter {
 		//System.out.println("p1");
 		if (pd.integralShiftMode != 0) {
 			AnnotationData ad = getDialog(AType.Integration, -1);
-			Coordinate[] xy = ((IntegralData) ad.getData()).getXYCoords();
-			double y = xy[pd.integralShiftMode > 0 ? xy.length - 1 : 0].getYVal();
+			double[] yValues = ((IntegralData) ad.getData()).getYValues();
+			double y = yValues[pd.integralShiftMode > 0 ? yValues.length - 1 : 0];
 
 			((IntegralData) ad.getData()).shiftY(pd.integralShiftMode, toPixelYint(y) + yPixel
 					- (pd.integralShiftMode > 0 ? yPixelPlot1 : yPixelPlot0), yPixel0,
@@ -4446,7 +4609,7 @@ class GraphSet implements XYScaleConverter {
 
   
   private boolean get2DImage(Spectrum spec0) {
-    imageView = new ImageView();
+    imageView = new ImageView(pd.vwr.loadThreads);
     imageView.set(viewList.get(0).getScale());
     if (!update2dImage(true))
       return false;
@@ -4466,8 +4629,8 @@ class GraphSet implements XYScaleConverter {
 			return false;
 		}
 		if (isCreation) {
-			buffer = imageView.adjustView(spec, viewData);
 			imageView.resetView();
+			buffer = imageView.adjustView(spec, viewData);
 		}
 		image2D = g2d.newGrayScaleImage(gMain, image2D, imageView.imageWidth, imageView.imageHeight, buffer);
 		setImageWindow();
@@ -4,6 +4,10 @@ package jspecview.common;
 
 import javajs.util.Lst;
 
+import jspecview.exception.JSVException;
+import jspecview.source.JDXReader;
+import jspecview.source.JDXTaskPool;
+
 
 class ImageView implements XYScaleConverter {
   
@@ -44,8 +48,41 @@ class ImageView implements XYScaleConverter {
    * 
    */
   private int[] buf2d;
-  private double grayFactorLast;
-	private double averageGray;
+  private int[] tileVersions;
+  private int nTileCols, bufferVersion;
+  private double minZLast = Double.NaN, maxZLast;
+
+  /**
+   * the buffer is rendered lazily in square tiles of this many pixels, and
+   * only tiles within the current view are rendered
+   */
+  private static final int TILE_SIZE = 64;
+
+  /**
+   * number of intensity bins used to estimate the average gray
+   */
+  private static final int HISTOGRAM_BINS = 1 << 16;
+
+  /**
+   * the histogram is binned in parallel only for images at least this large
+   */
+  private static final int PARALLEL_MIN_POINTS = 1 << 18;
+
+  private JDXTaskPool taskPool;
+
+  /**
+   * the number of threads used to render tiles and bin the histogram
+   */
+  private int nThreads;
+
+  /**
+   * @param nThreads
+   *        the number of threads to use, or 0 for the default; see
+   *        JDXReader.getParallelism()
+   */
+  ImageView(int nThreads) {
+    this.nThreads = JDXReader.getParallelism(nThreads);
+  }
 
 	int xPixel0;
 	int yPixel0, xPixel1, yPixel1;
@@ -193,34 +230,134 @@ class ImageView implements XYScaleConverter {
     Lst<Spectrum> subSpectra = spec.getSubSpectra();
     if (subSpectra == null || !subSpectra.get(0).isContinuous())
       return null;
-    Coordinate[] xyCoords = spec.getXYCoords();
+    int nPoints = spec.getXValues().length;
     int nSpec = subSpectra.size();
-    imageWidth = xyCoords.length;
+    for (int i = 0; i < nSpec; i++)
+      if (subSpectra.get(i).getYData().length != nPoints)
+        return null;
+    imageWidth = nPoints;
     imageHeight = nSpec;
-    double grayFactor = 255 / (maxZ - minZ);
-    if (!forceNew && buf2d != null && grayFactor == grayFactorLast)
-      return buf2d;
-    grayFactorLast = grayFactor;
     int pt = imageWidth * imageHeight;
-    int[] buf = (buf2d == null || buf2d.length != pt ? new int[pt] : buf2d);
-    double totalGray = 0;
-    for (int i = 0; i < nSpec; i++) {
-      Coordinate[] points = subSpectra.get(i).xyCoords;
-      if (points.length != xyCoords.length)
-        return null;
-//      double f = subSpectra.get(i).getUserYFactor();
-//      if (f !=1)
-//      	System.out.println("???? imageveiw");
-      for (int j = 0; j < xyCoords.length; j++) {
-        double y = points[j].getYVal();
-        int gray = 255 - Coordinate.intoRange((int) ((y/* * f*/ - minZ) * grayFactor), 0, 255); 
-        buf[--pt] = gray;
-        totalGray += gray;
+    if (buf2d == null || buf2d.length != pt) {
+      buf2d = new int[pt];
+      nTileCols = (imageWidth + TILE_SIZE - 1) / TILE_SIZE;
+      tileVersions = new int[nTileCols * ((imageHeight + TILE_SIZE - 1) / TILE_SIZE)];
+      forceNew = true;
+    }
+    if (forceNew || minZ != minZLast || maxZ != maxZLast) {
+      minZLast = minZ;
+      maxZLast = maxZ;
+      bufferVersion++;
+    }
+    update2dBuffer(spec);
+    return buf2d;
+  }
+
+  /**
+   * Renders the tiles of the buffer within the current view that have not yet
+   * been rendered for the current gray scale. Tiles outside the view are left
+   * until a zoom brings them into view.
+   * 
+   * @param spec
+   * @return true if any part of the buffer has changed
+   */
+  synchronized boolean update2dBuffer(Spectrum spec) {
+    Lst<Spectrum> subSpectra = spec.getSubSpectra();
+    if (buf2d == null || subSpectra == null
+        || subSpectra.size() != imageHeight)
+      return false;
+    int col1 = Coordinate.intoRange(xView1, 0, imageWidth - 1) / TILE_SIZE;
+    int col2 = Coordinate.intoRange(xView2 + 1, 0, imageWidth - 1) / TILE_SIZE;
+    int row1 = Coordinate.intoRange(yView1, 0, imageHeight - 1) / TILE_SIZE;
+    int row2 = Coordinate.intoRange(yView2 + 1, 0, imageHeight - 1) / TILE_SIZE;
+    Lst<TileRowTask> tasks = null;
+    for (int row = row1; row <= row2; row++)
+      for (int col = col1; col <= col2; col++)
+        if (tileVersions[row * nTileCols + col] != bufferVersion) {
+          if (tasks == null)
+            tasks = new Lst<TileRowTask>();
+          tasks.addLast(new TileRowTask(subSpectra, row, col1, col2));
+          break;
+        }
+    if (tasks == null)
+      return false;
+    runAll(tasks);
+    return true;
+  }
+
+  /**
+   * Renders the out-of-date tiles of one row of tiles. Each task writes only
+   * its own rows of the buffer, so any number may run at once.
+   */
+  private class TileRowTask implements Runnable {
+
+    private Lst<Spectrum> subSpectra;
+    private int row, col1, col2;
+
+    TileRowTask(Lst<Spectrum> subSpectra, int row, int col1, int col2) {
+      this.subSpectra = subSpectra;
+      this.row = row;
+      this.col1 = col1;
+      this.col2 = col2;
+    }
+
+    @Override
+    public void run() {
+      for (int col = col1; col <= col2; col++) {
+        int i = row * nTileCols + col;
+        if (tileVersions[i] == bufferVersion)
+          continue;
+        renderTile(subSpectra, row * TILE_SIZE, col * TILE_SIZE);
+        tileVersions[i] = bufferVersion;
       }
     }
-    averageGray = (1 - totalGray / (imageWidth * imageHeight) / 255);
-    System.out.println ("Average gray = " + averageGray);
-    return (buf2d = buf);
+  }
+
+  /**
+   * Runs the tasks on nThreads threads, or on this thread if that is 1, as it
+   * always is for JavaScript. The tasks must not depend upon each
+   * other and must be safe to run again, since if the pool is interrupted
+   * they are simply all run here.
+   * 
+   * @param tasks
+   */
+  private void runAll(Lst<? extends Runnable> tasks) {
+    int n = tasks.size();
+    if (n > 1 && nThreads > 1) {
+      try {
+        if (taskPool == null)
+          // not the readers' pools, so that painting never waits for a load
+          taskPool = ((JDXTaskPool) JSViewer
+              .getInterface("jspecview.source.JDXTaskPool")).set("ImageView");
+        taskPool.runAll(tasks, nThreads);
+        return;
+      } catch (JSVException e) {
+        // interrupted -- finish here
+      }
+    }
+    for (int i = 0; i < n; i++)
+      tasks.get(i).run();
+  }
+
+  /**
+   * The image is stored upside down and reversed relative to the data: image
+   * row 0 is the last subspectrum, and image column 0 its last point.
+   * 
+   * @param subSpectra
+   * @param row0
+   * @param col0
+   */
+  private void renderTile(Lst<Spectrum> subSpectra, int row0, int col0) {
+    double grayFactor = 255 / (maxZLast - minZLast);
+    int row1 = Math.min(row0 + TILE_SIZE, imageHeight);
+    int col1 = Math.min(col0 + TILE_SIZE, imageWidth);
+    for (int row = row0; row < row1; row++) {
+      double[] yValues = subSpectra.get(imageHeight - 1 - row).getYData();
+      for (int col = col0, pt = row * imageWidth + col0, j = imageWidth - 1
+          - col0; col < col1; col++)
+        buf2d[pt++] = 255 - Coordinate.intoRange(
+            (int) ((yValues[j--] - minZLast) * grayFactor), 0, 255);
+    }
   }
   
   private static final double DEFAULT_MIN_GRAY = 0.05;
@@ -231,13 +368,120 @@ class ImageView implements XYScaleConverter {
   	//double maxGray = 0.20;
   	int i = 0;
   	boolean isLow = false;
-  	
+  	double[][] histogram = getHistogram(spec.getSubSpectra());
+  	double averageGray = getAverageGray(histogram);
   	while (((isLow = (averageGray < DEFAULT_MIN_GRAY)) || averageGray > DEFAULT_MAX_GRAY) && i++ < 10) {
       view.scaleSpectrum(-2, isLow ? 2 : 0.5);
       set(view.getScale());
-      get2dBuffer(spec, false); 
+      averageGray = getAverageGray(histogram);
   	} 
-  	return buf2d;
+  	return get2dBuffer(spec, false);
+  }
+
+  /**
+   * Bins all intensities at or above minZ once, so that the average
+   * gray for any scale starting at minZ can be found without rendering the
+   * image. Intensities below minZ are always white and are only counted.
+   * 
+   * @param subSpectra
+   * @return [counts, mean intensities, {total number of points}]
+   */
+  private double[][] getHistogram(Lst<Spectrum> subSpectra) {
+    int nSpec = subSpectra.size();
+    int nTasks = (nThreads > 1
+        && imageWidth * imageHeight >= PARALLEL_MIN_POINTS ? Math.min(
+        nThreads, nSpec) : 1);
+    Lst<HistogramTask> tasks = new Lst<HistogramTask>();
+    for (int i = 0; i < nTasks; i++)
+      tasks.addLast(new HistogramTask(subSpectra, nSpec * i / nTasks, nSpec
+          * (i + 1) / nTasks));
+    runAll(tasks);
+    double zMax = minZ;
+    for (int i = 0; i < nTasks; i++)
+      zMax = Math.max(zMax, tasks.get(i).zMax);
+    double binFactor = HISTOGRAM_BINS / (zMax - minZ);
+    if (Double.isInfinite(binFactor) || Double.isNaN(binFactor))
+      binFactor = 1;
+    for (int i = 0; i < nTasks; i++)
+      tasks.get(i).binFactor = binFactor;
+    runAll(tasks);
+    double[] counts = tasks.get(0).counts;
+    double[] means = tasks.get(0).sums;
+    for (int i = 1; i < nTasks; i++) {
+      double[] c = tasks.get(i).counts;
+      double[] s = tasks.get(i).sums;
+      for (int k = 0; k < HISTOGRAM_BINS; k++) {
+        counts[k] += c[k];
+        means[k] += s[k];
+      }
+    }
+    for (int k = 0; k < HISTOGRAM_BINS; k++)
+      if (counts[k] > 0)
+        means[k] /= counts[k];
+    return new double[][] { counts, means,
+        new double[] { 1.0 * imageWidth * imageHeight } };
+  }
+
+  /**
+   * Bins the intensities of a range of subspectra, in two passes: the first
+   * (with binFactor NaN) finds their maximum, and the second fills the bins.
+   */
+  private class HistogramTask implements Runnable {
+
+    private Lst<Spectrum> subSpectra;
+    private int i0, i1;
+    double zMax;
+    double binFactor = Double.NaN;
+    double[] counts, sums;
+
+    HistogramTask(Lst<Spectrum> subSpectra, int i0, int i1) {
+      this.subSpectra = subSpectra;
+      this.i0 = i0;
+      this.i1 = i1;
+    }
+
+    @Override
+    public void run() {
+      if (Double.isNaN(binFactor)) {
+        zMax = minZ;
+        for (int i = i0; i < i1; i++) {
+          double[] yValues = subSpectra.get(i).getYData();
+          for (int j = yValues.length; --j >= 0;)
+            if (yValues[j] > zMax)
+              zMax = yValues[j];
+        }
+        return;
+      }
+      counts = new double[HISTOGRAM_BINS];
+      sums = new double[HISTOGRAM_BINS];
+      for (int i = i0; i < i1; i++) {
+        double[] yValues = subSpectra.get(i).getYData();
+        for (int j = yValues.length; --j >= 0;) {
+          double y = yValues[j];
+          if (y >= minZ) {
+            int k = Math.min((int) ((y - minZ) * binFactor), HISTOGRAM_BINS - 1);
+            counts[k]++;
+            sums[k] += y;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param histogram
+   * @return the fraction of black in the image for the current minZ and maxZ
+   */
+  private double getAverageGray(double[][] histogram) {
+    double[] counts = histogram[0];
+    double[] means = histogram[1];
+    double grayFactor = 255 / (maxZ - minZ);
+    double totalBlack = 0;
+    for (int k = 0; k < HISTOGRAM_BINS; k++)
+      if (counts[k] > 0)
+        totalBlack += counts[k]
+            * Coordinate.intoRange((int) ((means[k] - minZ) * grayFactor), 0, 255);
+    return totalBlack / histogram[2][0] / 255;
   }
 	
 	int[] getBuffer() {
@@ -73,7 +73,7 @@ public class IntegralData extends MeasurementData {
     percentMinY = integralMinY; // not used.
 		percentOffset = integralOffset;
 		percentRange = integralRange;
-    calculateIntegral();
+    integrate();
 	}
 
 	public IntegralData(Spectrum spec, Parameters p) {
@@ -84,7 +84,7 @@ public class IntegralData extends MeasurementData {
 		}
 		percentOffset = p.integralOffset;
 		percentRange = p.integralRange;
-		calculateIntegral();
+		integrate();
 	}
 
 	public void update(Parameters parameters) {
@@ -110,10 +110,10 @@ public class IntegralData extends MeasurementData {
 	  	//System.out.println(j + " " + get(j));
 		double intRangeNew = integralRange / 100 / integralTotal;
 		double offsetNew = integralOffset / 100;
-		for (int i = 0; i < xyCoords.length; i++) {
-			double y = xyCoords[i].getYVal();
+		for (int i = 0; i < yValues.length; i++) {
+			double y = yValues[i];
 			y = (y - offset) / intRange;
-      xyCoords[i].setYVal(y * intRangeNew + offsetNew);			
+      yValues[i] = y * intRangeNew + offsetNew;
 		}
 
 		if (normalizationFactor != 1)
@@ -134,10 +134,10 @@ public class IntegralData extends MeasurementData {
 
 	boolean haveRegions;
 
-	private Coordinate[] xyCoords;
+	private double[] xValues, yValues;
 	
   double getYValueAt(double x) {
-    return Coordinate.getYValueAt(xyCoords, x);
+    return Coordinate.getYValueAt(xValues, yValues, x);
   }
   
   /**
@@ -190,7 +190,7 @@ public class IntegralData extends MeasurementData {
 
 	@Override
 	public void setSpecShift(double dx) {
-		Coordinate.shiftX(xyCoords, dx);
+		Coordinate.shift(xValues, dx);
     for (int i = size(); --i >= 1;) {
       get(i).addSpecShift(dx);
     }		
@@ -238,9 +238,22 @@ public class IntegralData extends MeasurementData {
     }
 	}
 
+	/**
+	 * Recalculates the integral curve.
+	 * 
+	 * @return the integral curve, as a new array of coordinates
+	 */
 	public Coordinate[] calculateIntegral() {
-	    Coordinate[] specXyCoords = spec.getXYCoords();
-	    xyCoords = new Coordinate[specXyCoords.length];
+		integrate();
+		return getXYCoords();
+	}
+
+	private void integrate() {
+	    double[] specXValues = spec.getXValues();
+	    double[] specYValues = spec.getYValues();
+	    int n = specYValues.length;
+	    xValues = Coordinate.copy(specXValues);
+	    yValues = new double[n];
 
 	    //double maxY = Coordinate.getMaxY(xyCoords, 0, xyCoords.length);
 	    
@@ -250,16 +263,16 @@ public class IntegralData extends MeasurementData {
 	    integralTotal = 0;
 	    checkRange();
 	    double minY = 1E100;
-	    for (int i = 0; i < specXyCoords.length; i++) {
-	      double y = specXyCoords[i].getYVal();
+	    for (int i = 0; i < n; i++) {
+	      double y = specYValues[i];
 	      if (y < minY && y >= 0)
 	        minY = y;
 	    }
 
 	    double minI = 1E100;
 	    double maxI = -1E100;
-	    for (int i = 0; i < specXyCoords.length; i++) {
-	      double y = specXyCoords[i].getYVal();
+	    for (int i = 0; i < n; i++) {
+	      double y = specYValues[i];
 	      //if (y > minYForIntegral)
 	        integralTotal += (y - minY);
 	        if (integralTotal < minI)
@@ -274,14 +287,12 @@ public class IntegralData extends MeasurementData {
 	    // Calculate Integral Graph as a scale from 0 to 1
 
 	    double integral = 0;
-	    for (int i = specXyCoords.length; --i >= 0;) {
-	      double y = specXyCoords[i].getYVal();
+	    for (int i = n; --i >= 0;) {
+	      double y = specYValues[i];
 	      //if (y > minYForIntegral)
 	        integral += (y - minY);
-	      xyCoords[i] = new Coordinate().set(specXyCoords[i].getXVal(), integral
-	          * intRange + offset);
+	      yValues[i] = integral * intRange + offset;
 	    }
-	    return xyCoords;
 	}
 
 	private void checkRange() {
@@ -313,8 +324,21 @@ public class IntegralData extends MeasurementData {
 		return ratios;
 	}
 
+	/**
+	 * Legacy access; creates a new <code>Coordinate</code> array on each call.
+	 * 
+	 * @return the integral curve as coordinates
+	 */
 	public Coordinate[] getXYCoords() {
-		return xyCoords;
+		return Coordinate.getCoordinates(xValues, yValues);
+	}
+
+	public double[] getXValues() {
+		return xValues;
+	}
+
+	public double[] getYValues() {
+		return yValues;
 	}
 
   /**
@@ -327,7 +351,7 @@ public class IntegralData extends MeasurementData {
 
 	public void dispose() {
 		spec = null;
-		xyCoords = null;
+		xValues = yValues = null;
 	}
 
 	public void setSelectedIntegral(Measurement integral, double val) {
@@ -355,15 +379,15 @@ public class IntegralData extends MeasurementData {
 	}
 
 	public BS getBitSet() {
-		BS bs = BS.newN(xyCoords.length);
+		BS bs = BS.newN(xValues.length);
 		if (size() == 0) {
-  		bs.setBits(0, xyCoords.length);
+  		bs.setBits(0, xValues.length);
   		return bs;
 		}
 		for (int i = size(); --i >= 0;) {
 		  Measurement m = get(i);
-		  int x1 = Coordinate.getNearestIndexForX(xyCoords, m.getXVal());
-		  int x2 = Coordinate.getNearestIndexForX(xyCoords, m.getXVal2());
+		  int x1 = Coordinate.getNearestIndexForX(xValues, m.getXVal());
+		  int x2 = Coordinate.getNearestIndexForX(xValues, m.getXVal2());
 		  bs.setBits(Math.min(x1, x2), Math.max(x1, x2));
 		}
 		return bs;
@@ -406,18 +430,18 @@ public class IntegralData extends MeasurementData {
 	}
 
 	public void autoIntegrate() {
-		if (xyCoords == null)
-			calculateIntegral();
-		if (xyCoords.length == 0)
+		if (yValues == null)
+			integrate();
+		if (yValues.length == 0)
 			return;
 		clear();
 		int iStart = -1;
 		double cutoff = 0.0001;
 		int nCount = 0;
 		int nMin = 20;
-		double y0 = xyCoords[xyCoords.length - 1].getYVal();
-		for (int i = xyCoords.length - 1; --i >= 0;) {
-			double y = xyCoords[i].getYVal();
+		double y0 = yValues[yValues.length - 1];
+		for (int i = yValues.length - 1; --i >= 0;) {
+			double y = yValues[i];
 			nCount++;
 			if ((y - y0) < cutoff && iStart < 0) {
 				// not in peak and not increasing much
@@ -441,7 +465,7 @@ public class IntegralData extends MeasurementData {
 				if (nCount == 1)
 					y0 = y;
 				if (nCount >= nMin) {
-					addIntegralRegion(xyCoords[iStart].getXVal(), xyCoords[i].getXVal());
+					addIntegralRegion(xValues[iStart], xValues[i]);
 					iStart = -1;
 					y0 = y;
 					nCount = 0;
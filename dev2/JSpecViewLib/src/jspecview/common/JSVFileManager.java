@@ -41,8 +41,10 @@ import javajs.util.SB;
 
 import org.jmol.util.Logger;
 
+import jspecview.api.JSVMappedReader;
 import jspecview.api.JSVZipInterface;
 import jspecview.exception.JSVException;
+import jspecview.source.JDXSnapshotCache;
 
 public class JSVFileManager {
 
@@ -61,6 +63,43 @@ public class JSVFileManager {
 
 	public static String jsDocumentBase = "";
 
+	/**
+	 * where binary snapshots of local files are kept (Java only), or null
+	 */
+	private static String snapshotDirectory;
+
+	/**
+	 * Sets a directory in which to keep binary snapshots of the sources read
+	 * from local files, so that they can be reopened without being parsed
+	 * again. Ignored in JavaScript.
+	 * 
+	 * @param dir
+	 *          the directory, or null, "", or "NONE" for no snapshots
+	 */
+	public static void setSnapshotDirectory(String dir) {
+		snapshotDirectory = (dir == null || dir.length() == 0
+				|| dir.equalsIgnoreCase("NONE") ? null : dir);
+	}
+
+	public static String getSnapshotDirectory() {
+		return snapshotDirectory;
+	}
+
+	/**
+	 * @param name
+	 * @param options
+	 *          the options the file is to be read with
+	 * @return the snapshot cache entry for a local file, or null if snapshots
+	 *         are not being kept or name is not a local file
+	 */
+	static JDXSnapshotCache getSnapshotCache(String name, String options) {
+		return (snapshotDirectory == null || viewer == null || viewer.isJS
+				|| appletDocumentBase != null || name == null || isURL(name)
+				|| name.indexOf("|") >= 0 ? null : ((JDXSnapshotCache) JSViewer
+				.getInterface("jspecview.source.JDXSnapshotCache")).set(
+				snapshotDirectory, name, options));
+	}
+
 	
 	/**
 	 * @param name
@@ -183,6 +222,16 @@ public class JSVFileManager {
 		if (name.startsWith(SIMULATION_PROTOCOL))
 			return getSimulationReader(name);
 		try {
+			// a local file in the Java application
+			boolean isLocalFile = (!viewer.isJS && appletDocumentBase == null && !isURL(name));
+			if (isLocalFile) {
+				BufferedReader br = ((JSVMappedReader) JSViewer
+						.getInterface("jspecview.common.JSVMappedFileReader")).set(name);
+				if (br != null) {
+					Logger.info("JSVFileManager mapping file " + name);
+					return br;
+				}
+			}
 			Object ret = getInputStream(name, true, null);
 			if (ret instanceof SB || ret instanceof String)
 				return new BufferedReader(new StringReader(ret.toString()));			
@@ -190,10 +239,22 @@ public class JSVFileManager {
 				return new BufferedReader(new StringReader(new String((byte[]) ret)));
 			BufferedInputStream bis = new BufferedInputStream((InputStream) ret);
 			InputStream in = bis;
-			if (isZipFile(bis))
-				return ((JSVZipInterface) JSViewer
-						.getInterface("jspecview.common.JSVZipUtil"))
-						.newJSVZipFileSequentialReader(in, subFileList, startCode);
+			if (isZipFile(bis)) {
+				JSVZipInterface zip = (JSVZipInterface) JSViewer
+						.getInterface("jspecview.common.JSVZipUtil");
+				if (isLocalFile) {
+					// read by entry rather than in sequence, so that entries can be
+					// inflated in parallel
+					BufferedReader br = zip.newJSVZipFileReader(name, subFileList,
+							startCode);
+					if (br != null) {
+						bis.close();
+						Logger.info("JSVFileManager reading zip file " + name);
+						return br;
+					}
+				}
+				return zip.newJSVZipFileSequentialReader(in, subFileList, startCode);
+			}
 			if (isGzip(bis))
 				in = ((JSVZipInterface) JSViewer
 						.getInterface("jspecview.common.JSVZipUtil")).newGZIPInputStream(in);
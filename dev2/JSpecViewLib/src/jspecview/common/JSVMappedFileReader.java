@@ -0,0 +1,240 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import jspecview.api.JSVMappedReader;
+
+/**
+ * Reads a local file through a read-only memory map rather than a stream.
+ * Runs of ASCII characters, which is all that most JCAMP-DX files hold, are
+ * copied byte for byte; anything else is decoded as UTF-8, just as for a
+ * stream. Only loaded (by name) by JSVFileManager for the Java application,
+ * and only used for files large enough to be worth it.
+ *
+ * The file stays mapped (and, on Windows, locked) until this reader is closed
+ * and garbage-collected; sections of it are copied out, so a lazily read
+ * spectrum never holds on to the map.
+ */
+public class JSVMappedFileReader extends BufferedReader implements
+    JSVMappedReader {
+
+  private final static Charset UTF8 = Charset.forName("UTF-8");
+  private final static Charset ASCII = Charset.forName("US-ASCII");
+
+  /**
+   * smaller files are read as a stream
+   */
+  private final static int MIN_MAP_LENGTH = 0x100000;
+
+  private ByteBuffer bytes;
+  private int len;
+  private int pt;
+  private int ptMark;
+  private CharsetDecoder decoder;
+
+  public JSVMappedFileReader() {
+    // BufferedReader's own buffer is never used
+    super(new StringReader(""), 1);
+  }
+
+  @Override
+  public BufferedReader set(String path) {
+    RandomAccessFile raf = null;
+    try {
+      raf = new RandomAccessFile(path, "r");
+      FileChannel fc = raf.getChannel();
+      long size = fc.size();
+      if (size < MIN_MAP_LENGTH || size > Integer.MAX_VALUE
+          || isCompressed(raf))
+        return null;
+      len = (int) size;
+      bytes = fc.map(FileChannel.MapMode.READ_ONLY, 0, len);
+      return this;
+    } catch (IOException e) {
+      return null;
+    } finally {
+      // the mapping outlives the channel
+      if (raf != null)
+        try {
+          raf.close();
+        } catch (IOException e) {
+        }
+    }
+  }
+
+  /**
+   * @param raf
+   * @return true for a ZIP or GZIP file, as for JSVFileManager
+   * @throws IOException
+   */
+  private static boolean isCompressed(RandomAccessFile raf) throws IOException {
+    byte[] b = new byte[4];
+    raf.readFully(b);
+    return (b[0] == 0x50 && b[1] == 0x4B && b[2] == 0x03 && b[3] == 0x04
+        || b[0] == 0x1F && b[1] == (byte) 0x8B);
+  }
+
+  @Override
+  public int getPosition() {
+    return pt;
+  }
+
+  @Override
+  public BufferedReader getSection(int start, int end) {
+    JSVMappedFileReader r = new JSVMappedFileReader();
+    if (bytes instanceof MappedByteBuffer) {
+      // a copy, so that the file can be unmapped
+      byte[] b = new byte[end - start];
+      ((Buffer) bytes).position(start);
+      bytes.get(b);
+      r.bytes = ByteBuffer.wrap(b);
+      r.len = b.length;
+    } else {
+      r.bytes = bytes.duplicate();
+      r.pt = start;
+      r.len = end;
+    }
+    return r;
+  }
+
+  @Override
+  public void close() {
+    bytes = null;
+    len = pt = 0;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int limit) {
+    ptMark = pt;
+  }
+
+  @Override
+  public void reset() {
+    pt = ptMark;
+  }
+
+  @Override
+  public boolean ready() {
+    return pt < len;
+  }
+
+  @Override
+  public int read() throws IOException {
+    char[] c = new char[1];
+    return (read(c, 0, 1) == 1 ? c[0] : -1);
+  }
+
+  @Override
+  public int read(char[] chars, int off, int n) throws IOException {
+    if (pt >= len)
+      return -1;
+    int i = off;
+    int end = off + Math.min(n, len - pt);
+    for (byte b; i < end && (b = bytes.get(pt)) >= 0; pt++)
+      chars[i++] = (char) b;
+    if (i < end) {
+      if (decoder == null)
+        decoder = UTF8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      else
+        decoder.reset();
+      // no further than the end of this reader or section
+      ((Buffer) bytes).limit(len);
+      ((Buffer) bytes).position(pt);
+      CharBuffer out = CharBuffer.wrap(chars, i, off + n - i);
+      decoder.decode(bytes, out, true);
+      pt = bytes.position();
+      i = out.position();
+    }
+    return i - off;
+  }
+
+  @Override
+  public String readLine() {
+    if (pt >= len)
+      return null;
+    boolean isAscii = true;
+    int i = pt;
+    for (byte b; i < len && (b = bytes.get(i)) != '\n' && b != '\r'; i++)
+      if (b < 0)
+        isAscii = false;
+    byte[] b = new byte[i - pt];
+    ((Buffer) bytes).position(pt);
+    bytes.get(b);
+    nextLine(i);
+    return new String(b, isAscii ? ASCII : UTF8);
+  }
+
+  @Override
+  public int readLineChars(char[] buf) throws IOException {
+    if (pt >= len)
+      return -1;
+    int n = buf.length;
+    boolean isAscii = true;
+    int i = pt;
+    for (byte b; i < len && (b = bytes.get(i)) != '\n' && b != '\r'; i++) {
+      if (b < 0)
+        isAscii = false;
+      else if (i - pt < n)
+        buf[i - pt] = (char) b;
+    }
+    // a line of n bytes has no more than n characters
+    if ((n = i - pt) > buf.length)
+      return -2 - n;
+    if (!isAscii) {
+      String s = readLine();
+      s.getChars(0, n = s.length(), buf, 0);
+      return n;
+    }
+    nextLine(i);
+    return n;
+  }
+
+  /**
+   * Moves past a line ending with \n, \r, or \r\n.
+   *
+   * @param i
+   *        the end of the line
+   */
+  private void nextLine(int i) {
+    pt = (i < len && bytes.get(i) == '\r' && i + 1 < len
+        && bytes.get(i + 1) == '\n' ? i + 2 : i + 1);
+  }
+
+}
@@ -0,0 +1,138 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javajs.util.Lst;
+
+import jspecview.source.JDXTaskPool;
+
+/**
+ * Reads the selected entries of a local ZIP file as though they were one
+ * straight file, in the order they are in the file, just as
+ * JSVZipFileSequentialReader does for a stream. Since the file can be read at
+ * random, given more than one thread the next few entries are decompressed on
+ * other threads while the current one is being parsed. Only
+ * loaded (by name) by JSVZipUtil for the Java application.
+ */
+public class JSVZipFileReader extends JSVZipFileSequentialReader {
+
+  private ZipFile zipFile;
+  private Lst<ZipEntry> entries;
+  private int nextEntry;
+  private int nThreads;
+  private JDXTaskPool taskPool;
+  private Lst<Future<byte[]>> pending;
+
+  public JSVZipFileReader() {
+    // for reflection
+  }
+
+  /**
+   * @param path
+   *        a local file
+   * @param subFileList
+   *        the file and the entries to read, or null for all entries
+   * @param startCode
+   * @return this reader, or null if the file is not a ZIP file
+   */
+  public JSVZipFileReader set(String path, String[] subFileList,
+                              String startCode) {
+    try {
+      zipFile = new ZipFile(path);
+    } catch (IOException e) {
+      return null;
+    }
+    setEntries(subFileList, startCode);
+    entries = new Lst<ZipEntry>();
+    for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e
+        .hasMoreElements();) {
+      ZipEntry ze = e.nextElement();
+      if (!ze.isDirectory() && isEntryOK(ze.getName()))
+        entries.addLast(ze);
+    }
+    return this;
+  }
+
+  @Override
+  public void setParallelism(int n) {
+    nThreads = n;
+    if (nThreads > 1 && entries.size() > 1) {
+      taskPool = (JDXTaskPool) JSViewer
+          .getInterface("jspecview.source.JDXTaskPool");
+      pending = new Lst<Future<byte[]>>();
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (pending != null)
+      for (int i = pending.size(); --i >= 0;)
+        pending.removeItemAt(i).cancel(false);
+    try {
+      zipFile.close();
+    } catch (IOException e) {
+    }
+  }
+
+  @Override
+  protected byte[] getNextEntryBytes() throws Exception {
+    if (pending == null)
+      return (nextEntry < entries.size() ? getEntryBytes(entries
+          .get(nextEntry++)) : null);
+    // keep a few entries decompressing ahead of the one to be parsed
+    while (nextEntry < entries.size() && pending.size() < nThreads * 2) {
+      final ZipEntry ze = entries.get(nextEntry++);
+      pending.addLast(taskPool.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws IOException {
+          return getEntryBytes(ze);
+        }
+      }, nThreads));
+    }
+    if (pending.size() == 0)
+      return null;
+    try {
+      return pending.removeItemAt(0).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw (cause instanceof Exception ? (Exception) cause : e);
+    }
+  }
+
+  byte[] getEntryBytes(ZipEntry ze) throws IOException {
+    InputStream in = zipFile.getInputStream(ze);
+    try {
+      return getBytes(in, ze.getSize());
+    } finally {
+      in.close();
+    }
+  }
+
+}
@@ -21,21 +21,24 @@
 package jspecview.common;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import javajs.util.SB;
+import javajs.util.AU;
 import jspecview.api.JSVZipReader;
 
 import org.jmol.util.Logger;
 
 /**
- * Reads the entire contents of a ZIP file as though it were one straight file
- * Skips and entry that contains '\0' 
- * Allows for a moderate amount of buffered reading via mark() 
+ * Reads the entire contents of a ZIP file as though it were one straight file.
+ * Each entry is read in full and then read line by line through its own
+ * buffered reader. Skips any entry that contains '\0' or whose first line
+ * does not contain startCode. mark() and reset() work within an entry.
  * 
  * @author Bob Hanson hansonr@stolaf.edu
  *
@@ -43,84 +46,117 @@ import org.jmol.util.Logger;
 public class JSVZipFileSequentialReader extends BufferedReader implements JSVZipReader {
 
   private String[] subFileList;
-  private ZipInputStream zis;
-  private ZipEntry ze;
-  private int ptMark;  
-  private String data;
   private String startCode;
-  private int lineCount;
+  private ZipInputStream zis;
+  private BufferedReader entry;
+  private boolean isDone;
   
   public JSVZipFileSequentialReader()  {
-    super(new StringReader(""));
+    // BufferedReader's own buffer is never used
+    super(new StringReader(""), 1);
   }
   
   @Override
 	public JSVZipFileSequentialReader set(InputStream bis, String[] subFileList, String startCode) {
-    this.subFileList = subFileList;
+    setEntries(subFileList, startCode);
     zis = new ZipInputStream(bis);
-    this.startCode = startCode;
-    nextEntry();
     return this;
   }
 
+  @Override
+  public void setParallelism(int n) {
+    // a stream can only be read in order
+  }
+
+  protected void setEntries(String[] subFileList, String startCode) {
+    this.subFileList = subFileList;
+    this.startCode = startCode;
+  }
+
   @Override
   public void close() {
+    entry = null;
+    isDone = true;
     try {
-      close();
-      zis.close();
+      if (zis != null)
+        zis.close();
     } catch (IOException e) {
     }
   }
+
   @Override
-  public void mark(int limit) {
-    ptMark = pt;
-    if (len == 0) {
-      readLine();
-      pt = ptMark;
-    }
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int limit) throws IOException {
+    if (getEntry() != null)
+      entry.mark(limit);
   }
   
   @Override
-  public void reset() {
-    pt = ptMark;
+  public void reset() throws IOException {
+    if (entry != null)
+      entry.reset();
   }
   
   @Override
-  public int read(char[] chars, int chPt, int chLen) {
-    int l = Math.min(len - pt, chLen);
-    data.getChars(0, l, chars, chPt);
-    return l;
+  public int read(char[] chars, int chPt, int chLen) throws IOException {
+    return (getEntry() == null ? -1 : entry.read(chars, chPt, chLen));
   }
   
   @Override
-  public String readLine() {
-    while (ze != null) {
+  public String readLine() throws IOException {
+    while (getEntry() != null) {
+      String line = entry.readLine();
+      if (line != null)
+        return line;
+      entry = null;
+    }
+    return null;    
+  }
+
+  /**
+   * @return the reader for the current entry, moving on to the next suitable
+   *         entry if necessary, or null if there are no more
+   */
+  private BufferedReader getEntry() {
+    while (entry == null && !isDone) {
+      byte[] bytes;
+      try {
+        bytes = getNextEntryBytes();
+      } catch (Exception e) {
+        Logger.error("Error reading zip entry: " + e);
+        bytes = null;
+      }
+      if (bytes == null)
+        isDone = true;
+      else if (isTextEntry(bytes))
         try {
-          String line = getEntryLine();
-          if (line != null)
-            return line;
+          entry = new BufferedReader(new InputStreamReader(
+              new ByteArrayInputStream(bytes), "UTF-8"));
         } catch (IOException e) {
-          break;
+          // not possible
         }
-        nextEntry();
     }
-    return null;    
+    return entry;
   }
-  
-  private void nextEntry() {
-    len = pt = 0;
-    cr = '\0';
-    lineCount = 0;
-    try {
-      while ((ze = zis.getNextEntry()) != null)
-        if (isEntryOK(ze.getName()))
-          return;
-    } catch (Exception e) {
-      ze = null;
-    }
+
+  /**
+   * @return the contents of the next entry to be read, or null if there are
+   *         no more
+   * @throws Exception
+   */
+  protected byte[] getNextEntryBytes() throws Exception {
+    ZipEntry ze;
+    while ((ze = zis.getNextEntry()) != null)
+      if (!ze.isDirectory() && isEntryOK(ze.getName()))
+        return getBytes(zis, ze.getSize());
+    return null;
   }
 
-  private boolean isEntryOK(String name) {
+  protected boolean isEntryOK(String name) {
     if (subFileList == null || subFileList.length == 1)
       return true;
     for (int i = subFileList.length; --i >= 0; )
@@ -132,46 +168,56 @@ public class JSVZipFileSequentialReader extends BufferedReader implements JSVZip
     return false;
   }
 
-  private byte[] buf = new byte[1024];
-  private int len;
-  private int pt;
-  private char cr = '\0';
-
-  private String getEntryLine() throws IOException {
-    SB line = null;
-    while (len >= 0 && (pt < len || zis.available() == 1)) {
-      int pt0 = pt;
-      char ch = ' ';
-      while (pt < len && ch != cr) {
-        switch (ch = data.charAt(pt++)) {
-        case '\n':
-          if (cr == '\r') {
-            pt0 = pt;
-            continue;
-          }
-          cr = '\n';
-          break;
-        case '\r':
-          if (cr == '\n')
-            continue;
-          cr = '\r';
-          break;
-        }
+  /**
+   * @param bytes
+   * @return false for a binary entry or one whose first line does not contain
+   *         startCode
+   */
+  private boolean isTextEntry(byte[] bytes) {
+    int n = bytes.length;
+    int eol = -1;
+    for (int i = 0; i < n; i++)
+      switch (bytes[i]) {
+      case 0:
+        return false; // binary file -- forget it!
+      case '\n':
+      case '\r':
+        if (eol < 0)
+          eol = i;
+        break;
       }
-      if (line == null)
-        line = new SB();
-      if (pt != pt0)
-        line.append(data.substring(pt0, pt + (ch == cr ? -1 : 0)));
-      if (ch == cr || zis.available() != 1 || (len = zis.read(buf, 0, 1024)) < 0) {
-        if (lineCount++ == 0 && startCode != null && line.indexOf(startCode) < 0)
-          return null;
-       return line.toString();
+    return (startCode == null || new String(bytes, 0, eol < 0 ? n : eol)
+        .indexOf(startCode) >= 0);
+  }
+
+  /**
+   * Reads an entry in bulk.
+   * 
+   * @param in
+   * @param size
+   *        the entry's size, if known, or -1
+   * @return all of the bytes of the entry
+   * @throws IOException
+   */
+  protected static byte[] getBytes(InputStream in, long size)
+      throws IOException {
+    byte[] bytes = new byte[size >= 0 && size < Integer.MAX_VALUE ? (int) size
+        : 8192];
+    int n = 0;
+    while (true) {
+      if (n == bytes.length) {
+        int b = in.read();
+        if (b < 0)
+          break;
+        bytes = AU.arrayCopyByte(bytes, Math.max(n * 2, 8192));
+        bytes[n++] = (byte) b;
       }
-      pt = 0;
-      data = new String(buf, 0, len);
-      if (data.indexOf('\0') >= 0)
-        return  null; // binary file -- forget it!
+      int len = in.read(bytes, n, bytes.length - n);
+      if (len < 0)
+        break;
+      n += len;
     }
-    return (line == null ? null : line.toString());
+    return (n == bytes.length ? bytes : AU.arrayCopyByte(bytes, n));
   }
+
 }
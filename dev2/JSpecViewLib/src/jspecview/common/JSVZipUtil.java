@@ -51,4 +51,12 @@ public class JSVZipUtil implements JSVZipInterface {
 		return new JSVZipFileSequentialReader().set(in, subFileList, startCode);
 	}
 
+	@Override
+	public BufferedReader newJSVZipFileReader(String path, String[] subFileList,
+			String startCode) {
+		return ((JSVZipFileReader) JSViewer
+				.getInterface("jspecview.common.JSVZipFileReader")).set(path,
+				subFileList, startCode);
+	}
+
 }
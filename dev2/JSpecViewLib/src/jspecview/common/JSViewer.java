@@ -49,7 +49,9 @@ import jspecview.common.PanelData.LinkMode;
 import jspecview.dialog.JSVDialog;
 import jspecview.dialog.DialogManager;
 import jspecview.exception.JSVException;
+import jspecview.source.JDXLoadMonitor;
 import jspecview.source.JDXReader;
+import jspecview.source.JDXSnapshotCache;
 import jspecview.source.JDXSource;
 import jspecview.tree.SimpleTree;
 
@@ -70,6 +72,7 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 	// private final static int FILE_OPEN_URLERROR = -2;
 	public final static int FILE_OPEN_ERROR = -3;
 	public final static int FILE_OPEN_NO_DATA = -4;
+	public final static int FILE_OPEN_CANCELLED = -5;
 	public static final int OVERLAY_DIALOG = -1;
 	public static final int OVERLAY_OFFSET = 99;
 	public static final int PORTRAIT = 1; // Printable
@@ -100,6 +103,9 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 	private IRMode irMode = IRMode.NO_CONVERT;
 
 	public boolean loadImaginary;
+	public int loadThreads; // 0 for the default; see JDXReader.getParallelism()
+	public boolean loadLazy;
+	public int loadLazyLimit;
 	public boolean interfaceOverlaid;
 	public boolean autoIntegrate;
 	public boolean autoShowLegend;
@@ -314,6 +320,17 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 				case LOADIMAGINARY:
 					loadImaginary = Parameters.isTrue(value);
 					break;
+				case LOADLAZY:
+					loadLazy = (PT.parseInt(value) > 0 || Parameters.isTrue(value));
+					loadLazyLimit = Math.max(PT.parseInt(value), 0);
+					break;
+				case LOADSNAPSHOTS:
+					JSVFileManager.setSnapshotDirectory(value);
+					break;
+				case LOADTHREADS:
+					if (!isJS)
+						loadThreads = Math.max(PT.parseInt(value), 0);
+					break;
 				case PEAK:
 					execPeak(value);
 					break;
@@ -1204,6 +1221,41 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 		return (vi == null ? -1 : vi.getColour(spectrum, asFitted));
 	}
 
+	/**
+	 * Reads a file or inline data on the calling thread. Called back from
+	 * ScriptInterface.siCreateSource, which may instead do this on another
+	 * thread, given a monitor.
+	 * 
+	 * @param data
+	 *        inline data, or null to read filePath
+	 * @param filePath
+	 * @param firstSpec
+	 * @param lastSpec
+	 * @param monitor
+	 *        or null
+	 * @return the new source, or null if the monitor cancelled reading
+	 * @throws Exception
+	 */
+	public JDXSource createSource(Object data, String filePath, int firstSpec,
+			int lastSpec, JDXLoadMonitor monitor) throws Exception {
+		boolean obscure = (obscureTitleFromUser == Boolean.TRUE);
+		JDXSnapshotCache snapshot = (data == null && !isJS ? JSVFileManager
+				.getSnapshotCache(filePath, obscure + " " + loadImaginary + " "
+						+ firstSpec + " " + lastSpec + " " + nmrMaxY) : null);
+		JDXSource source = (snapshot == null ? null : snapshot.getSource());
+		if (source != null)
+			return source;
+		source = JDXReader.createJDXSource(
+				JSVFileManager.getBufferedReaderForData(data), filePath, obscure,
+				loadImaginary, firstSpec, lastSpec, nmrMaxY, monitor, loadThreads,
+				loadLazy, loadLazyLimit);
+		// never a snapshot of part of a file
+		if (snapshot != null && source != null
+				&& (monitor == null || !monitor.isCancelled()))
+			snapshot.putSource(source);
+		return source;
+	}
+
 	public int openDataOrFile(Object data, String name, Lst<Spectrum> specs,
 			String strUrl, int firstSpec, int lastSpec, boolean isAppend, String id) {
 		if ("NONE".equals(name)) {
@@ -1269,10 +1321,14 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 			close("all"); // with CHECK we may still need to do this
 		si.setCursor(GenericPlatform.CURSOR_WAIT);
 		try {
-			si.siSetCurrentSource(isView ? JDXSource.createView(specs) : JDXReader
-					.createJDXSource(JSVFileManager.getBufferedReaderForData(data),
-							filePath, obscureTitleFromUser == Boolean.TRUE, loadImaginary,
-							firstSpec, lastSpec, nmrMaxY));
+			JDXSource source = (isView ? JDXSource.createView(specs) : si
+					.siCreateSource(data, filePath, firstSpec, lastSpec));
+			if (source == null) {
+				si.setCursor(GenericPlatform.CURSOR_DEFAULT);
+				si.writeStatus("Loading of " + filePath + " was cancelled");
+				return FILE_OPEN_CANCELLED;
+			}
+			si.siSetCurrentSource(source);
 		} catch (Exception e) {
 			/**
 			 * @j2sNative alert(e.toString())
@@ -1290,7 +1346,6 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 			return FILE_OPEN_ERROR;
 		}
 		si.setCursor(GenericPlatform.CURSOR_DEFAULT);
-		System.gc();
 		if (newPath == null) {
 			newPath = currentSource.getFilePath();
 			if (newPath != null)
@@ -1897,7 +1952,7 @@ public class JSViewer implements PlatformViewer, BytePoster  {
 		try {
 			return ((ExportInterface) JSViewer
 					.getInterface("jspecview.export.Exporter")).exportTheSpectrum(this,
-					ExportType.getType(type), null, spec, 0, spec.getXYCoords().length - 1, null, type.equalsIgnoreCase("PDF"));
+					ExportType.getType(type), null, spec, 0, spec.getXValues().length - 1, null, type.equalsIgnoreCase("PDF"));
 		} catch (Exception e) {
 			Logger.error(e.toString());
 			return null;
@@ -0,0 +1,129 @@
+package jspecview.common;
+
+/**
+ * A level-of-detail pyramid of minimum and maximum values for a large x or y
+ * array. Level 0 is the array itself; each higher level holds the minimum and
+ * maximum of pairs from the level below, so level k summarizes blocks of 2^k
+ * points. This allows the minimum or maximum over any index range to be found
+ * in O(log n) time, for example for each pixel column when drawing or when
+ * autoscaling after a zoom.
+ *
+ * NaN values are ignored, just as in Coordinate.getMin and Coordinate.getMax.
+ *
+ * The pyramid is not updated if the array changes; JDXDataObject discards
+ * its pyramid whenever its data change.
+ *
+ */
+public class MinMaxPyramid {
+
+  /**
+   * spectra with fewer points than this are simply scanned
+   */
+  public final static int MIN_POINTS = 4096;
+
+  private double[][] mins, maxs;
+  private boolean hasNaN;
+
+  /**
+   * @param values
+   *        not copied
+   */
+  public MinMaxPyramid(double[] values) {
+    int n = values.length;
+    int nLevels = 1;
+    for (int len = n; len > 1; len = (len + 1) >> 1)
+      nLevels++;
+    mins = new double[nLevels][];
+    maxs = new double[nLevels][];
+    mins[0] = maxs[0] = values;
+    for (int i = n; --i >= 0;)
+      if (Double.isNaN(values[i])) {
+        hasNaN = true;
+        break;
+      }
+    for (int k = 1; k < nLevels; k++) {
+      double[] min0 = mins[k - 1];
+      double[] max0 = maxs[k - 1];
+      int len0 = min0.length;
+      int len = (len0 + 1) >> 1;
+      double[] min = mins[k] = new double[len];
+      double[] max = maxs[k] = new double[len];
+      for (int i = 0, j = 0; i < len; i++, j += 2) {
+        if (j + 1 == len0) {
+          min[i] = min0[j];
+          max[i] = max0[j];
+          continue;
+        }
+        double a = min0[j];
+        double b = min0[j + 1];
+        min[i] = (b < a || Double.isNaN(a) ? b : a);
+        a = max0[j];
+        b = max0[j + 1];
+        max[i] = (b > a || Double.isNaN(a) ? b : a);
+      }
+    }
+  }
+
+  /**
+   * @return true if any value is NaN
+   */
+  public boolean hasNaN() {
+    return hasNaN;
+  }
+
+  /**
+   * @return the number of values
+   */
+  public int size() {
+    return mins[0].length;
+  }
+
+  /**
+   * Returns the minimum value in a range, exactly as Coordinate.getMin does.
+   *
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index (exclusive)
+   * @return the minimum value, or Double.MAX_VALUE if there is none
+   */
+  public double getMin(int start, int end) {
+    double min = Double.MAX_VALUE;
+    for (int k = 0; start < end; k++) {
+      double[] a = mins[k];
+      double v;
+      if ((start & 1) != 0 && (v = a[start++]) < min)
+        min = v;
+      if ((end & 1) != 0 && (v = a[--end]) < min)
+        min = v;
+      start >>= 1;
+      end >>= 1;
+    }
+    return min;
+  }
+
+  /**
+   * Returns the maximum value in a range, exactly as Coordinate.getMax does.
+   *
+   * @param start
+   *        the starting index
+   * @param end
+   *        the ending index (exclusive)
+   * @return the maximum value, or -Double.MAX_VALUE if there is none
+   */
+  public double getMax(int start, int end) {
+    double max = -Double.MAX_VALUE;
+    for (int k = 0; start < end; k++) {
+      double[] a = maxs[k];
+      double v;
+      if ((start & 1) != 0 && (v = a[start++]) > max)
+        max = v;
+      if ((end & 1) != 0 && (v = a[--end]) > max)
+        max = v;
+      start >>= 1;
+      end >>= 1;
+    }
+    return max;
+  }
+
+}
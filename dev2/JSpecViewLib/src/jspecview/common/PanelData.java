@@ -109,7 +109,7 @@ public class PanelData implements EventManager {
 	public int currentSplitPoint;
 	public PlotWidget thisWidget;
 	public Coordinate coordClicked;
-	public Coordinate[] coordsClicked;
+	public Spectrum spectrumClicked;
 
 	public void dispose() {
 		jsvp = null;
@@ -119,7 +119,7 @@ public class PanelData implements EventManager {
 		currentFont = null;
 		currentGraphSet = null;
 		coordClicked = null;
-		coordsClicked = null;
+		spectrumClicked = null;
 		thisWidget = null;
 		options = null;
 		listeners = null;
@@ -453,9 +453,19 @@ public class PanelData implements EventManager {
 		titleDrawn = false;
 		thisWidth = width;
 		thisHeight = height;
-		for (int i = graphSets.size(); --i >= 0;)
-			graphSets.get(i).drawGraphSet(gMain, gFront, gRear, width, height, left,
-					right, top, bottom, isResized, taintedAll);
+		// no values read lazily are released while in use for this painting,
+		// even for a 2D view with more rows than the source's limit
+		Lst<Spectrum> held = spectra;
+		for (int i = held.size(); --i >= 0;)
+			held.get(i).holdLazyData(true);
+		try {
+			for (int i = graphSets.size(); --i >= 0;)
+				graphSets.get(i).drawGraphSet(gMain, gFront, gRear, width, height, left,
+						right, top, bottom, isResized, taintedAll);
+		} finally {
+			for (int i = held.size(); --i >= 0;)
+				held.get(i).holdLazyData(false);
+		}
 		if (titleOn && !titleDrawn && taintedAll)
 			drawTitle(gMain, height * scalingFactor, width * scalingFactor,
 					getDrawTitle(isPrinting));
@@ -821,8 +831,9 @@ public class PanelData implements EventManager {
 	 * @return true if a coordinate was picked and fills in coord and actualCoord
 	 */
 	public boolean getPickedCoordinates(Coordinate coord, Coordinate actualCoord) {
-		return Coordinate.getPickedCoordinates(coordsClicked, coordClicked, coord,
-				actualCoord);
+		return (spectrumClicked != null && Coordinate.getPickedCoordinates(
+				spectrumClicked.getXData(), spectrumClicked.getYData(), coordClicked, coord,
+				actualCoord));
 	}
 
 	/**
@@ -87,8 +87,9 @@ public class PeakData extends MeasurementData {
 
 	public void setPeakList(Parameters p, int precision, ScaleData view) {
 		this.precision = (precision == Integer.MIN_VALUE ? spec.getDefaultUnitPrecision() : precision);
-		Coordinate[] xyCoords = spec.getXYCoords();
-		if (xyCoords.length < 3)
+		double[] xValues = spec.getXValues();
+		double[] yValues = spec.getYValues();
+		if (xValues.length < 3)
 			return;
 		clear();
 		if (p != null) {
@@ -105,15 +106,15 @@ public class PeakData extends MeasurementData {
 		if (Double.isNaN(thresh))
 			thresh = myParams.peakListThreshold = (minY + maxY) / 2;
 		double yLast = 0;
-		double[] y3 = new double[] { xyCoords[0].getYVal(),
-				yLast = xyCoords[1].getYVal(), 0 };
+		double[] y3 = new double[] { yValues[0],
+				yLast = yValues[1], 0 };
 		int n = 0;
 		if (isInverted)
-			for (int i = 2; i < xyCoords.length; i++) {
-				double y = y3[i % 3] = xyCoords[i].getYVal();
+			for (int i = 2; i < yValues.length; i++) {
+				double y = y3[i % 3] = yValues[i];
 				if (yLast < thresh && y3[(i - 2) % 3] > yLast && yLast < y) {
 					double x = (doInterpolate ? Coordinate.parabolicInterpolation(
-							xyCoords, i - 1) : xyCoords[i - 1].getXVal());
+							xValues, yValues, i - 1) : xValues[i - 1]);
 					if (x >= minX || x <= maxX) {
 						PeakPick m = new PeakPick().setValue(x, y, spec, null, 0);
 						addLast(m);
@@ -124,11 +125,11 @@ public class PeakData extends MeasurementData {
 				yLast = y;
 			}
 		else
-			for (int i = 2; i < xyCoords.length; i++) {
-				double y = y3[i % 3] = xyCoords[i].getYVal();
+			for (int i = 2; i < yValues.length; i++) {
+				double y = y3[i % 3] = yValues[i];
 				if (yLast > thresh && y3[(i - 2) % 3] < yLast && yLast > y) {
 					double x = (doInterpolate ? Coordinate.parabolicInterpolation(
-							xyCoords, i - 1) : xyCoords[i - 1].getXVal());
+							xValues, yValues, i - 1) : xValues[i - 1]);
 					if (x >= minX && x <= maxX) {
 						PeakPick m = new PeakPick().setValue(x, y, spec, DF.formatDecimalDbl(x, precision), x);
 						addLast(m);
@@ -0,0 +1,164 @@
+package jspecview.common;
+
+/**
+ * An index, by pixel column, of the line segments of one spectrum as drawn, so
+ * that finding whether the mouse is on a spectrum only needs to check the few
+ * segments near the mouse rather than every point in view.
+ *
+ * A segment is listed under every column for which GraphSet.isOnLine could
+ * possibly be true for it, so the result is exactly that of checking every
+ * segment. Only columns from x0 through x1 (the plot area) are indexed.
+ *
+ * The index is kept by GraphSet along with the spectrum and the pixel scaling
+ * it was built for, and is rebuilt only when one of those changes.
+ *
+ */
+class PixelColumnIndex {
+
+  private Object owner;
+  private double[] key, scaleKey;
+
+  private int[] px, py;
+  private boolean isContinuous;
+  private int yBase;
+  private int x0, x1;
+
+  /**
+   * for column c, segs[colStart[c]] through segs[colStart[c + 1] - 1]
+   */
+  private int[] colStart, segs;
+
+  /**
+   * @param px
+   *        pixel x of each point
+   * @param py
+   *        pixel y of each point, or Integer.MIN_VALUE to skip it
+   * @param isContinuous
+   *        if true, segments join successive points; if false, each point is a
+   *        vertical bar from yBase
+   * @param yBase
+   * @param x0
+   *        first column to index
+   * @param x1
+   *        last column to index
+   */
+  PixelColumnIndex(int[] px, int[] py, boolean isContinuous, int yBase,
+      int x0, int x1) {
+    this.px = px;
+    this.py = py;
+    this.isContinuous = isContinuous;
+    this.yBase = yBase;
+    this.x0 = x0;
+    this.x1 = x1;
+    int nCols = x1 - x0 + 1;
+    int nSegs = (isContinuous ? px.length - 1 : px.length);
+    int[] lo = new int[Math.max(nSegs, 0)];
+    int[] hi = new int[lo.length];
+    colStart = new int[nCols + 1];
+    for (int k = 0; k < nSegs; k++) {
+      if (!setRange(k, lo, hi))
+        continue;
+      for (int c = lo[k]; c <= hi[k]; c++)
+        colStart[c + 1]++;
+    }
+    for (int c = 0; c < nCols; c++)
+      colStart[c + 1] += colStart[c];
+    segs = new int[colStart[nCols]];
+    int[] pt = new int[nCols];
+    for (int k = 0; k < nSegs; k++)
+      if (lo[k] <= hi[k])
+        for (int c = lo[k]; c <= hi[k]; c++)
+          segs[colStart[c] + pt[c]++] = k;
+  }
+
+  /**
+   * Sets the range of columns (relative to x0) that segment k must be listed
+   * under: its own extent widened by the endpoint cutoff, and for a nearly
+   * vertical segment also the width of the ellipse that isOnLine tests.
+   *
+   * @param k
+   * @param lo
+   * @param hi
+   * @return false if the segment is not drawn or is not in the plot area
+   */
+  private boolean setRange(int k, int[] lo, int[] hi) {
+    lo[k] = 0;
+    hi[k] = -1;
+    int xa = px[k];
+    int ya = py[k];
+    int xb, yb;
+    if (isContinuous) {
+      xb = px[k + 1];
+      yb = py[k + 1];
+      if (yb == Integer.MIN_VALUE)
+        return false;
+    } else {
+      xb = xa;
+      yb = yBase;
+    }
+    if (ya == Integer.MIN_VALUE)
+      return false;
+    int cutoff = GraphSet.ONLINE_CUTOFF;
+    int dx = Math.abs(xa - xb);
+    double dy = ya - yb;
+    double xMin = Math.min(xa, xb) - cutoff;
+    double xMax = Math.max(xa, xb) + cutoff;
+    if (dx <= cutoff) {
+      double d = Math.sqrt(dx * dx + dy * dy) + cutoff;
+      double w = Math.sqrt(d * d - dy * dy) / 2 + 1;
+      double xc = (xa + xb) / 2.0;
+      xMin = Math.min(xMin, xc - w);
+      xMax = Math.max(xMax, xc + w);
+    }
+    if (xMax < x0 || xMin > x1)
+      return false;
+    lo[k] = (int) Math.floor(Math.max(xMin, x0)) - x0;
+    hi[k] = (int) Math.ceil(Math.min(xMax, x1)) - x0;
+    return true;
+  }
+
+  /**
+   * @param xPixel
+   *        from x0 through x1
+   * @param yPixel
+   * @return true if the pixel is on the spectrum
+   */
+  boolean isOnSpectrum(int xPixel, int yPixel) {
+    int c = xPixel - x0;
+    for (int i = colStart[c], n = colStart[c + 1]; i < n; i++) {
+      int k = segs[i];
+      if (isContinuous ? GraphSet.isOnLine(xPixel, yPixel, px[k], py[k],
+          px[k + 1], py[k + 1]) : GraphSet.isOnLine(xPixel, yPixel, px[k],
+          yBase, px[k], py[k]))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param owner
+   * @param key
+   * @param scaleKey
+   * @return true if this index was built for these values
+   */
+  boolean isFor(Object owner, double[] key, double[] scaleKey) {
+    return (owner == this.owner && equals(key, this.key) && equals(scaleKey,
+        this.scaleKey));
+  }
+
+  void setKey(Object owner, double[] key, double[] scaleKey) {
+    this.owner = owner;
+    this.key = key;
+    this.scaleKey = scaleKey;
+  }
+
+  private static boolean equals(double[] a, double[] b) {
+    if (a == null || b == null || a.length != b.length)
+      return false;
+    for (int i = a.length; --i >= 0;)
+      if (a[i] != b[i])
+        return false;
+    return true;
+  }
+
+}
@@ -113,6 +113,29 @@ public class ScaleData {
 	 * graph, (eg. scale, min and max values) and stores the values in the class
 	 * <code>ScaleData</code>. 
 	 * 
+	 * @param spec
+	 *          the spectrum, using its current subspectrum
+	 * @param start
+	 *          the start index
+	 * @param end
+	 *          the end index
+	 * @param isContinuous 
+	 * @param isInverted 
+	 * @returns an instance of <code>ScaleData</code>
+	 */
+	public ScaleData(Spectrum spec, int start, int end, boolean isContinuous, boolean isInverted) {
+		minX = Coordinate.getMinX(spec, start, end);
+		maxX = Coordinate.getMaxX(spec, start, end);
+		minY = Coordinate.getMinY(spec, start, end);
+		if (minY > 0 && !isContinuous)
+			minY = 0; // assumed to be MS data -- we want 0 to be at the bottom
+		maxY = Coordinate.getMaxY(spec, start, end);
+		setScale(isContinuous, isInverted);
+	}
+
+	/**
+	 * @deprecated use {@link #ScaleData(Spectrum, int, int, boolean, boolean)}
+	 * 
 	 * @param coords
 	 *          the array of coordinates
 	 * @param start
@@ -121,8 +144,8 @@ public class ScaleData {
 	 *          the end index
 	 * @param isContinuous 
 	 * @param isInverted 
-	 * @returns an instance of <code>ScaleData</code>
 	 */
+	@Deprecated
 	public ScaleData(Coordinate[] coords, int start, int end, boolean isContinuous, boolean isInverted) {
 		minX = Coordinate.getMinX(coords, start, end);
 		maxX = Coordinate.getMaxX(coords, start, end);
@@ -197,33 +220,32 @@ public class ScaleData {
 		maxY = minY + dy / f;
 	}
 
+  /**
+   * @return the values that determine toPixelX and toPixelY, for checking
+   *         whether pixel positions found earlier are still valid
+   */
+  double[] getPixelKey() {
+    return new double[] { minXOnScale, xFactorForScale, minYOnScale,
+        yFactorForScale, spectrumYRef, userYFactor };
+  }
+
   void setXRange(double x1, double x2) {
     minX = x1;
     maxX = x2;
     setXScale();
   }
 
-  private static int getXRange(int i, Coordinate[] xyCoords, double initX, double finalX, int iStart, int iEnd, int[] startIndices, int[] endIndices) {
-    int index = 0;
-    int ptCount = 0;
-    for (index = iStart; index <= iEnd; index++) {
-      double x = xyCoords[index].getXVal();
-      if (x >= initX) {
-        startIndices[i] = index;
-        break;
-      }
-    }
+  private static int getXRange(int i, Spectrum spec, double initX, double finalX, int iStart, int iEnd, int[] startIndices, int[] endIndices) {
+    double[] xValues = spec.getXValues();
+    boolean isOrdered = (spec.getCurrentSubSpectrum().getXOrder() == 1);
+    int index = Coordinate.getFirstIndexAtOrAbove(xValues, initX, iStart, iEnd, isOrdered);
+    if (index <= iEnd)
+      startIndices[i] = index;
 
     // determine endDataPointIndex
-    for (; index <= iEnd; index++) {
-      double x = xyCoords[index].getXVal();
-      ptCount++;
-      if (x >= finalX) {
-        break;
-      }
-    }
-    endIndices[i] = index - 1;
-    return ptCount;
+    int index2 = Coordinate.getFirstIndexAtOrAbove(xValues, finalX, index, iEnd, isOrdered);
+    endIndices[i] = index2 - 1;
+    return (index2 <= iEnd ? index2 + 1 : index2) - index;
   }
 
   /**
@@ -439,9 +461,9 @@ public class ScaleData {
 		int nSpectraOK = 0;
 		int nSpectra = graphsTemp.size();
 		for (int i = 0; i < nSpectra; i++) {
-			Coordinate[] xyCoords = graphsTemp.get(i).getXYCoords();
-			if (ScaleData.getXRange(i, xyCoords, initX, finalX, 0,
-					xyCoords.length - 1, startIndices, endIndices) >= minPoints)
+			Spectrum spec = graphsTemp.get(i);
+			if (ScaleData.getXRange(i, spec, initX, finalX, 0,
+					spec.getXValues().length - 1, startIndices, endIndices) >= minPoints)
 				nSpectraOK++;
 		}
 		return (nSpectraOK == nSpectra);
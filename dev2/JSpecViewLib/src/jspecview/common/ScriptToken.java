@@ -83,6 +83,9 @@ public enum ScriptToken {
   LOAD("[APPEND] \"fileName\" [first] [last]; use \"\" for current file; $H1/name or $C13/name for simulation", "load a specturm"),
   LOADFILECALLBACKFUNCTIONNAME,
   LOADIMAGINARY("TF","set TRUE to load imaginary NMR component"),
+  LOADLAZY("TF or n", "set TRUE to decompress BLOCKS and NTUPLES data only when it is first needed, or n to also keep no more than n spectra decompressed at a time"),
+  LOADSNAPSHOTS("directory or NONE", "set a directory in which to keep binary snapshots of the local files read, so that they can be reopened without being parsed again, or NONE to keep none"),
+  LOADTHREADS("n", "set the number of threads used to decompress BLOCKS and NTUPLES data and render 2D images; 0 for the default"),
   MENUON,
   OBSCURE, 
   OVERLAY, // same as "VIEW"
@@ -30,6 +30,7 @@ import javajs.util.PT;
 import org.jmol.util.Logger;
 
 import jspecview.source.JDXDataObject;
+import jspecview.source.JDXHeaderTable;
 import jspecview.source.JDXSourceStreamTokenizer;
 
 /**
@@ -106,8 +107,8 @@ public class Spectrum extends JDXDataObject {
    */
   public Spectrum() {
     //System.out.println("initialize JDXSpectrum " + this);
-    headerTable = new Lst<String[]>();
-    xyCoords = new Coordinate[0];
+    headerTable = new JDXHeaderTable();
+    setXYData(new double[0], new double[0]);
     parent = this;
   }
 
@@ -130,7 +131,25 @@ public class Spectrum extends JDXDataObject {
    * @return the array of coordinates
    */
   public Coordinate[] getXYCoords() {
-    return getCurrentSubSpectrum().xyCoords;
+    return getCurrentSubSpectrum().getCoordinates();
+  }
+
+  /**
+   * Returns the x values of the current subspectrum
+   * 
+   * @return the x values
+   */
+  public double[] getXValues() {
+    return getCurrentSubSpectrum().getXData();
+  }
+
+  /**
+   * Returns the y values of the current subspectrum
+   * 
+   * @return the y values
+   */
+  public double[] getYValues() {
+    return getCurrentSubSpectrum().getYData();
   }
 
   
@@ -138,6 +157,14 @@ public class Spectrum extends JDXDataObject {
     return peakList;
   }
 
+  /**
+   * @param isX
+   * @return the x or y units given with the peak list, or null
+   */
+  public String getPeakListUnits(boolean isX) {
+    return (isX ? piUnitsX : piUnitsY);
+  }
+
   public int setPeakList(Lst<PeakInfo> list, String piUnitsX, String piUnitsY) {
     peakList = list;
     this.piUnitsX = piUnitsX;
@@ -302,7 +329,7 @@ public class Spectrum extends JDXDataObject {
   }
 
   public double getYValueAt(double x) {
-    return Coordinate.getYValueAt(xyCoords, x);
+    return Coordinate.getYValueAt(getXData(), getYData(), x);
   }
 
   private Spectrum convertedSpectrum;
@@ -364,14 +391,13 @@ public class Spectrum extends JDXDataObject {
   private static Spectrum toT(Spectrum spectrum) {
     if (!spectrum.isAbsorbance())
       return null;
-    Coordinate[] xyCoords = spectrum.getXYCoords();
-    Coordinate[] newXYCoords = new Coordinate[xyCoords.length];
-    if (!Coordinate.isYInRange(xyCoords, 0, MAXABS))
-      xyCoords = Coordinate.normalise(xyCoords, 0, MAXABS);
-    for (int i = 0; i < xyCoords.length; i++)
-      newXYCoords[i] = new Coordinate().set(xyCoords[i].getXVal(),
-          toTransmittance(xyCoords[i].getYVal()));
-    return newSpectrum(spectrum, newXYCoords, "TRANSMITTANCE");
+    double[] yValues = spectrum.getYValues();
+    double[] newYValues = new double[yValues.length];
+    if (!Coordinate.isYInRange(yValues, 0, MAXABS))
+      yValues = Coordinate.normalise(yValues, 0, MAXABS);
+    for (int i = 0; i < yValues.length; i++)
+      newYValues[i] = toTransmittance(yValues[i]);
+    return newSpectrum(spectrum, Coordinate.copy(spectrum.getXValues()), newYValues, "TRANSMITTANCE");
   }
 
   /**
@@ -384,13 +410,12 @@ public class Spectrum extends JDXDataObject {
   private static Spectrum toA(Spectrum spectrum) {
     if (!spectrum.isTransmittance())
       return null;
-    Coordinate[] xyCoords = spectrum.getXYCoords();
-    Coordinate[] newXYCoords = new Coordinate[xyCoords.length];
-    boolean isPercent = Coordinate.isYInRange(xyCoords, -2, 2);
-    for (int i = 0; i < xyCoords.length; i++)
-      newXYCoords[i] = new Coordinate().set(xyCoords[i].getXVal(), 
-          toAbsorbance(xyCoords[i].getYVal(), isPercent));
-    return newSpectrum(spectrum, newXYCoords, "ABSORBANCE");
+    double[] yValues = spectrum.getYValues();
+    double[] newYValues = new double[yValues.length];
+    boolean isPercent = Coordinate.isYInRange(yValues, -2, 2);
+    for (int i = 0; i < yValues.length; i++)
+      newYValues[i] = toAbsorbance(yValues[i], isPercent);
+    return newSpectrum(spectrum, Coordinate.copy(spectrum.getXValues()), newYValues, "ABSORBANCE");
   }
 
   /**
@@ -404,10 +429,31 @@ public class Spectrum extends JDXDataObject {
   public static Spectrum newSpectrum(Spectrum spectrum,
                                          Coordinate[] newXYCoords,
                                          String units) {
+    Spectrum specNew = newSpectrum(spectrum, units);
+    specNew.setXYCoords(newXYCoords);
+    return specNew;
+  }
+
+  /**
+   * copy spectrum with new x and y values
+   * 
+   * @param spectrum
+   * @param xValues
+   * @param yValues
+   * @param units
+   * @return new spectrum
+   */
+  public static Spectrum newSpectrum(Spectrum spectrum, double[] xValues,
+                                     double[] yValues, String units) {
+    Spectrum specNew = newSpectrum(spectrum, units);
+    specNew.setXYData(xValues, yValues);
+    return specNew;
+  }
+
+  private static Spectrum newSpectrum(Spectrum spectrum, String units) {
     Spectrum specNew = spectrum.copy();
     specNew.setOrigin("JSpecView Converted");
     specNew.setOwner("JSpecView Generated");
-    specNew.setXYCoords(newXYCoords);
     specNew.setYUnits(units);
     spectrum.setConvertedSpectrum(specNew);
     specNew.setConvertedSpectrum(spectrum);
@@ -520,12 +566,10 @@ public class Spectrum extends JDXDataObject {
     Parameters.putInfo(key, info, "specShift", Double.valueOf(specShift));
     boolean justHeader = ("header".equals(key));
     if (!justHeader && key != null && keys == null) {
-      for (int i = headerTable.size(); --i >= 0;) {
-      	String[] entry = headerTable.get(i);
-      	if (entry[0].equalsIgnoreCase(key) || entry[2].equalsIgnoreCase(key)) {
-      		info.put(key, entry[1]);
-      		return info;
-      	}      		
+      String[] entry = headerTable.getEntry(key);
+      if (entry != null) {
+        info.put(key, entry[1]);
+        return info;
       }
     }
     Map<String, Object> head = new Hashtable<String, Object>();
@@ -611,13 +655,13 @@ public class Spectrum extends JDXDataObject {
   }
 
 	public double findXForPeakNearest(double x) {
-		return Coordinate.findXForPeakNearest(xyCoords, x, isInverted());
+		return Coordinate.findXForPeakNearest(getXData(), getYData(), x, isInverted());
 	}
 
 	public double addSpecShift(double dx) {
 		if (dx != 0) {
 			specShift += dx;
-			Coordinate.shiftX(xyCoords, dx);
+			shiftX(dx);
 			if (subSpectra != null)
 				for (int i = subSpectra.size(); --i >= 0;) {
 					Spectrum spec = subSpectra.get(i); 
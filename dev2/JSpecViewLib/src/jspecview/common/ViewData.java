@@ -56,7 +56,7 @@ public class ViewData {
 			boolean isContinuous) {
 		// forced subsets
 		nSpectra = spectra.size();
-		int n = spectra.get(0).getXYCoords().length; // was - 1 
+		int n = spectra.get(0).getXValues().length; // was - 1 
 		scaleData = new ScaleData[1];
 		scaleData[0] = new ScaleData(0, n - 1);
 		init(spectra, yPt1, yPt2, isContinuous);
@@ -99,32 +99,34 @@ public class ViewData {
 		init(spectra, 0, 0, false);
 	}
 
-	public void setXRangeForSubSpectrum(Coordinate[] xyCoords) {
+	public void setXRangeForSubSpectrum(Spectrum spec) {
   	// forced subspectra only
-    setXRange(0, xyCoords, scaleData[0].minX, scaleData[0].maxX, 0, xyCoords.length - 1);
+    double[] xValues = spec.getXValues();
+    setXRange(0, xValues, spec.getCurrentSubSpectrum().getXOrder() == 1, scaleData[0].minX, scaleData[0].maxX, 0, xValues.length - 1);
   }
 
-  private int setXRange(int i, Coordinate[] xyCoords, double initX, double finalX, int iStart, int iEnd) {
-    int index = 0;
-    int ptCount = 0;
-    for (index = iStart; index <= iEnd; index++) {
-      double x = xyCoords[index].getXVal();
-      if (x >= initX) {
-        scaleData[i % scaleData.length].startDataPointIndex = index;
-        break;
-      }
-    }
+  /**
+   * @deprecated use {@link #setXRangeForSubSpectrum(Spectrum)}
+   * 
+   * @param xyCoords
+   */
+  @Deprecated
+  public void setXRangeForSubSpectrum(Coordinate[] xyCoords) {
+    double[] xValues = new double[xyCoords.length];
+    for (int i = xValues.length; --i >= 0;)
+      xValues[i] = xyCoords[i].getXVal();
+    setXRange(0, xValues, false, scaleData[0].minX, scaleData[0].maxX, 0, xValues.length - 1);
+  }
+
+  private int setXRange(int i, double[] xValues, boolean isOrdered, double initX, double finalX, int iStart, int iEnd) {
+    int index = Coordinate.getFirstIndexAtOrAbove(xValues, initX, iStart, iEnd, isOrdered);
+    if (index <= iEnd)
+      scaleData[i % scaleData.length].startDataPointIndex = index;
 
     // determine endDataPointIndex
-    for (; index <= iEnd; index++) {
-      double x = xyCoords[index].getXVal();
-      ptCount++;
-      if (x >= finalX) {
-        break;
-      }
-    }
-    scaleData[i % scaleData.length].endDataPointIndex = index - 1;
-    return ptCount;
+    int index2 = Coordinate.getFirstIndexAtOrAbove(xValues, finalX, index, iEnd, isOrdered);
+    scaleData[i % scaleData.length].endDataPointIndex = index2 - 1;
+    return (index2 <= iEnd ? index2 + 1 : index2) - index;
   }
 
   /**
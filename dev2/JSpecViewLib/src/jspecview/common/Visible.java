@@ -83,7 +83,8 @@ public class Visible implements VisibleInterface {
 	 */
 	@Override
 	public int getColour(Spectrum spec, boolean useFitted) {
-		Coordinate xyCoords[] = spec.getXYCoords();
+		double[] xValues = spec.getXValues();
+		double[] yValues = spec.getYValues();
 		boolean isAbsorbance = spec.isAbsorbance();
 		double[] xyzd = new double[4];
 
@@ -97,7 +98,7 @@ public class Visible implements VisibleInterface {
 		// Step 1. Determine the CIE tristimulus values
 
 		//if (useFitted) {
-			getXYZfitted(xyCoords, isAbsorbance, xyzd);
+			getXYZfitted(xValues, yValues, isAbsorbance, xyzd);
 		//} else {
 			//getXYZinterpolated(xyCoords, isAbsorbance, xyzd);
 		//}
@@ -136,7 +137,7 @@ public class Visible implements VisibleInterface {
 		return (d <= 0 ? 0 : d >= 1 ? 255 : (int) Math.round(255 * d));
 	}
 
-	private static void getXYZfitted(Coordinate[] xyCoords, boolean isAbsorbance,
+	private static void getXYZfitted(double[] xValues, double[] yValues, boolean isAbsorbance,
 			double[] xyzd) {
 		// Lancashire method -- using actual data and curve-fit CIE data
         // 1931 data used to match the J Chem Educ article
@@ -144,8 +145,8 @@ public class Visible implements VisibleInterface {
 
 		double cie, xb, yb, zb;
 		
-		for (int i = xyCoords.length; --i >= 0;) {
-			double x = xyCoords[i].getXVal();
+		for (int i = xValues.length; --i >= 0;) {
+			double x = xValues[i];
 			if (x < 400 || x > 700)
 				continue;
 			
@@ -163,7 +164,7 @@ public class Visible implements VisibleInterface {
 					+ gauss(0.355693, 0.000628546, x - 470.668)
 					+ gauss(0.81862, 0.00471059, x - 433.144);
 
-			double y = xyCoords[i].getYVal();
+			double y = yValues[i];
 			if (isAbsorbance)
 				y = Math.pow(10, -Math.max(y, 0));
 //			y = 1; // test for 255 255 255 gives 255 255 254
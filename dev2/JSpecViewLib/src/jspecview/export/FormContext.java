@@ -35,16 +35,37 @@ import jspecview.common.Coordinate;
  * A simple Velocity-like template form filler
  * -- Supports only "==" "=" "!=" and no SET
  * -- # directives must be first non-whitespace character of the line
+ * 
+ * A template is parsed only once, and its parsed form is kept for all later
+ * exports that use it. Within #foreach, variables such as $coord.getYString()
+ * are read directly from the current item of the list, and a FormList
+ * formats each of its values only as it is written out.
  *
  * @author Bob Hanson, hansonr@stolaf.edu
  *
  */
 class FormContext {
 
-  String[] tokens;
+  /**
+   * parsed templates, by name
+   */
+  private static Map<String, Lst<FormToken>> htTemplates = new Hashtable<String, Lst<FormToken>>();
+
   Hashtable<String, Object> context = new Hashtable<String, Object>();
   Lst<FormToken> formTokens;
 
+  /**
+   * #foreach variable names, by slot
+   */
+  private String[] vars;
+
+  /**
+   * for each #foreach variable slot, the list and index of its current item
+   */
+  private Object[] varLists;
+  private int[] varIndexes;
+  private int pointCount;
+
   FormContext() {
   }
 
@@ -54,13 +75,54 @@ class FormContext {
     context.put(key, value);
   }
 
-  String setTemplate(String template) {
+  /**
+   * Uses a template that has already been parsed.
+   * 
+   * @param name
+   * @return false if this template has not been parsed yet
+   */
+  boolean useTemplate(String name) {
+    Lst<FormToken> tokens;
+    synchronized (htTemplates) {
+      tokens = htTemplates.get(name);
+    }
+    if (tokens == null)
+      return false;
+    setTokens(tokens);
+    return true;
+  }
+
+  /**
+   * Parses a template and saves its parsed form for later use.
+   * 
+   * @param name
+   * @param template
+   * @return an error message, or null
+   */
+  String setTemplate(String name, String template) {
     String errMsg = getFormTokens(template);
     if (errMsg != null)
       return errMsg;
+    synchronized (htTemplates) {
+      htTemplates.put(name, formTokens);
+    }
+    setTokens(formTokens);
     return null;
   }
 
+  private void setTokens(Lst<FormToken> tokens) {
+    formTokens = tokens;
+    int nVars = 0;
+    for (int i = tokens.size(); --i >= 0;)
+      nVars = Math.max(nVars, tokens.get(i).varSlot + 1);
+    vars = new String[nVars];
+    for (int i = tokens.size(); --i >= 0;) {
+      FormToken vt = tokens.get(i);
+      if (vt.varSlot >= 0)
+        vars[vt.varSlot] = vt.var;
+    }
+  }
+
   int commandLevel;
   Lst<Integer> cmds = new Lst<Integer>();
   String strError;
@@ -73,89 +135,118 @@ class FormContext {
   final static int VT_FOREACH = 5;
   final static int VT_SET = 6;
 
-  class FormToken {
+  /**
+   * key slot for $pointCount
+   */
+  private final static int SLOT_POINT_COUNT = -2;
+
+  /**
+   * A parsed line or block of a template. Once parsed, it is not changed, so
+   * that it can be shared by any number of exports.
+   */
+  static class FormToken {
 
-    boolean hasVariable;
     int cmdType;
     int cmdPtr = -1;
     int endPtr = -1;
     int ptr;
-    String var;
-    Lst<Object> vc;
-    int pointCount;
     String data;
 
-    FormToken(String token, int firstChar) {
-      hasVariable = token.indexOf("$") >= 0;
+    /**
+     * for #foreach ($var in $listName)
+     */
+    String var, listName;
+    int varSlot = -1;
+
+    /**
+     * For a data token, the text is literals[0] key[0] literals[1] key[1] ...
+     * literals[n]; each key is written as rawKeys[i] if it has no value. If
+     * the keys cannot be split out this way, the token is filled in by
+     * fillData() instead.
+     */
+    boolean isParsed;
+    String[] literals, keys, rawKeys, keyFields;
+    int[] keySlots;
+
+    FormToken(String token) {
       data = token;
-      if (token.indexOf("#") != firstChar) {
-        formTokens.addLast(this);
+    }
+  }
+
+  /**
+   * Adds a token, matching #if, #else, #elseif, and #foreach with their #end.
+   * 
+   * @param token
+   * @param firstChar
+   */
+  private void addToken(String token, int firstChar) {
+    FormToken vt = new FormToken(token);
+    if (token.indexOf("#") != firstChar) {
+      formTokens.addLast(vt);
+      return;
+    }
+    //System.out.println(firstChar + " " + token);
+    int ptr = vt.ptr = formTokens.size();
+    boolean checkIf = false;
+    if (token.indexOf("#end") == firstChar) {
+      vt.cmdType = VT_END;
+      vt.endPtr = ptr;
+      commandLevel--;
+      if (commandLevel < 0) {
+        strError = "misplaced #end";
         return;
       }
-      //System.out.println(firstChar + " " + token);
-      ptr = formTokens.size();
-      boolean checkIf = false;
-      if (token.indexOf("#end") == firstChar) {
-        cmdType = VT_END;
-        endPtr = ptr;
-        commandLevel--;
-        if (commandLevel < 0) {
-          strError = "misplaced #end";
+      vt.cmdPtr = cmds.removeItemAt(0).intValue();
+      formTokens.get(vt.cmdPtr).endPtr = ptr;
+    } else {
+      commandLevel++;
+      if (token.indexOf("#if") == firstChar) {
+        vt.cmdType = VT_IF;
+        cmds.add(0, new Integer(ptr));
+      } else if (token.indexOf("#foreach") == firstChar) {
+        vt.cmdType = VT_FOREACH;
+        cmds.add(0, new Integer(ptr));
+        vt.cmdPtr = ptr;
+        if (token.indexOf("#end") > 0) {
+          int pt = token.indexOf(")") + 1;
+          vt.data = token.substring(0, pt);
+          formTokens.addLast(vt);
+          addToken(token.substring(pt, token.indexOf("#end")), 0);
+          addToken("#end", 0);
           return;
         }
-        cmdPtr = cmds.removeItemAt(0).intValue();
-        formTokens.get(cmdPtr).endPtr = ptr;
-      } else {
-        commandLevel++;
-        if (token.indexOf("#if") == firstChar) {
-          cmdType = VT_IF;
-          cmds.add(0, new Integer(ptr));
-        } else if (token.indexOf("#foreach") == firstChar) {
-          cmdType = VT_FOREACH;
-          cmds.add(0, new Integer(ptr));
-          cmdPtr = ptr;
-          if (token.indexOf("#end") > 0) {
-            int pt = token.indexOf(")") + 1;
-            data = token.substring(0, pt);
-            formTokens.addLast(this);
-            new FormToken(token.substring(pt, token.indexOf("#end")), 0);
-            new FormToken("#end", 0);
-            return;
-          }
-        } else if (token.indexOf("#elseif") == firstChar) {
-          if (cmds.size() == 0) {
-            strError = "misplaced #elseif";
-            return;
-          }
-          cmdType = VT_ELSEIF;
-          cmdPtr = cmds.removeItemAt(0).intValue();
-          FormToken vt = formTokens.get(cmdPtr);
-          checkIf = true;
-          vt.endPtr = ptr;
-          cmds.add(0, new Integer(ptr));
-        } else if (token.indexOf("#else") == firstChar) {
-          if (cmds.size() == 0) {
-            strError = "misplaced #else";
-            return;
-          }
-          cmdType = VT_ELSE;
-          checkIf = true;
-          cmdPtr = cmds.removeItemAt(0).intValue();
-          formTokens.get(cmdPtr).endPtr = ptr;
-          cmds.add(0, new Integer(ptr));
-        } else {
-          Logger.warn("??? " + token);
+      } else if (token.indexOf("#elseif") == firstChar) {
+        if (cmds.size() == 0) {
+          strError = "misplaced #elseif";
+          return;
         }
-        if (checkIf) {
-          FormToken vt = formTokens.get(cmdPtr);
-          if (vt.cmdType != VT_IF && vt.cmdType != VT_ELSEIF) {
-            strError = "misplaced " + token.trim();
-            return;
-          }
+        vt.cmdType = VT_ELSEIF;
+        vt.cmdPtr = cmds.removeItemAt(0).intValue();
+        checkIf = true;
+        formTokens.get(vt.cmdPtr).endPtr = ptr;
+        cmds.add(0, new Integer(ptr));
+      } else if (token.indexOf("#else") == firstChar) {
+        if (cmds.size() == 0) {
+          strError = "misplaced #else";
+          return;
+        }
+        vt.cmdType = VT_ELSE;
+        checkIf = true;
+        vt.cmdPtr = cmds.removeItemAt(0).intValue();
+        formTokens.get(vt.cmdPtr).endPtr = ptr;
+        cmds.add(0, new Integer(ptr));
+      } else {
+        Logger.warn("??? " + token);
+      }
+      if (checkIf) {
+        int type = formTokens.get(vt.cmdPtr).cmdType;
+        if (type != VT_IF && type != VT_ELSEIF) {
+          strError = "misplaced " + token.trim();
+          return;
         }
       }
-      formTokens.addLast(this);
     }
+    formTokens.addLast(vt);
   }
 
   private String getFormTokens(String template) {
@@ -180,47 +271,149 @@ class FormContext {
       }
       if (line.indexOf("#") == firstChar) {
         if (token.length() > 0) {
-          new FormToken(token, 0);
+          addToken(token, 0);
           token = "";
         }
         if (strError != null)
           break;
-        new FormToken(line, firstChar);
+        addToken(line, firstChar);
         continue;
       }
       token += line + "\n";
     }
     if (token.length() > 0 && strError == null) {
-      new FormToken(token, 0);
+      addToken(token, 0);
     }
+    if (strError == null)
+      parseTokens();
     return strError;
   }
 
-	@SuppressWarnings("unchecked")
+  /**
+   * Assigns each #foreach variable a slot and splits each data token into
+   * literals and keys, so that merging need not search the text.
+   */
+  private void parseTokens() {
+    Lst<String> varNames = new Lst<String>();
+    for (int i = 0; i < formTokens.size(); i++) {
+      FormToken vt = formTokens.get(i);
+      if (vt.cmdType != VT_FOREACH)
+        continue;
+      // #foreach  $xxx in XXX
+      String data = vt.data.replace('(', ' ').replace(')', ' ');
+      String[] tokens = PT.getTokens(data);
+      if (tokens.length != 4)
+        continue;
+      vt.var = tokens[1].substring(1);
+      vt.listName = tokens[3].substring(1);
+      vt.varSlot = varNames.indexOf(vt.var);
+      if (vt.varSlot < 0) {
+        vt.varSlot = varNames.size();
+        varNames.addLast(vt.var);
+      }
+    }
+    for (int i = 0; i < formTokens.size(); i++) {
+      FormToken vt = formTokens.get(i);
+      if (vt.cmdType == VT_DATA)
+        parseData(vt, varNames);
+    }
+  }
+
+  /**
+   * Finds the $keys in a data token just as fillData() does. If a key is
+   * followed by another $ that fillData() would read only if the key had no
+   * value, the token is left to fillData().
+   * 
+   * @param vt
+   * @param varNames
+   */
+  private static void parseData(FormToken vt, Lst<String> varNames) {
+    String data = vt.data;
+    Lst<String> literals = new Lst<String>();
+    Lst<String> keys = new Lst<String>();
+    int ccData = data.length();
+    int i = 0;
+    int pt = 0;
+    while (i < ccData) {
+      while (i < ccData && data.charAt(i++) != '$') {
+        // continue looking for start
+      }
+      if (i == ccData)
+        break;
+      int j = i;
+      char ch;
+      while (++j < ccData
+          && (Character.isLetterOrDigit(ch = data.charAt(j)) || ch == '.' || ch == '_')) {
+        // continue looking for end
+      }
+      if (j < ccData && data.charAt(j) == '(')
+        j += 2;
+      if (j >= ccData ? j > ccData || data.substring(i).indexOf('$') >= 0
+          : data.substring(i, j + 1).indexOf('$') >= 0)
+        return;
+      literals.addLast(data.substring(pt, i - 1));
+      keys.addLast(data.substring(i, j));
+      pt = j;
+      i = j + 1;
+    }
+    literals.addLast(data.substring(pt));
+    int n = keys.size();
+    vt.literals = literals.toArray(new String[n + 1]);
+    vt.keys = keys.toArray(new String[n]);
+    vt.rawKeys = new String[n];
+    vt.keyFields = new String[n];
+    vt.keySlots = new int[n];
+    for (int k = 0; k < n; k++) {
+      String key = vt.keys[k];
+      vt.rawKeys[k] = "$" + key;
+      vt.keySlots[k] = -1;
+      int pt1 = key.indexOf('.');
+      if (pt1 > 0) {
+        vt.keySlots[k] = varNames.indexOf(key.substring(0, pt1));
+        vt.keyFields[k] = key.substring(pt1 + 1);
+      } else if (key.equals("pointCount")) {
+        vt.keySlots[k] = SLOT_POINT_COUNT;
+      }
+    }
+    vt.isParsed = true;
+  }
+
+  /**
+   * Writes out the template with its variables filled in.
+   * 
+   * @param out
+   * @return an error message, or null
+   */
 	public String merge(OC out) {
-		int ptr;
-		for (int i = 0; i < formTokens.size() && strError == null; i++) {
+		int n = formTokens.size();
+		// the state of each #if, #elseif, and #foreach during this merge
+		boolean[] isDone = new boolean[n];
+		Object[] lists = new Object[n];
+		int[] counts = new int[n];
+		varLists = new Object[vars.length];
+		varIndexes = new int[vars.length];
+		pointCount = -1;
+		for (int i = 0; i < n && strError == null; i++) {
 			FormToken vt = formTokens.get(i);
 			// System.out.println(i + " " + vt.ptr + " " + vt.cmdType + " " +
 			// vt.cmdPtr + " "
 			// + vt.endPtr + vt.data);
 			switch (vt.cmdType) {
 			case VT_DATA:
-				String data = fillData(vt.data);
-				out.append(data);
+				if (vt.isParsed)
+					writeData(vt, out);
+				else
+					out.append(fillData(vt.data));
 				continue;
 			case VT_IF:
-				if (evaluate(vt.data, true)) {
-					vt.endPtr = -vt.endPtr;
-				} else {
+				if (!(isDone[i] = evaluate(vt.data, true)))
 					i = vt.endPtr - 1;
-				}
 				continue;
 			case VT_ELSE:
 			case VT_ELSEIF:
-				if ((ptr = formTokens.get(vt.cmdPtr).endPtr) < 0) {
+				if (isDone[vt.cmdPtr]) {
 					// previous block was executed -- skip to end
-					formTokens.get(vt.cmdPtr).endPtr = -ptr;
+					isDone[vt.cmdPtr] = false;
 					while ((vt = formTokens.get(vt.endPtr)).cmdType != VT_END) {
 						// skip
 					}
@@ -228,62 +421,114 @@ class FormContext {
 					continue;
 				}
 				if (vt.cmdType == VT_ELSEIF) {
-					if (evaluate(vt.data, true)) {
-						vt.endPtr = -vt.endPtr;
-					} else {
+					if (!(isDone[i] = evaluate(vt.data, true)))
 						i = vt.endPtr - 1;
-					}
 				}
 				continue;
 			case VT_FOREACH:
-				foreach(vt);
+				if (vt.listName != null) {
+					Object list = context.get(vt.listName);
+					lists[i] = (list instanceof Lst || list instanceof FormList ? list
+							: null);
+					counts[i] = -1;
+				}
 				//$FALL-THROUGH$
 			case VT_END:
-				if ((vt = formTokens.get(vt.cmdPtr)).cmdType != VT_FOREACH)
+				int ptr = vt.cmdPtr;
+				if ((vt = formTokens.get(ptr)).cmdType != VT_FOREACH)
 					continue;
-				if (vt.vc == null)
+				Object list = lists[ptr];
+				if (list == null)
 					continue;
-				if (++vt.pointCount == vt.vc.size()) {
+				int count = ++counts[ptr];
+				if (count == (list instanceof FormList ? ((FormList) list).size()
+						: ((Lst<?>) list).size())) {
 					i = vt.endPtr;
 					continue;
 				}
-				Object varData = vt.vc.get(vt.pointCount);
-				if (varData instanceof Coordinate) {
-					Coordinate c = (Coordinate) varData;
-					context.put("pointCount", new Integer(vt.pointCount));
-					context.put(vt.var + ".xVal", new Double(c.getXVal()));
-					context.put(vt.var + ".yVal", new Double(c.getYVal()));
-					context.put(vt.var + ".getXString()", c.getXString());
-					context.put(vt.var + ".getYString()", c.getYString());
-				} else if (varData instanceof Map<?, ?>) {
-					for (Map.Entry<String, String> entry : ((Map<String, String>) varData)
-							.entrySet())
-						context.put(vt.var + "." + entry.getKey(), entry.getValue());
-				}
-				i = vt.cmdPtr;
+				varLists[vt.varSlot] = list;
+				varIndexes[vt.varSlot] = count;
+				if (list instanceof FormList
+						|| ((Lst<?>) list).get(count) instanceof Coordinate)
+					pointCount = count;
+				i = ptr;
 				continue;
 			}
 		}
-		return (strError != null ? strError : out != null ? out.toString() : null);
+		return strError;
 	}
 
-  @SuppressWarnings("unchecked")
-  private void foreach(FormToken vt) {
-    String data = vt.data;
-    data = data.replace('(', ' ');
-    data = data.replace(')', ' ');
-    String[] tokens = PT.getTokens(data);
-    if (tokens.length != 4) {
-      return;
-    }
-    // #foreach  $xxx in XXX
-    vt.var = tokens[1].substring(1);
-    Object vc = context.get(tokens[3].substring(1));
-    if (vc instanceof Lst)
-      vt.vc = (Lst<Object>) vc;
-    vt.cmdPtr = vt.ptr;
-    vt.pointCount = -1;
-  }
+	private void writeData(FormToken vt, OC out) {
+		String[] literals = vt.literals;
+		String s;
+		for (int k = 0, n = vt.keys.length; k < n; k++) {
+			if ((s = literals[k]).length() > 0)
+				out.append(s);
+			s = getString(vt.keys[k], vt.keySlots[k], vt.keyFields[k]);
+			out.append(s == null ? vt.rawKeys[k] : s);
+		}
+		if ((s = literals[literals.length - 1]).length() > 0)
+			out.append(s);
+	}
+
+	/**
+	 * @param key
+	 * @param slot
+	 *          the #foreach variable slot of the key, or -1
+	 * @param field
+	 *          the rest of the key after the variable name
+	 * @return the value of this key, or null if it has none
+	 */
+	@SuppressWarnings("unchecked")
+	private String getString(String key, int slot, String field) {
+		if (slot >= 0 && varLists[slot] != null) {
+			Object list = varLists[slot];
+			int i = varIndexes[slot];
+			if (list instanceof FormList) {
+				FormList fl = (FormList) list;
+				int f = fl.getField(field);
+				if (f >= 0)
+					return fl.getString(f, i);
+			} else {
+				Object item = ((Lst<?>) list).get(i);
+				if (item instanceof Coordinate) {
+					Coordinate c = (Coordinate) item;
+					if (field.equals("xVal"))
+						return String.valueOf(c.getXVal());
+					if (field.equals("yVal"))
+						return String.valueOf(c.getYVal());
+					if (field.equals("getXString()"))
+						return c.getXString();
+					if (field.equals("getYString()"))
+						return c.getYString();
+				} else if (item instanceof Map<?, ?>) {
+					String value = ((Map<String, String>) item).get(field);
+					if (value != null)
+						return value;
+				}
+			}
+		} else if (slot == SLOT_POINT_COUNT && pointCount >= 0) {
+			return "" + pointCount;
+		}
+		Object value = context.get(key);
+		return (value == null ? null : value.toString());
+	}
+
+	/**
+	 * @param key
+	 * @return the value of this key, or null if it has none
+	 */
+	private String getString(String key) {
+		int pt = key.indexOf('.');
+		if (pt > 0) {
+			String var = key.substring(0, pt);
+			for (int i = vars.length; --i >= 0;)
+				if (vars[i].equals(var))
+					return getString(key, i, key.substring(pt + 1));
+		}
+		return getString(key, key.equals("pointCount") ? SLOT_POINT_COUNT : -1,
+				null);
+	}
 
   private final static String[] ops = { "==", "!=", "=" };
   private final static int OP_EEQ = 0;
@@ -369,7 +614,8 @@ class FormContext {
   }
 
   private String getValue(String key) {
-    return (context.containsKey(key) ? context.get(key).toString() : "");
+    String value = getString(key);
+    return (value == null ? "" : value);
   }
 
   private String fillData(String data) {
@@ -390,15 +636,9 @@ class FormContext {
       if (j < ccData && data.charAt(j) == '(')
         j += 2;
       String key = data.substring(i, j);
-      if (context.containsKey(key)) {
-        Object value = context.get(key);
-        String strValue;
-        if (value instanceof Coordinate) {
-          strValue = value.toString();
-        } else {
-          strValue = value.toString();
-        }
-        //System.out.println(key + " = " + value);
+      String strValue = getString(key);
+      if (strValue != null) {
+        //System.out.println(key + " = " + strValue);
         data = data.substring(0, i - 1) + strValue + data.substring(j);
         ccData = data.length();
         i += strValue.length();
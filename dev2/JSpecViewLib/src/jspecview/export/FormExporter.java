@@ -55,16 +55,19 @@ abstract class FormExporter implements JSVExporter {
   }
 
   protected String writeForm(String templateFile) throws IOException {
-    String[] error = new String[1];
-    String template = JSVFileManager.getResourceString(this, "resources/" + templateFile, error);
-    if (template == null) {
-      Logger.error(error[0]);
-      return error[0];
-    }
-    errMsg = context.setTemplate(template);
-    if (errMsg != null) {
-      Logger.error(errMsg);
-      return errMsg;
+    if (!context.useTemplate(templateFile)) {
+      String[] error = new String[1];
+      String template = JSVFileManager.getResourceString(this, "resources/"
+          + templateFile, error);
+      if (template == null) {
+        Logger.error(error[0]);
+        return error[0];
+      }
+      errMsg = context.setTemplate(templateFile, template);
+      if (errMsg != null) {
+        Logger.error(errMsg);
+        return errMsg;
+      }
     }
 
     errMsg = context.merge(out);
@@ -0,0 +1,150 @@
+/* Copyright (c) 2006-2008 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.export;
+
+import javajs.util.DF;
+
+/**
+ * A list of items for a template #foreach whose fields are read from arrays of
+ * numbers, each formatted only as it is written out. For example, with field
+ * "xVal", "$coord.xVal" within "#foreach ($coord in $xyCoords)" is the next
+ * value of that field's array each time through the loop.
+ *
+ */
+class FormList {
+
+  /**
+   * as Double.toString()
+   */
+  final static int FORMAT_PLAIN = 0;
+
+  /**
+   * as DF.formatDecimalTrimmed()
+   */
+  final static int FORMAT_TRIMMED = 1;
+
+  /**
+   * as DF.formatDecimalDbl()
+   */
+  final static int FORMAT_DECIMAL = 2;
+
+  private int start, size;
+  private int nFields;
+  private String[] names = new String[4];
+  private double[][] values = new double[4][];
+  private int[] formats = new int[4];
+  private int[] decimals = new int[4];
+
+  /**
+   * @param start
+   *        index of the first item in each field's array
+   * @param size
+   *        number of items
+   */
+  FormList(int start, int size) {
+    this.start = start;
+    this.size = size;
+  }
+
+  /**
+   * Creates the list for a spectrum's data points, with the fields of
+   * Coordinate: xVal, yVal, getXString(), and getYString().
+   *
+   * @param xValues
+   * @param yValues
+   * @param startIndex
+   * @param endIndex
+   * @return a new list
+   */
+  static FormList getCoordinates(double[] xValues, double[] yValues,
+                                 int startIndex, int endIndex) {
+    return new FormList(startIndex, endIndex - startIndex + 1)
+        .addField("xVal", xValues, FORMAT_PLAIN, 0)
+        .addField("yVal", yValues, FORMAT_PLAIN, 0)
+        .addField("getXString()", xValues, FORMAT_TRIMMED, 8)
+        .addField("getYString()", yValues, FORMAT_TRIMMED, 8);
+  }
+
+  /**
+   * @param name
+   * @param data
+   *        not copied
+   * @param format
+   *        FORMAT_PLAIN, FORMAT_TRIMMED, or FORMAT_DECIMAL
+   * @param nDecimals
+   *        for FORMAT_TRIMMED and FORMAT_DECIMAL
+   * @return this
+   */
+  FormList addField(String name, double[] data, int format, int nDecimals) {
+    if (nFields == names.length) {
+      String[] n = new String[nFields * 2];
+      double[][] v = new double[nFields * 2][];
+      int[] f = new int[nFields * 2];
+      int[] d = new int[nFields * 2];
+      System.arraycopy(names, 0, n, 0, nFields);
+      System.arraycopy(values, 0, v, 0, nFields);
+      System.arraycopy(formats, 0, f, 0, nFields);
+      System.arraycopy(decimals, 0, d, 0, nFields);
+      names = n;
+      values = v;
+      formats = f;
+      decimals = d;
+    }
+    names[nFields] = name;
+    values[nFields] = data;
+    formats[nFields] = format;
+    decimals[nFields++] = nDecimals;
+    return this;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @param name
+   * @return the index of the field, or -1 if there is none
+   */
+  int getField(String name) {
+    for (int i = nFields; --i >= 0;)
+      if (names[i].equals(name))
+        return i;
+    return -1;
+  }
+
+  /**
+   * @param field
+   * @param i
+   *        from 0 through size() - 1
+   * @return the formatted value
+   */
+  String getString(int field, int i) {
+    double v = values[field][start + i];
+    switch (formats[field]) {
+    case FORMAT_TRIMMED:
+      return DF.formatDecimalTrimmed(v, decimals[field]);
+    case FORMAT_DECIMAL:
+      return DF.formatDecimalDbl(v, decimals[field]);
+    default:
+      return String.valueOf(v);
+    }
+  }
+
+}
@@ -20,327 +20,332 @@
 package jspecview.export;
 
 import javajs.util.DF;
-import javajs.util.SB;
+import javajs.util.OC;
 
 import org.jmol.util.Logger;
 
-import jspecview.common.Coordinate;
-
 /**
- * <code>JDXCompressor</code> takes an array of <code>Coordinates<code> and
- * compresses them into one of the JCAMP-DX compression formats: DIF, FIX, PAC
- * and SQZ.
+ * <code>JDXCompressor</code> takes arrays of x and y values and compresses
+ * them into one of the JCAMP-DX compression formats: DIF, FIX, PAC and SQZ.
+ * 
+ * Each line is built in a reusable character buffer, with the compressed
+ * digits written directly into it, and then written to the output channel, so
+ * that the data section as a whole is never held in memory.
  * 
  * @author Christopher Muir
  * @author Debbie-Ann Facey
  * @author Khari A. Bryan
  * @author Prof Robert J. Lancashire
  * @author Bob Hanson hansonr@stolaf.edu
- * @see jspecview.common.Coordinate
  * @see jspecview.source.JDXDecompressor
  */
 
 class JDXCompressor {
 
+  private OC out;
+  private double[] xValues, yValues;
+
+  /**
+   * the current line
+   */
+  private char[] line = new char[128];
+  private int len;
+
+  /**
+   * @param out
+   * @param xValues
+   * @param yValues
+   */
+  JDXCompressor(OC out, double[] xValues, double[] yValues) {
+    this.out = out;
+    this.xValues = xValues;
+    this.yValues = yValues;
+  }
+
   /**
-   * Compresses the <code>Coordinate<code>s into DIF format
+   * Compresses the data into DIF format
    * 
-   * @param xyCoords
-   *        the array of <code>Coordinate</code>s
    * @param startIndex
-   *        the start index of the array of Coordinates to be compressed
+   *        the start index of the data to be compressed
    * @param endIndex
-   *        the end index of the array of Coordinates to be compressed
+   *        the end index of the data to be compressed
    * @param step 
    * @param xFactor
    *        x factor for compression
    * @param yFactor
    *        y factor for compression
    * @param isDIFDUP
-   * @return A String representing the compressed data
    */
-  static String compressDIF(Coordinate[] xyCoords, int startIndex,
-                            int endIndex, int step, double xFactor,
-                            double yFactor, boolean isDIFDUP) {
-    SB yStr = new SB();
-    SB buffer = new SB();
+  void compressDIF(int startIndex, int endIndex, int step, double xFactor,
+                   double yFactor, boolean isDIFDUP) {
     for (int i = startIndex; i != endIndex;) {
-      buffer.append(fixIntNoExponent(xyCoords[i].getXVal() / xFactor));
-      yStr.setLength(0);
+      appendNumber(xValues[i] / xFactor);
+      int yStart = len;
       if (Logger.debugging)
-        Logger.info("" + i + '\t' + xyCoords[i].getXVal() + '\t' + xyCoords[i].getYVal());
-      long y1 = Math.round(xyCoords[i].getYVal() / yFactor);
-      yStr.append(makeSQZ(y1));
-      String lastDif = "";
+        Logger.info("" + i + '\t' + xValues[i] + '\t' + yValues[i]);
+      long y1 = Math.round(yValues[i] / yFactor);
+      appendCompressed(y1, SQZ_POS, SQZ_NEG);
+      long lastDif = 0;
+      boolean haveDif = false;
       int nDif = 0;
       i += step;
       if (i == endIndex) {
         // we're done
         i -= step;
       } else {
-        while (i + step != endIndex && yStr.length() < 50) {
+        while (i + step != endIndex && len - yStart < 50) {
           // Print remaining Y values on a line
-          long y2 = Math.round(xyCoords[i].getYVal() / yFactor);
+          long y2 = Math.round(yValues[i] / yFactor);
           // Calculate DIF value here
-          String temp = makeDIF(y2 - y1);
-          if (isDIFDUP && temp.equals(lastDif)) {
+          long dif = y2 - y1;
+          if (isDIFDUP && haveDif && dif == lastDif) {
             nDif++;
           } else {
-            lastDif = temp;
+            lastDif = dif;
+            haveDif = true;
             if (nDif > 0) {
-              yStr.append(makeDUP(nDif + 1));
+              appendCompressed(nDif + 1, DUP_POS, null);
               nDif = 0;
             }
-            yStr.append(temp);
+            appendCompressed(dif, DIF_POS, DIF_NEG);
           }
           if (Logger.debugging)
-            Logger.info("" + i + '\t' + xyCoords[i].getXVal() + '\t' + xyCoords[i].getYVal() + '\t' + y2 + '\t' + nDif + '\t' + yStr);
+            Logger.info("" + i + '\t' + xValues[i] + '\t' + yValues[i] + '\t' + y2 + '\t' + nDif + '\t' + new String(line, yStart, len - yStart));
           y1 = y2;
           i += step;
         }
         if (nDif > 0)
-          yStr.append(makeDUP(nDif + 1));
+          appendCompressed(nDif + 1, DUP_POS, null);
         // convert last digit of string to SQZ
-        yStr.append(makeSQZ(xyCoords[i], yFactor));
+        appendCompressed(Math.round(yValues[i] / yFactor), SQZ_POS, SQZ_NEG);
         if (Logger.debugging)
-          Logger.info("" + i + '\t' + xyCoords[i].getXVal() + '\t' + xyCoords[i].getYVal() + '\t' + nDif + '\t' + yStr);
+          Logger.info("" + i + '\t' + xValues[i] + '\t' + yValues[i] + '\t' + nDif + '\t' + new String(line, yStart, len - yStart));
       }
-      buffer.append(yStr.toString()).append(Exporter.newLine);
+      writeLine();
       i += step;
     }
     // Get checksum line -- for an X-sequence check only
-    buffer.append(
-        fixIntNoExponent(xyCoords[endIndex].getXVal() / xFactor))
-        .append(makeSQZ(xyCoords[endIndex], yFactor));
-    buffer.append("  $$checkpoint").append(Exporter.newLine);
-    return buffer.toString();
+    appendNumber(xValues[endIndex] / xFactor);
+    appendCompressed(Math.round(yValues[endIndex] / yFactor), SQZ_POS, SQZ_NEG);
+    append("  $$checkpoint");
+    writeLine();
   }
 
-  final static String spaces = "                    ";
-
-	/**
-	 * Compresses the <code>Coordinate<code>s into FIX format
-	 * 
-	 * @param xyCoords
-	 *          the array of <code>Coordinate</code>s
-	 * @param startIndex
-	 *          startIndex the start index of the array of Coordinates to be
-	 *          compressed
-	 * @param step
-	 * @param endIndex
-	 *          endIndex the end index of the array of Coordinates to be
-	 *          compressed
-	 * @param xFactor
-	 *          x factor for compression
-	 * @param yFactor
-	 *          y factor for compression
-	 * @return A String representing the compressed data
-	 */
-	static String compressFIX(Coordinate[] xyCoords, int startIndex,
-			int endIndex, int step, double xFactor, double yFactor) {
-		endIndex += step;
-		SB buffer = new SB();
-		for (int i = startIndex; i != endIndex;) {
-			leftJustify(buffer, "              ", 
-					fixIntNoExponent(xyCoords[i].getXVal() / xFactor)); // 14 spaces
-			for (int j = 0; j < 6 && i != endIndex; j++) {
-			  rightJustify(buffer, "          ", ""
-						+ Math.round(xyCoords[i].getYVal() / yFactor));
-				buffer.append(" ");
-				i += step;
-			}
-			buffer.append(Exporter.newLine);
-		}
-
-		return buffer.toString();
-	}
-
-  public static void leftJustify(SB s, String s1, String s2) {
-    s.append(s2);
-    int n = s1.length() - s2.length();
-    if (n > 0)
-      s.append(s1.substring(0, n));
-  }
-  
-  public static void rightJustify(SB s, String s1, String s2) {
-    int n = s1.length() - s2.length();
-    if (n > 0)
-      s.append(s1.substring(0, n));
-    s.append(s2);
+  /**
+   * Compresses the data into FIX format
+   * 
+   * @param startIndex
+   *        startIndex the start index of the data to be compressed
+   * @param step
+   * @param endIndex
+   *        endIndex the end index of the data to be compressed
+   * @param xFactor
+   *        x factor for compression
+   * @param yFactor
+   *        y factor for compression
+   */
+  void compressFIX(int startIndex, int endIndex, int step, double xFactor,
+                   double yFactor) {
+    endIndex += step;
+    for (int i = startIndex; i != endIndex;) {
+      int pt = len;
+      appendNumber(xValues[i] / xFactor);
+      appendSpaces(14 - (len - pt));
+      for (int j = 0; j < 6 && i != endIndex; j++) {
+        long y = Math.round(yValues[i] / yFactor);
+        appendSpaces(10 - getLength(y));
+        appendLong(y);
+        append(" ");
+        i += step;
+      }
+      writeLine();
+    }
   }
-  
+
   /**
-   * Compresses the <code>Coordinate<code>s into SQZ format
+   * Compresses the data into SQZ format
    * 
-   * @param xyCoords
-   *        the array of <code>Coordinate</code>s
    * @param startIndex
-   *        startIndex the start index of the array of Coordinates to be
-   *        compressed
+   *        startIndex the start index of the data to be compressed
    * @param endIndex
-   *        endIndex the end index of the array of Coordinates to be compressed
+   *        endIndex the end index of the data to be compressed
    * @param step 
    * @param xFactor
    *        x factor for compression
    * @param yFactor
    *        y factor for compression
-   * @return A String representing the compressed data
    */
-  static String compressSQZ(Coordinate[] xyCoords, int startIndex,
-                            int endIndex, int step, double xFactor,
-                            double yFactor) {
-    SB yStr = new SB();
+  void compressSQZ(int startIndex, int endIndex, int step, double xFactor,
+                   double yFactor) {
     endIndex += step;
-    SB buffer = new SB();
     for (int i = startIndex; i == startIndex || i != endIndex;) {
-      buffer.append(fixIntNoExponent(xyCoords[i].getXVal() / xFactor));
-      yStr.setLength(0);
-      yStr.append(makeSQZ(xyCoords[i], yFactor));
+      appendNumber(xValues[i] / xFactor);
+      int yStart = len;
+      appendCompressed(Math.round(yValues[i] / yFactor), SQZ_POS, SQZ_NEG);
       i += step;
-      while ((yStr.length() < 60) && i != endIndex) {
-        yStr.append(makeSQZ(xyCoords[i], yFactor));
+      while ((len - yStart < 60) && i != endIndex) {
+        appendCompressed(Math.round(yValues[i] / yFactor), SQZ_POS, SQZ_NEG);
         i += step;
       }
-      buffer.append(yStr.toString()).append(Exporter.newLine);
+      writeLine();
     }
-    return buffer.toString();
   }
 
   /**
-   * Compresses the <code>Coordinate<code>s into PAC format
+   * Compresses the data into PAC format
    * 
-   * @param xyCoords
-   *        the array of <code>Coordinate</code>s
    * @param startIndex
-   *        startIndex the start index of the array of Coordinates to be
-   *        compressed
+   *        startIndex the start index of the data to be compressed
    * @param endIndex
-   *        endIndex the end index of the array of Coordinates to be compressed
+   *        endIndex the end index of the data to be compressed
    * @param step 
    * @param xFactor
    *        x factor for compression
    * @param yFactor
    *        y factor for compression
-   * @return A String representing the compressed data
    */
-  static String compressPAC(Coordinate[] xyCoords, int startIndex,
-                            int endIndex, int step, double xFactor,
-                            double yFactor) {
-    SB buffer = new SB();
+  void compressPAC(int startIndex, int endIndex, int step, double xFactor,
+                   double yFactor) {
     endIndex += step;
     for (int i = startIndex; i != endIndex;) {
-      buffer.append(
-          fixIntNoExponent(xyCoords[i].getXVal() / xFactor)).append(
-          fixPacY(xyCoords[i].getYVal() / yFactor));
+      appendNumber(xValues[i] / xFactor);
+      appendPacY(yValues[i] / yFactor);
       i += step;
       for (int j = 0; j < 4 && i != endIndex; j++) {
         // Print remaining Y values on a line
-        buffer.append(fixPacY(xyCoords[i].getYVal() / yFactor));
+        appendPacY(yValues[i] / yFactor);
         i += step;
       }
-      buffer.append(Exporter.newLine);
+      writeLine();
     }
-    return buffer.toString();
-  }
-
-  private static String fixPacY(double y) {
-    return (y < 0 ? "" : " ") + fixIntNoExponent(y);
   }
 
   /**
-   * Makes a SQZ Character for a y value
+   * Writes the data as x, y values
    * 
-   * @param pt
-   *        the input point
-   * @param yFactor
-   * @return the SQZ character
+   * @param startIndex
+   *        that start index
+   * @param endIndex
+   *        the end index
+   * @param step 
    */
-  private static String makeSQZ(Coordinate pt, double yFactor) {
-    return makeSQZ(Math.round(pt.getYVal() / yFactor));
+  void writeXYList(int startIndex, int endIndex, int step) {
+    endIndex += step;
+    for (int i = startIndex; i != endIndex; i += step) {
+      appendNumber(xValues[i]);
+      append(", ");
+      appendNumber(yValues[i]);
+      writeLine();
+    }
   }
 
+  private void appendPacY(double y) {
+    if (y >= 0 || Double.isNaN(y))
+      append(" ");
+    appendNumber(y);
+  }
+
+  private final static String SQZ_POS = "@ABCDEFGHI";
+  private final static String SQZ_NEG = "abcdefghi";
+  private final static String DIF_POS = "%JKLMNOPQR";
+  private final static String DIF_NEG = "jklmnopqr";
+  private final static String DUP_POS = "0STUVWXYZs";
+
   /**
-   * Makes a SQZ Character
+   * Appends a SQZ, DIF, or DUP number, replacing its first digit and "-" sign
+   * with a letter
    * 
    * @param y
-   *        the input number
-   * @return the SQZ character
+   * @param strPos
+   * @param strNeg
    */
-  private static String makeSQZ(long y) {
-    return compress(y, "@ABCDEFGHI", "abcdefghi");
+  private void appendCompressed(long y, String strPos, String strNeg) {
+    if (y == Long.MIN_VALUE) {
+      // no positive equivalent
+      String s = String.valueOf(y).substring(1);
+      int pt = len;
+      append(s);
+      line[pt] = strNeg.charAt(s.charAt(0) - '1');
+      return;
+    }
+    int pt = len;
+    appendLong(Math.abs(y));
+    char ch = line[pt];
+    line[pt] = (y < 0 ? strNeg.charAt(ch - '1') : strPos.charAt(ch - '0'));
   }
 
   /**
-   * Makes a DIF Character
-   * @param dy 
+   * Appends a number as an integer if it is one, just as
+   * String.valueOf((int) x) would, or otherwise with up to ten decimal places.
    * 
-   * @return the DIF Character
+   * @param x
    */
-  private static String makeDIF(long dy) {
-    return compress(dy, "%JKLMNOPQR", "jklmnopqr");
+  private void appendNumber(double x) {
+    if (x == Math.floor(x))
+      appendLong((int) x);
+    else
+      append(DF.formatDecimalTrimmed(x, 10));
   }
 
   /**
-   * Makes a DUP Character
-   * @param y 
-   * 
-   * @return the DUP character
+   * @param n
+   * @return the number of characters in String.valueOf(n)
    */
-  private static String makeDUP(long y) {
-    return compress(y, "0STUVWXYZs", "");
+  private static int getLength(long n) {
+    if (n == Long.MIN_VALUE)
+      return 20;
+    int nChar = (n < 0 ? 2 : 1);
+    for (n = Math.abs(n); n >= 10; n /= 10)
+      nChar++;
+    return nChar;
   }
 
-  /**
-   * replace first character and "-" sign with a letter
-   * 
-   * @param y
-   * @param strPos
-   * @param strNeg
-   * @return compressed string
-   */
-  private static String compress(long y, String strPos, String strNeg) {
-    boolean negative = false;
-    String yStr = String.valueOf(y);
-    char ch = yStr.charAt(0);
-    if (ch == '-') {
-      negative = true;
-      yStr = yStr.substring(1);
-      ch = yStr.charAt(0);
+  private void appendLong(long n) {
+    if (n == Long.MIN_VALUE) {
+      append(String.valueOf(n));
+      return;
+    }
+    int nChar = getLength(n);
+    ensureCapacity(nChar);
+    if (n < 0) {
+      line[len] = '-';
+      n = -n;
     }
-    char[] yStrArray = yStr.toCharArray();
-    yStrArray[0] = (negative ? strNeg.charAt(ch - '1') : strPos
-        .charAt(ch - '0'));
-    return new String(yStrArray);
+    len += nChar;
+    int pt = len;
+    do {
+      line[--pt] = (char) ('0' + (int) (n % 10));
+      n /= 10;
+    } while (n > 0);
   }
 
-  /**
-   * Converts and returns the list of Coordinates as a string
-   * 
-   * @param xyCoords
-   *        the array of coordinates
-   * @param startIndex
-   *        that start index
-   * @param endIndex
-   *        the end index
-   * @param step 
-   * @return returns the list of Coordinates as a string
-   */
-  static String getXYList(Coordinate[] xyCoords, int startIndex, int endIndex,
-                          int step) {
-    endIndex += step;
-    SB buffer = new SB();
-    for (int i = startIndex; i != endIndex; i += step) {
-      Coordinate point = xyCoords[i];
-      buffer.append(fixIntNoExponent(point.getXVal())).append(", ")
-          .append(fixIntNoExponent(point.getYVal())).append(
-              Exporter.newLine);
-    }
-    return buffer.toString();
+  private void appendSpaces(int n) {
+    if (n <= 0)
+      return;
+    ensureCapacity(n);
+    for (int i = n; --i >= 0;)
+      line[len++] = ' ';
   }
 
-	private static String fixIntNoExponent(double x) {
-	  return (x == Math.floor(x) ? String.valueOf((int) x) : DF.formatDecimalTrimmed(x, 10));
-	}
+  private void append(String s) {
+    int n = s.length();
+    ensureCapacity(n);
+    s.getChars(0, n, line, len);
+    len += n;
+  }
+
+  private void ensureCapacity(int n) {
+    if (len + n <= line.length)
+      return;
+    char[] a = new char[Math.max(line.length * 2, len + n)];
+    System.arraycopy(line, 0, a, 0, len);
+    line = a;
+  }
 
+  private void writeLine() {
+    append(Exporter.newLine);
+    out.append(new String(line, 0, len));
+    len = 0;
+  }
 
 }
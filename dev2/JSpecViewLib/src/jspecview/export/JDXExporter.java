@@ -23,7 +23,6 @@ import java.io.IOException;
 
 import javajs.util.DF;
 import javajs.util.OC;
-import javajs.util.Lst;
 import javajs.util.PT;
 
 import jspecview.api.JSVExporter;
@@ -34,6 +33,7 @@ import jspecview.common.JSViewer;
 import jspecview.common.PanelData;
 import jspecview.source.JDXReader;
 import jspecview.source.JDXDataObject;
+import jspecview.source.JDXHeaderTable;
 
 /**
  * class <code>JDXExporter</code> contains methods for exporting a
@@ -93,25 +93,23 @@ public class JDXExporter implements JSVExporter {
    */
   private void toStringAux(int startIndex, int endIndex) {
 
-    Coordinate[] newXYCoords = spectrum.getXYCoords();
-    String tabDataSet = "", tmpDataClass = "XYDATA";
+    double[] xValues = spectrum.getXValues();
+    double[] yValues = spectrum.getYValues();
+    String tmpDataClass = "XYDATA";
 
     if (spectrum.isHZtoPPM()) {
       // convert back to Hz.
-      Coordinate[] xyCoords = newXYCoords;
-      newXYCoords = new Coordinate[xyCoords.length];
-      for (int i = 0; i < xyCoords.length; i++)
-        newXYCoords[i] = xyCoords[i].copy();
-      Coordinate.applyScale(newXYCoords, spectrum.getObservedFreq(), 1);
+      xValues = Coordinate.copy(xValues);
+      Coordinate.scale(xValues, spectrum.getObservedFreq());
     }
 
     double xCompFactor = spectrum.getXFactor();
-    boolean isIntegerX = areIntegers(newXYCoords, startIndex, endIndex, 1.0, true);
-    if (!isIntegerX && !areIntegers(newXYCoords, startIndex, endIndex, xCompFactor, true))
+    boolean isIntegerX = areIntegers(xValues, startIndex, endIndex, 1.0);
+    if (!isIntegerX && !areIntegers(xValues, startIndex, endIndex, xCompFactor))
       xCompFactor = 1;
     
-    double minY = Coordinate.getMinY(newXYCoords, startIndex, endIndex);
-    double maxY = Coordinate.getMaxY(newXYCoords, startIndex, endIndex);
+    double minY = Coordinate.getMin(yValues, startIndex, endIndex);
+    double maxY = Coordinate.getMax(yValues, startIndex, endIndex);
     double yCompFactor = spectrum.getYFactor();
 
     switch (type) {
@@ -123,8 +121,8 @@ public class JDXExporter implements JSVExporter {
       yCompFactor = 1;
       break;
     default:
-      boolean isIntegerY = areIntegers(newXYCoords, startIndex, endIndex, 1.0, false);
-      if (!isIntegerY && !areIntegers(newXYCoords, startIndex, endIndex, yCompFactor, false)) {
+      boolean isIntegerY = areIntegers(yValues, startIndex, endIndex, 1.0);
+      if (!isIntegerY && !areIntegers(yValues, startIndex, endIndex, yCompFactor)) {
         yCompFactor = (maxY - minY) / FACTOR_DIVISOR;
       }
       break;
@@ -136,36 +134,36 @@ public class JDXExporter implements JSVExporter {
       endIndex = t;
       step = -1;
     }
+    String varList = JDXReader.getVarList(tmpDataClass);
+    getHeaderString(tmpDataClass, minY, maxY,
+        xCompFactor, yCompFactor, startIndex, endIndex);
+    out.append("##" + tmpDataClass + "= " + varList + newLine);
+    // the data are written directly to the output, a line at a time
+    JDXCompressor compressor = new JDXCompressor(out, xValues, yValues);
     switch (type) {
     case DIF:
     case DIFDUP:
-      tabDataSet = JDXCompressor.compressDIF(newXYCoords, startIndex, endIndex, step, 
+      compressor.compressDIF(startIndex, endIndex, step, 
           xCompFactor, yCompFactor, type == ExportType.DIFDUP);
       break;
     case FIX:
-      tabDataSet = JDXCompressor.compressFIX(newXYCoords, startIndex, endIndex, step, 
+      compressor.compressFIX(startIndex, endIndex, step, 
           xCompFactor, yCompFactor);
       break;
     case PAC:
-      tabDataSet = JDXCompressor.compressPAC(newXYCoords, startIndex, endIndex, step, 
+      compressor.compressPAC(startIndex, endIndex, step, 
           xCompFactor, yCompFactor);
       break;
     case SQZ:
-      tabDataSet = JDXCompressor.compressSQZ(newXYCoords, startIndex, endIndex, step, 
+      compressor.compressSQZ(startIndex, endIndex, step, 
           xCompFactor, yCompFactor);
       break;
     case XY:
-      tabDataSet = JDXCompressor.getXYList(newXYCoords, startIndex, endIndex, step);
+      compressor.writeXYList(startIndex, endIndex, step);
       break;
     default:
 			break;
     }
-
-    String varList = JDXReader.getVarList(tmpDataClass);
-    getHeaderString(tmpDataClass, minY, maxY,
-        xCompFactor, yCompFactor, startIndex, endIndex);
-    out.append("##" + tmpDataClass + "= " + varList + newLine);
-    out.append(tabDataSet);
     out.append("##END=");
   }
 
@@ -216,7 +214,7 @@ public class JDXExporter implements JSVExporter {
     out.append("##LONGDATE= ").append(longdate).append(newLine);
 
     // optional header
-    Lst<String[]> headerTable = spectrum.getHeaderTable();
+    JDXHeaderTable headerTable = spectrum.getLDRTable();
     for (int i = 0; i < headerTable.size(); i++) {
       String[] entry = headerTable.get(i);
       String label = entry[0];
@@ -233,7 +231,7 @@ public class JDXExporter implements JSVExporter {
     if (observedFreq != JDXDataObject.ERROR)
       out.append("##.OBSERVE FREQUENCY= ").append("" + observedFreq).append(
           newLine);
-    if (spectrum.observedNucl != "")
+    if (spectrum.observedNucl.length() > 0)
       out.append("##.OBSERVE NUCLEUS= ").append(spectrum.observedNucl).append(
           newLine);
     //now need to put pathlength here
@@ -251,15 +249,15 @@ public class JDXExporter implements JSVExporter {
     out.append("##YFACTOR= ").append(fixExponentInt(tmpYFactor))
         .append(newLine);
     double f = (spectrum.isHZtoPPM() ? observedFreq : 1);
-    Coordinate[] xyCoords = spectrum.getXYCoords();
+    double[] xValues = spectrum.getXValues();
     out.append("##FIRSTX= ").append(
-        fixExponentInt(xyCoords[startIndex].getXVal() * f)).append(
+        fixExponentInt(xValues[startIndex] * f)).append(
         newLine);
     out.append("##FIRSTY= ").append(
-        fixExponentInt(xyCoords[startIndex].getYVal())).append(
+        fixExponentInt(spectrum.getYValues()[startIndex])).append(
         newLine);
     out.append("##LASTX= ").append(
-        fixExponentInt(xyCoords[endIndex].getXVal() * f)).append(
+        fixExponentInt(xValues[endIndex] * f)).append(
         newLine);
     out.append("##NPOINTS= ").append("" + (Math.abs(endIndex - startIndex) + 1))
         .append(newLine);
@@ -269,10 +267,10 @@ public class JDXExporter implements JSVExporter {
         newLine);
   }
 
-  private static boolean areIntegers(Coordinate[] xyCoords, int startIndex,
-                                     int endIndex, double factor, boolean isX) {
+  private static boolean areIntegers(double[] values, int startIndex,
+                                     int endIndex, double factor) {
     for (int i = startIndex; i <= endIndex; i++) {
-      double x = (isX ? xyCoords[i].getXVal() : xyCoords[i].getYVal()) / factor;
+      double x = values[i] / factor;
       if (isAlmostInteger(x))
           return false;
     }
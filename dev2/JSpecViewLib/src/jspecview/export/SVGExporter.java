@@ -21,20 +21,15 @@ package jspecview.export;
 
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Hashtable;
 
 import javajs.api.GenericColor;
 import javajs.util.CU;
-import javajs.util.DF;
 import javajs.util.OC;
-import javajs.util.Lst;
 
 
 import org.jmol.util.Logger;
 
 import jspecview.common.ColorParameters;
-import jspecview.common.Coordinate;
 import jspecview.common.ExportType;
 import jspecview.common.Spectrum;
 import jspecview.common.JSViewer;
@@ -100,9 +95,7 @@ public class SVGExporter extends FormExporter {
 			unitsColor = pd.getColor(ScriptToken.UNITSCOLOR);
 		}
 
-		Coordinate[] xyCoords = spec.getXYCoords();
-
-		ScaleData scaleData = new ScaleData(xyCoords, startIndex, endIndex, spec
+		ScaleData scaleData = new ScaleData(spec, startIndex, endIndex, spec
 				.isContinuous(), spec.isInverted());
 
 		double maxXOnScale = scaleData.maxXOnScale;
@@ -122,85 +115,65 @@ public class SVGExporter extends FormExporter {
 		int titlePosition = bottomPlotArea + 60;
 		context.put("titlePosition", new Integer(titlePosition));
 
-		double xPt, yPt;
-		String xStr, yStr;
-
 		// Grid
-		Lst<Map<String, String>> vertGridCoords = new Lst<Map<String, String>>();
-		Lst<Map<String, String>> horizGridCoords = new Lst<Map<String, String>>();
-
-		for (double i = minXOnScale; i < maxXOnScale + xStep / 2; i += xStep) {
-			xPt = leftPlotArea + ((i - minXOnScale) * xScaleFactor);
-			yPt = topPlotArea;
-			xStr = DF.formatDecimalTrimmed(xPt, 6);
-			yStr = DF.formatDecimalTrimmed(yPt, 6);
-			Map<String, String> hash = new Hashtable<String, String>();
-			hash.put("xVal", xStr);
-			hash.put("yVal", yStr);
-			vertGridCoords.addLast(hash);
-		}
-
-		for (double i = minYOnScale; i < maxYOnScale + yStep / 2; i += yStep) {
-			xPt = leftPlotArea;
-			yPt = topPlotArea + ((i - minYOnScale) * yScaleFactor);
-			xStr = DF.formatDecimalTrimmed(xPt, 6);
-			yStr = DF.formatDecimalTrimmed(yPt, 6);
-			Map<String, String> hash = new Hashtable<String, String>();
-			hash.put("xVal", xStr);
-			hash.put("yVal", yStr);
-			horizGridCoords.addLast(hash);
-		}
+		int nX = 0;
+		for (double i = minXOnScale; i < maxXOnScale + xStep / 2; i += xStep)
+			nX++;
+		int nY = 0;
+		for (double i = minYOnScale; i < maxYOnScale + yStep / 2; i += yStep)
+			nY++;
+
+		double[] xPts = new double[nX];
+		double[] yPts = new double[nY];
+		int k = 0;
+		for (double i = minXOnScale; k < nX; i += xStep)
+			xPts[k++] = leftPlotArea + ((i - minXOnScale) * xScaleFactor);
+		k = 0;
+		for (double i = minYOnScale; k < nY; i += yStep)
+			yPts[k++] = topPlotArea + ((i - minYOnScale) * yScaleFactor);
+		FormList vertGridCoords = new FormList(0, nX)
+				.addField("xVal", xPts, FormList.FORMAT_TRIMMED, 6)
+				.addField("yVal", getArray(nX, topPlotArea), FormList.FORMAT_TRIMMED, 6);
+		FormList horizGridCoords = new FormList(0, nY)
+				.addField("xVal", getArray(nY, leftPlotArea), FormList.FORMAT_TRIMMED, 6)
+				.addField("yVal", yPts, FormList.FORMAT_TRIMMED, 6);
 
 		// Scale
 
-		Lst<Map<String, String>> xScaleList = new Lst<Map<String, String>>();
-		Lst<Map<String, String>> xScaleListReversed = new Lst<Map<String, String>>();
-		Lst<Map<String, String>> yScaleList = new Lst<Map<String, String>>();
 		int precisionX = scaleData.precision[0];
 		int precisionY = scaleData.precision[1];
-		for (double i = minXOnScale; i < (maxXOnScale + xStep / 2); i += xStep) {
-			xPt = leftPlotArea + ((i - minXOnScale) * xScaleFactor);
-			xPt -= 10; // shift to left by 10
-			yPt = bottomPlotArea + 15; // shift down by 15
-			xStr = DF.formatDecimalTrimmed(xPt, 6);
-			yStr = DF.formatDecimalTrimmed(yPt, 6);
-			String iStr = DF.formatDecimalDbl(i, precisionX);
-			Map<String, String> hash = new Hashtable<String, String>();
-			hash.put("xVal", xStr);
-			hash.put("yVal", yStr);
-			hash.put("number", iStr);
-			xScaleList.addLast(hash);
+		double[] xNumbers = new double[nX];
+		xPts = new double[nX];
+		k = 0;
+		for (double i = minXOnScale; k < nX; i += xStep) {
+			xNumbers[k] = i;
+			xPts[k++] = leftPlotArea + ((i - minXOnScale) * xScaleFactor) - 10; // shift to left by 10
 		}
-		for (double i = minXOnScale, j = maxXOnScale; i < (maxXOnScale + xStep / 2); i += xStep, j -= xStep) {
-			xPt = leftPlotArea + ((j - minXOnScale) * xScaleFactor);
-			xPt -= 10;
-			yPt = bottomPlotArea + 15; // shift down by 15
-			xStr = DF.formatDecimalTrimmed(xPt, 6);
-			yStr = DF.formatDecimalTrimmed(yPt, 6);
-			String iStr = DF.formatDecimalDbl(i, precisionX);
-
-			Map<String, String> hash = new Hashtable<String, String>();
-			hash.put("xVal", xStr);
-			hash.put("yVal", yStr);
-			hash.put("number", iStr);
-			xScaleListReversed.addLast(hash);
-
-		}
-
-		for (double i = minYOnScale; (i < maxYOnScale + yStep / 2); i += yStep) {
-			xPt = leftPlotArea - 55;
-			yPt = bottomPlotArea - ((i - minYOnScale) * yScaleFactor);
-			yPt += 3; // shift down by three
-			xStr = DF.formatDecimalTrimmed(xPt, 6);
-			yStr = DF.formatDecimalTrimmed(yPt, 6);
-			String iStr = DF.formatDecimalDbl(i, precisionY);
-
-			Map<String, String> hash = new Hashtable<String, String>();
-			hash.put("xVal", xStr);
-			hash.put("yVal", yStr);
-			hash.put("number", iStr);
-			yScaleList.addLast(hash);
+		double[] xPtsReversed = new double[nX];
+		k = 0;
+		for (double j = maxXOnScale; k < nX; j -= xStep)
+			xPtsReversed[k++] = leftPlotArea + ((j - minXOnScale) * xScaleFactor) - 10;
+		double[] xScaleY = getArray(nX, bottomPlotArea + 15); // shift down by 15
+		FormList xScaleList = new FormList(0, nX)
+				.addField("xVal", xPts, FormList.FORMAT_TRIMMED, 6)
+				.addField("yVal", xScaleY, FormList.FORMAT_TRIMMED, 6)
+				.addField("number", xNumbers, FormList.FORMAT_DECIMAL, precisionX);
+		FormList xScaleListReversed = new FormList(0, nX)
+				.addField("xVal", xPtsReversed, FormList.FORMAT_TRIMMED, 6)
+				.addField("yVal", xScaleY, FormList.FORMAT_TRIMMED, 6)
+				.addField("number", xNumbers, FormList.FORMAT_DECIMAL, precisionX);
+
+		double[] yNumbers = new double[nY];
+		yPts = new double[nY];
+		k = 0;
+		for (double i = minYOnScale; k < nY; i += yStep) {
+			yNumbers[k] = i;
+			yPts[k++] = bottomPlotArea - ((i - minYOnScale) * yScaleFactor) + 3; // shift down by three
 		}
+		FormList yScaleList = new FormList(0, nY)
+				.addField("xVal", getArray(nY, leftPlotArea - 55), FormList.FORMAT_TRIMMED, 6)
+				.addField("yVal", yPts, FormList.FORMAT_TRIMMED, 6)
+				.addField("number", yNumbers, FormList.FORMAT_DECIMAL, precisionY);
 
 		double firstTranslateX, firstTranslateY, secondTranslateX, secondTranslateY;
 		double scaleX, scaleY;
@@ -257,14 +230,15 @@ public class SVGExporter extends FormExporter {
 		context.put("verticalGridCoords", vertGridCoords);
 		context.put("horizontalGridCoords", horizGridCoords);
 
-		Lst<Coordinate> newXYCoords = new Lst<Coordinate>();
-		for (int i = startIndex; i <= endIndex; i++)
-			newXYCoords.addLast(xyCoords[i]);
+		double[] xValues = spec.getXValues();
+		double[] yValues = spec.getYValues();
+		FormList newXYCoords = FormList.getCoordinates(xValues, yValues,
+				startIndex, endIndex);
 
 		double firstX, firstY, lastX;
-		firstX = xyCoords[startIndex].getXVal();
-		firstY = xyCoords[startIndex].getYVal();
-		lastX = xyCoords[endIndex].getXVal();
+		firstX = xValues[startIndex];
+		firstY = yValues[startIndex];
+		lastX = xValues[endIndex];
 
 		context.put("title", titleColor);
 		context.put("xyCoords", newXYCoords);
@@ -313,6 +287,13 @@ public class SVGExporter extends FormExporter {
 		return writeForm(vm);
 	}
 
+	private static double[] getArray(int n, double value) {
+		double[] a = new double[n];
+		for (int i = n; --i >= 0;)
+			a[i] = value;
+		return a;
+	}
+
   /**
    * Export an overlaid graph as SVG with specified Coordinates and Colors
    * @param fileName
@@ -23,11 +23,10 @@ import java.io.IOException;
 
 
 import javajs.util.OC;
-import javajs.util.Lst;
 
-import jspecview.common.Coordinate;
 import jspecview.common.Spectrum;
 import jspecview.common.JSViewer;
+import jspecview.source.JDXHeaderTable;
 
 /**
  * The XMLExporter should be a totally generic exporter
@@ -78,10 +77,10 @@ abstract class XMLExporter extends FormExporter {
   
   protected int startIndex;
   protected int endIndex;
-  protected Coordinate[] xyCoords;
+  protected double[] xValues;
   protected int npoints;
 
-  protected Lst<Coordinate> newXYCoords = new Lst<Coordinate>();
+  protected FormList newXYCoords;
 
   protected boolean setup(JSViewer viewer, Spectrum spec, OC out, int startIndex,
                              int endIndex) {
@@ -99,10 +98,10 @@ abstract class XMLExporter extends FormExporter {
     if (!continuous)
       return false;
 
-    xyCoords = spec.getXYCoords();
+    xValues = spec.getXValues();
     npoints = endIndex - startIndex + 1;
-    for (int i = startIndex; i <= endIndex; i++)
-      newXYCoords.addLast(xyCoords[i]);
+    newXYCoords = FormList.getCoordinates(xValues, spec.getYValues(),
+        startIndex, endIndex);
 
     title = spec.getTitle();
 
@@ -152,8 +151,8 @@ abstract class XMLExporter extends FormExporter {
 
     //pathlength = spec.getPathlength(); // ignored
     obFreq = spec.getObservedFreq();
-    firstX = xyCoords[startIndex].getXVal();
-    lastX = xyCoords[endIndex].getXVal();
+    firstX = xValues[startIndex];
+    lastX = xValues[endIndex];
     deltaX = spec.getDeltaX();
     datatype = spec.getDataType();
     if (datatype.contains("NMR")) {
@@ -165,7 +164,7 @@ abstract class XMLExporter extends FormExporter {
     // these may come back null, but context.put() turns that into ""
     // still, one must check for == null in tests here.
 
-    setParams(spec.getHeaderTable());
+    setParams(spec.getLDRTable());
     return true;
   }
 
@@ -204,7 +203,7 @@ abstract class XMLExporter extends FormExporter {
     return -1;
   }
 
-  private void setParams(Lst<String[]> table) {
+  private void setParams(JDXHeaderTable table) {
     for (int i = 0; i < table.size(); i++) {
       String[] entry = table.get(i);
       String val = entry[1];
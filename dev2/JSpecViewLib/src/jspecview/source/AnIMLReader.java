@@ -22,8 +22,6 @@ package jspecview.source;
 import java.io.BufferedReader;
 import java.io.IOException;
 
-import javajs.util.Base64;
-import javajs.util.BC;
 
 
 
@@ -230,17 +228,9 @@ public class AnIMLReader extends XMLReader {
         yaxisData[ii] = Double.parseDouble(parser.qualifiedValue());
       //System.out.println(npoints + " individual Y values now read");
     } else if (tagName.equals("encodedvalueset")) {
-      attrList = parser.getCharacters();
-      byte[] dataArray = Base64.decodeBase64(attrList);
-      if (dataArray.length != 0) {       
-        if (vectorType.equals("float64")) {
-        	for (int i = 0, pt = 0; i  < npoints; i++, pt += 8)
-        		yaxisData[i] = BC.bytesToDoubleToFloat(dataArray, pt, false);
-        } else {
-        	for (int i = 0, pt = 0; i  < npoints; i++, pt += 4)
-        		yaxisData[i] = BC.bytesToFloat(dataArray, pt, false);
-        }
-      }
+      int n = parser.getBase64Values(yaxisData, vectorType.equals("float64"));
+      if (n != 0 && n < npoints)
+        throw new Exception("only " + n + " of " + npoints + " values found");
     }
     parser.nextStartTag();
     tagName = parser.getTagName();
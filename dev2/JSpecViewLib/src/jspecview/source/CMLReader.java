@@ -32,7 +32,7 @@ import javajs.util.PT;
  * @author Prof. Robert J. Lancashire
  */
 
-class CMLReader extends XMLReader {
+public class CMLReader extends XMLReader {
 
   public CMLReader() {
   	// for reflection
@@ -61,8 +61,6 @@ class CMLReader extends XMLReader {
     return source;
   }
 
-  String Ydelim = "";
-
   /**
    * Process the XML events. The while() loop here
    * iterates through XML tags until a </xxxx> tag
@@ -227,37 +225,7 @@ class CMLReader extends XMLReader {
           for (int j = 0; j < npoints; j++)
             xaxisData[j] = firstX + (deltaX * j);
         } else {
-          int posDelim = 0;
-          int jj = -1;
-          String tempX = "";
-          Ydelim = " ";
-          attrList = parser.getCharacters().replace('\n', ' ').replace('\r', ' ')
-              .trim();
-
-          // now that we have the full string should tokenise it to then process individual X values
-          // for now using indexOf !!
-
-          do {
-            jj++;
-            posDelim = attrList.indexOf(Ydelim);
-            tempX = attrList.substring(0, posDelim);
-            xaxisData[jj] = Double.parseDouble(tempX) * xFactor;
-            attrList = attrList.substring(posDelim + 1, attrList.length())
-                .trim();
-            posDelim = attrList.indexOf(Ydelim);
-            while (posDelim > 0) {
-              jj++;
-              tempX = attrList.substring(0, posDelim);
-              xaxisData[jj] = Double.parseDouble(tempX) * xFactor;
-              attrList = attrList.substring(posDelim + 1, attrList.length())
-                  .trim();
-              posDelim = attrList.indexOf(Ydelim);
-            }
-            if (jj < npoints - 1) {
-              jj++;
-              xaxisData[jj] = Double.parseDouble(attrList) * xFactor;
-            }
-          } while (jj < npoints - 1);
+          readArray(xaxisData, " ", xFactor);
           firstX = xaxisData[0];
           lastX = xaxisData[npoints - 1];
           continuous = true;
@@ -275,43 +243,50 @@ class CMLReader extends XMLReader {
         if (npoints != npointsY.intValue())
           System.err.println("npoints variation between X and Y arrays");
         yaxisData = new double[npoints];
-        Ydelim = parser.getAttrValue("delimeter");
-        if (Ydelim.equals(""))
-          Ydelim = " ";
-        int posDelim = 0;
-        int jj = -1;
-        String tempY = "";
-        attrList = parser.getCharacters().replace('\n', ' ').replace('\r', ' ').trim();
-
-        // now that we have the full string should tokenise it to then process individual Y values
-        // for now using indexOf !!
-
-        do {
-          jj++;
-          posDelim = attrList.indexOf(Ydelim);
-          tempY = attrList.substring(0, posDelim);
-          yaxisData[jj] = Double.parseDouble(tempY) * yFactor;
-          attrList = attrList.substring(posDelim + 1, attrList.length()).trim();
-          posDelim = attrList.indexOf(Ydelim);
-          while (posDelim > 0) {
-            jj++;
-            tempY = attrList.substring(0, posDelim);
-            yaxisData[jj] = Double.parseDouble(tempY) * yFactor;
-            attrList = attrList.substring(posDelim + 1, attrList.length())
-                .trim();
-            posDelim = attrList.indexOf(Ydelim);
-          }
-          if (jj < npoints - 1) {
-            jj++;
-            yaxisData[jj] = Double.parseDouble(attrList) * yFactor;
-          }
-        } while (jj < npoints - 1);
+        readArray(yaxisData, parser.getAttrValue("delimeter"), yFactor);
       }
       firstY = yaxisData[0];
       specfound = true;
     }
   }
 
+  /**
+   * Reads the values of an array element, scanning its characters by index
+   * rather than copying what remains of the string for each value.
+   * 
+   * @param data
+   *        filled with the first data.length values
+   * @param delim
+   *        separating values, along with any white space; "" for white space
+   *        only
+   * @param factor
+   *        multiplier for each value
+   * @throws Exception
+   */
+  private void readArray(double[] data, String delim, double factor)
+      throws Exception {
+    String s = parser.getCharacters();
+    if (delim.trim().length() == 0)
+      delim = null;
+    int len = s.length();
+    int pt = 0;
+    for (int i = 0, n = data.length; i < n; i++) {
+      while (pt < len && s.charAt(pt) <= ' ')
+        pt++;
+      int pt0 = pt;
+      while (pt < len && s.charAt(pt) > ' '
+          && (delim == null || !s.startsWith(delim, pt)))
+        pt++;
+      if (pt == pt0)
+        throw new Exception("array has " + i + " values; expected " + n);
+      data[i] = Double.parseDouble(s.substring(pt0, pt)) * factor;
+      while (pt < len && s.charAt(pt) <= ' ')
+        pt++;
+      if (delim != null && s.startsWith(delim, pt))
+        pt += delim.length();
+    }
+  }
+
   Vector<double[]> peakData;
 
 
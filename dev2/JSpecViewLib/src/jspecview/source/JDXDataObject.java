@@ -9,6 +9,7 @@ import jspecview.common.Coordinate;
 import jspecview.common.Integral;
 import jspecview.common.Spectrum;
 import jspecview.common.Measurement;
+import jspecview.common.MinMaxPyramid;
 import jspecview.common.Annotation.AType;
 import jspecview.exception.JSVException;
 
@@ -486,7 +487,7 @@ public abstract class JDXDataObject extends JDXHeader {
 
 
 	public double getYRef() {
-		return (!isTransmittance() ? 0.0 : Coordinate.getMaxY(xyCoords, 0, xyCoords.length) < 2 ? 1.0 : 100.0);
+		return (!isTransmittance() ? 0.0 : getMaxY() < 2 ? 1.0 : 100.0);
 	}
 
 	public boolean isInverted() {
@@ -501,7 +502,7 @@ public abstract class JDXDataObject extends JDXHeader {
   public boolean canShowSolutionColor() {
     return (isContinuous() && canConvertTransAbs()
         && (xUnits.toLowerCase().contains("nanometer") || xUnits.equalsIgnoreCase("nm")) 
-        && getFirstX() < 401 && getLastX() > 699 && xyCoords.length >= 30);
+        && getFirstX() < 401 && getLastX() > 699 && getXData().length >= 30);
   }
 
   /**
@@ -611,13 +612,13 @@ public abstract class JDXDataObject extends JDXHeader {
     int n = 8;
     if (observedFreq != ERROR)
       n++;
-    if (observedNucl != "")
+    if (observedNucl.length() > 0)
       n++;
     String[][] rowData = getHeaderRowDataAsArray(true, n);
     int i = rowData.length - n;
     if (observedFreq != ERROR)
       rowData[i++] = new String[] { "##.OBSERVE FREQUENCY", "" + observedFreq };
-    if (observedNucl != "")
+    if (observedNucl.length() > 0)
       rowData[i++] = new String[] { "##.OBSERVE NUCLEUS", observedNucl };
     rowData[i++] = new String[] { "##XUNITS", isHZtoPPM ? "HZ" : xUnits };
     rowData[i++] = new String[] { "##YUNITS", yUnits };
@@ -632,7 +633,7 @@ public abstract class JDXDataObject extends JDXHeader {
     rowData[i++] = new String[] { "##XFACTOR", String.valueOf(getXFactor()) };
     rowData[i++] = new String[] { "##YFACTOR", String.valueOf(getYFactor()) };
     rowData[i++] = new String[] { "##NPOINTS",
-        String.valueOf(xyCoords.length) };
+        String.valueOf(getXData().length) };
     return rowData;
   }
 
@@ -678,29 +679,233 @@ public abstract class JDXDataObject extends JDXHeader {
   }
 
   /**
-   * Sets the array of coordinates
+   * Sets the array of coordinates; the array is retained as the current
+   * <code>Coordinate</code> view of the x and y values.
    * 
    * @param coords
    *        the array of Coordinates
    */
   public void setXYCoords(Coordinate[] coords) {
+    int n = coords.length;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = n; --i >= 0;) {
+      x[i] = coords[i].getXVal();
+      y[i] = coords[i].getYVal();
+    }
+    setXYData(x, y);
     xyCoords = coords;
   }
 
+  /**
+   * Sets the x and y values of this data object. The arrays are used directly,
+   * not copied.
+   * 
+   * @param x
+   *        the x values
+   * @param y
+   *        the y values
+   */
+  public void setXYData(double[] x, double[] y) {
+    xValues = x;
+    yValues = y;
+    xyCoords = null;
+    xPyramid = yPyramid = null;
+    xOrder = Integer.MIN_VALUE;
+    minX = minY = maxX = maxY = deltaX = Double.NaN;
+    dataVersion++;
+  }
+
+  /**
+   * Returns a min/max pyramid of the x values, created on first request. It
+   * is only needed when the x values are not ordered; see getXOrder().
+   * 
+   * @return the pyramid, or null if there are fewer than
+   *         MinMaxPyramid.MIN_POINTS points
+   */
+  public MinMaxPyramid getXPyramid() {
+    double[] x = getXData();
+    return (xPyramid != null || x.length < MinMaxPyramid.MIN_POINTS ? xPyramid
+        : (xPyramid = new MinMaxPyramid(x)));
+  }
+
+  /**
+   * Returns a min/max pyramid of the y values for fast range min/max queries,
+   * created on first request.
+   * 
+   * @return the pyramid, or null if there are fewer than
+   *         MinMaxPyramid.MIN_POINTS points
+   */
+  public MinMaxPyramid getYPyramid() {
+    double[] y = getYData();
+    return (yPyramid != null || y.length < MinMaxPyramid.MIN_POINTS ? yPyramid
+        : (yPyramid = new MinMaxPyramid(y)));
+  }
+
+  /**
+   * Returns a number that changes whenever the x or y values are changed
+   * through this object, so that anything derived from them can be checked.
+   * 
+   * @return the version
+   */
+  public int getDataVersion() {
+    return dataVersion;
+  }
+
+  /**
+   * Returns the order of the x values, checked on first request.
+   * 
+   * @return 1 if no x value is less than the one before it, -1 if none is
+   *         greater, or 0 if neither (or an x value is NaN)
+   */
+  public int getXOrder() {
+    return (xOrder == Integer.MIN_VALUE ? xOrder = Coordinate
+        .getOrder(getXData()) : xOrder);
+  }
+
+  /**
+   * Returns a <code>Coordinate</code> view of this object's own x and y
+   * values, created on first request. Changes made to the view are not seen by
+   * the primitive arrays; use {@link #setXYData(double[], double[])} to change
+   * the data.
+   * 
+   * @return the array of coordinates
+   */
+  public Coordinate[] getCoordinates() {
+    return (xyCoords == null ? xyCoords = Coordinate.getCoordinates(getXData(),
+        getYData()) : xyCoords);
+  }
+
+  /**
+   * Keep any existing <code>Coordinate</code> view in step with the primitive
+   * arrays after an in-place change.
+   */
+  private void updateCoordinates() {
+    if (xyCoords != null)
+      for (int i = xyCoords.length; --i >= 0;)
+        xyCoords[i].set(xValues[i], yValues[i]);
+  }
+
+  /**
+   * Shifts all x values by the given amount.
+   * 
+   * @param dx
+   */
+  public void shiftX(double dx) {
+    Coordinate.shift(getXData(), dx);
+    minX = maxX = Double.NaN;
+    xPyramid = null;
+    dataVersion++;
+    updateCoordinates();
+  }
+
+  /**
+   * Applies x and y scale factors to all values.
+   * 
+   * @param xScale
+   * @param yScale
+   */
+  public void applyScale(double xScale, double yScale) {
+    if (xScale == 1 && yScale == 1)
+      return;
+    Coordinate.scale(getXData(), xScale);
+    Coordinate.scale(getYData(), yScale);
+    minX = minY = maxX = maxY = deltaX = Double.NaN;
+    xPyramid = yPyramid = null;
+    xOrder = Integer.MIN_VALUE;
+    dataVersion++;
+    updateCoordinates();
+  }
+
   public JDXDataObject invertYAxis() {
-  	for (int i = xyCoords.length; --i >= 0;) {
-  		xyCoords[i].setYVal(-xyCoords[i].getYVal());
-  	}
+  	double[] yValues = getYData();
+  	for (int i = yValues.length; --i >= 0;)
+  		yValues[i] = -yValues[i];
+  	yPyramid = null;
+  	dataVersion++;
   	double d = minY;
   	minY = -maxY;
   	maxY = -d;
+  	updateCoordinates();
   	return this;
   }
   
   /**
-   * array of x,y coordinates
+   * x and y values of the data; set these using
+   * {@link #setXYData(double[], double[])} and get them using getXData() and
+   * getYData(), since they are null if the data were read lazily and have
+   * been released
+   */
+  double[] xValues, yValues;
+
+  /**
+   * ##XYDATA read lazily, decompressed only when needed; see
+   * JDXLazyData
    */
-  public Coordinate[] xyCoords;
+  JDXLazyData lazyData;
+
+  /**
+   * Returns this object's own x values (see Spectrum.getXValues() for those of
+   * the current subspectrum), decompressing them first if necessary.
+   * 
+   * @return the x values
+   */
+  public double[] getXData() {
+    return (lazyData == null ? xValues : lazyData.getData(this, true));
+  }
+
+  /**
+   * Returns this object's own y values, decompressing them first if
+   * necessary.
+   * 
+   * @return the y values
+   */
+  public double[] getYData() {
+    return (lazyData == null ? yValues : lazyData.getData(this, false));
+  }
+
+  /**
+   * Starts or ends a hold on the lazily read values of this spectrum's source,
+   * such as for one painting. Those used since the current or last hold began
+   * are not released, however many there are; see JDXLazyCache. Holds nest.
+   * 
+   * @param isHeld
+   */
+  public void holdLazyData(boolean isHeld) {
+    if (lazyData != null)
+      lazyData.cache.hold(isHeld);
+  }
+
+  /**
+   * Drops the values and everything made from them so that they can be
+   * garbage-collected; only for data read lazily, which can be decompressed
+   * again.
+   */
+  void releaseData() {
+    xValues = yValues = null;
+    xyCoords = null;
+    xPyramid = yPyramid = null;
+  }
+
+  /**
+   * Coordinate view of xValues and yValues, only created on demand
+   */
+  private Coordinate[] xyCoords;
+
+  /**
+   * min/max pyramids of xValues and yValues, only created on demand
+   */
+  private MinMaxPyramid xPyramid, yPyramid;
+
+  /**
+   * see getXOrder(); Integer.MIN_VALUE if not yet checked
+   */
+  private int xOrder = Integer.MIN_VALUE;
+
+  /**
+   * see getDataVersion()
+   */
+  private int dataVersion;
 
   /**
    * Returns the first X value
@@ -708,7 +913,7 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the first X value
    */
   public double getFirstX() {
-    return xyCoords[0].getXVal();
+    return getXData()[0];
   }
 
   /**
@@ -718,7 +923,7 @@ public abstract class JDXDataObject extends JDXHeader {
    */
   public double getFirstY() {
     //if(isIncreasing())
-    return xyCoords[0].getYVal();
+    return getYData()[0];
     //else
     //  return xyCoords[getNumberOfPoints() - 1].getYVal();
   }
@@ -730,7 +935,8 @@ public abstract class JDXDataObject extends JDXHeader {
    */
   public double getLastX() {
     // if(isIncreasing())
-    return xyCoords[xyCoords.length - 1].getXVal();
+    double[] xValues = getXData();
+    return xValues[xValues.length - 1];
     // else
     //   return xyCoords[0].getXVal();
   }
@@ -741,7 +947,8 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the last Y value
    */
   public double getLastY() {
-    return xyCoords[xyCoords.length - 1].getYVal();
+    double[] yValues = getYData();
+    return yValues[yValues.length - 1];
   }
 
   private double minX = Double.NaN, minY = Double.NaN;
@@ -755,7 +962,11 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the minimum x value in the list of coordinates
    */
   public double getMinX() {
-    return (Double.isNaN(minX) ? (minX = Coordinate.getMinX(xyCoords, 0, xyCoords.length)) : minX);
+    if (Double.isNaN(minX)) {
+      double[] x = getXData();
+      minX = Coordinate.getMin(x, 0, x.length);
+    }
+    return minX;
   }
 
   /**
@@ -765,7 +976,11 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the minimum x value in the list of coordinates
    */
   public double getMinY() {
-    return (Double.isNaN(minY) ? (minY = Coordinate.getMinY(xyCoords, 0, xyCoords.length)) : minY);
+    if (Double.isNaN(minY)) {
+      double[] y = getYData();
+      minY = Coordinate.getMin(y, 0, y.length);
+    }
+    return minY;
   }
 
   /**
@@ -775,7 +990,11 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the maximum x value in the list of coordinates
    */
   public double getMaxX() {
-    return (Double.isNaN(maxX) ? (maxX = Coordinate.getMaxX(xyCoords, 0, xyCoords.length)) : maxX);
+    if (Double.isNaN(maxX)) {
+      double[] x = getXData();
+      maxX = Coordinate.getMax(x, 0, x.length);
+    }
+    return maxX;
   }
 
   /**
@@ -785,7 +1004,11 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the maximum y value in the list of coordinates
    */
   public double getMaxY() {
-    return (Double.isNaN(maxY) ? (maxY = Coordinate.getMaxY(xyCoords, 0, xyCoords.length)) : maxY);
+    if (Double.isNaN(maxY)) {
+      double[] y = getYData();
+      maxY = Coordinate.getMax(y, 0, y.length);
+    }
+    return maxY;
   }
 
 	double normalizationFactor = 1;
@@ -795,8 +1018,7 @@ public abstract class JDXDataObject extends JDXHeader {
 		if (!isNMR() || !is1D())
 			return;
 		normalizationFactor = max / getMaxY();
-		maxY = Double.NaN;
-		Coordinate.applyScale(xyCoords, 1, normalizationFactor);
+		applyScale(1, normalizationFactor);
 		Logger.info("Y values have been scaled by a factor of " + normalizationFactor);		
 	}
 
@@ -806,7 +1028,7 @@ public abstract class JDXDataObject extends JDXHeader {
    * @return the delta X
    */
   public double getDeltaX() {
-    return (Double.isNaN(deltaX) ? (deltaX = Coordinate.deltaX(getLastX(), getFirstX(), xyCoords.length)) : deltaX);
+    return (Double.isNaN(deltaX) ? (deltaX = Coordinate.deltaX(getLastX(), getFirstX(), getXData().length)) : deltaX);
   }
 
   public void copyTo(JDXDataObject newObj) {
@@ -816,7 +1038,7 @@ public abstract class JDXDataObject extends JDXHeader {
     newObj.setOwner(owner);
     newObj.setDataClass(dataClass);
     newObj.setDataType(dataType);
-    newObj.setHeaderTable(headerTable);
+    newObj.setLDRTable(headerTable);
 
     newObj.setXFactor(xFactor);
     newObj.setYFactor(yFactor);
@@ -826,7 +1048,8 @@ public abstract class JDXDataObject extends JDXHeader {
     newObj.setYLabel(yLabel);
 
     //newSpectrum.setPathlength(getPathlength());
-    newObj.setXYCoords(xyCoords);
+    newObj.setXYData(getXData(), getYData());
+    newObj.xyCoords = xyCoords;
     newObj.setContinuous(continuous);
     newObj.setIncreasing(xIncreases);
 
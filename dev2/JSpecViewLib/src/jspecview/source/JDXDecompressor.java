@@ -30,8 +30,6 @@ import javajs.util.SB;
 
 import org.jmol.util.Logger;
 
-import jspecview.common.Coordinate;
-
 /**
  * JDXDecompressor contains static methods to decompress the data part of
  * JCAMP-DX spectra that have been compressed using DIF, FIX, SQZ or PAC
@@ -128,29 +126,34 @@ public class JDXDecompressor {
     //Logger.checkMemory();
   }
 
-  private Coordinate[] xyCoords;
+  private double[] xValues, yValues;
   private int ipt;
-  private String line, lastLine;
-  private int lineLen;
+  private char[] line;
+  private char[] lastLine = new char[100];
+  private int lineLen, lastLineLen;
   private SB errorLog;
 
-  private void addPoint(Coordinate pt) {
-    //System.out.println(pt);
-    if (ipt == xyCoords.length) {
-      Coordinate[] t = new Coordinate[ipt * 2];
-      System.arraycopy(xyCoords, 0, t, 0, ipt);
-      xyCoords = t;
+  private void addPoint(double x, double y) {
+    if (ipt == xValues.length) {
+      int n = Math.max(16, ipt * 2);
+      xValues = copyOf(xValues, ipt, n);
+      yValues = copyOf(yValues, ipt, n);
     }
-    double d = pt.getYVal();
-    if (d > maxY)
-      maxY = d;
-    else if (d < minY)
-      minY = d;
+    if (y > maxY)
+      maxY = y;
+    else if (y < minY)
+      minY = y;
     if (debugging)
-      logError("Coord: " + ipt + pt);
-    xyCoords[ipt++] = pt;
-    firstLastX[1] = pt.getXVal();
+      logError("Coord: " + ipt + "[" + x + ", " + y + "]");
+    xValues[ipt] = x;
+    yValues[ipt++] = y;
+    firstLastX[1] = x;
+  }
 
+  private static double[] copyOf(double[] a, int n, int len) {
+    double[] t = new double[len];
+    System.arraycopy(a, 0, t, 0, n);
+    return t;
   }
 
   //private static final double FMINY = 0.6;
@@ -164,14 +167,15 @@ public class JDXDecompressor {
   private double[] firstLastX;
 
   /**
-   * Determines the type of compression, decompresses the data and stores
-   * coordinates in an array to be returned
+   * Determines the type of compression and decompresses the data directly
+   * into arrays sized from ##NPOINTS, with no per-point object creation. The
+   * results are retrieved using getXValues() and getYValues().
    * 
    * @param errorLog
    * @param firstLastX 
-   * @return the array of <code>Coordinate</code>s
+   * @return the number of points found
    */
-  public Coordinate[] decompressData(SB errorLog, double[] firstLastX) {
+  public int decompressData(SB errorLog, double[] firstLastX) {
 
     this.errorLog = errorLog;
     this.firstLastX = firstLastX;
@@ -181,18 +185,20 @@ public class JDXDecompressor {
 
           testAlgorithm();
 
-    xyCoords = new Coordinate[nPoints];
+    xValues = new double[Math.max(nPoints, 0)];
+    yValues = new double[xValues.length];
 
     double difMax = Math.abs(0.35 * deltaX);
     double dif14 = Math.abs(1.4 * deltaX);
     double dif06 = Math.abs(0.6 * deltaX);
 
     try {
-      while ((line = t.readLineTrimmed()) != null && line.indexOf("##") < 0) {
+      while ((lineLen = t.readDataLine()) >= 0 && !t.isLabelLine(lineLen)) {
+        line = t.dataLine;
         lineNumber++;
         if (debugging)
-          logError(lineNumber + "\t" + line);
-        if ((lineLen = line.length()) == 0)
+          logError(lineNumber + "\t" + getLine());
+        if (lineLen == 0)
           continue;
         ich = 0;
         boolean isCheckPoint = (lastDif != Integer.MIN_VALUE);
@@ -202,52 +208,91 @@ public class JDXDecompressor {
           dx = firstX - xval;
         }
         xval += dx;
-        Coordinate point = new Coordinate().set(xval, (yval = getYValue()) * yFactor);
+        double y = (yval = getYValue()) * yFactor;
         if (ipt == 0) {
-          addPoint(point); // first data line only
+          addPoint(xval, y); // first data line only
         } else {
-          Coordinate lastPoint = xyCoords[ipt - 1];
-          double xdif = Math.abs(lastPoint.getXVal() - point.getXVal());
+          double lastX = xValues[ipt - 1];
+          double xdif = Math.abs(lastX - xval);
           // DIF Y checkpoint means X value does not advance at start
           // of new line. Remove last values and put in latest ones
           if (isCheckPoint && xdif < difMax) {
-            xyCoords[ipt - 1] = point;
+            double y0 = yValues[ipt - 1];
+            xValues[ipt - 1] = xval;
+            yValues[ipt - 1] = y;
             // Check for Y checkpoint error - Y values should correspond
-            double y = lastPoint.getYVal();
-            double y1 = point.getYVal();
-            if (y1 != y)
-              logError(lastLine + "\n" + line
+            if (y != y0)
+              logError(new String(lastLine, 0, lastLineLen) + "\n" + getLine()
                   + "\nY-value Checkpoint Error! Line " + lineNumber
-                  + " for y1=" + y1 + " y0=" + y);
+                  + " for y1=" + y + " y0=" + y0);
           } else {
-            addPoint(point);
+            addPoint(xval, y);
             // Check for X checkpoint error
             // first point of new line should be deltaX away
             // ACD/Labs seem to have large rounding error so using between 0.6 and 1.4
             if (xdif < dif06 || xdif > dif14)
-              logError(lastLine + "\n" + line
+              logError(new String(lastLine, 0, lastLineLen) + "\n" + getLine()
                   + "\nX-sequence Checkpoint Error! Line " + lineNumber
                   + " |x1-x0|=" + xdif + " instead of " + Math.abs(deltaX)
-                  + " for x1=" + point.getXVal() + " x0=" + lastPoint.getXVal());
+                  + " for x1=" + xval + " x0=" + lastX);
           }
         }
         while (ich < lineLen || difVal != Integer.MIN_VALUE || dupCount > 0) {
           xval += deltaX;
           if (!Double.isNaN(yval = getYValue()))
-            addPoint(new Coordinate().set(xval, yval * yFactor));
+            addPoint(xval, yval * yFactor);
         }
+        // keep this line for checkpoint messages, and let t read the next
+        // one into the buffer that held the last
+        char[] buf = lastLine;
         lastLine = line;
+        lastLineLen = lineLen;
+        t.dataLine = buf;
       }
     } catch (IOException ioe) {
     }
     if (nPoints != ipt) {
       logError("Decompressor did not find " + nPoints
           + " points -- instead " + ipt);
-      Coordinate[] temp = new Coordinate[ipt];
-      System.arraycopy(xyCoords, 0, temp, 0, ipt);
-      xyCoords = temp;
+      xValues = copyOf(xValues, ipt, ipt);
+      yValues = copyOf(yValues, ipt, ipt);
+    }
+    if (!(deltaX > 0)) {
+      reverse(xValues);
+      reverse(yValues);
     }
-    return (deltaX > 0 ? xyCoords : Coordinate.reverse(xyCoords));
+    return ipt;
+  }
+
+  /**
+   * @return the x values, in increasing order
+   */
+  public double[] getXValues() {
+    return xValues;
+  }
+
+  /**
+   * @return the y values, corresponding to getXValues()
+   */
+  public double[] getYValues() {
+    return yValues;
+  }
+
+  private static void reverse(double[] a) {
+    for (int i = 0, n = a.length; i < --n; i++) {
+      double v = a[i];
+      a[i] = a[n];
+      a[n] = v;
+    }
+  }
+
+  /**
+   * only used for logging
+   * 
+   * @return the current line as a trimmed string
+   */
+  private String getLine() {
+    return new String(line, 0, lineLen);
   }
 
   private void logError(String s) {
@@ -270,7 +315,7 @@ public class JDXDecompressor {
     }
     if (ich == lineLen)
       return Double.NaN;
-    char ch = line.charAt(ich);
+    char ch = line[ich];
     if (debugging)
       Logger.info("" + ch);
     switch (ch) {
@@ -363,19 +408,32 @@ public class JDXDecompressor {
     return getYValue();
   }
   
+  /**
+   * Appends the digits following a DIF or DUP character to its value.
+   * 
+   * @param i the value of the DIF or DUP character itself
+   * @return the full DIF or DUP value
+   */
   private int getDifDup(int i) {
     int ich0 = ich;
     next();
-    String s = i + line.substring(ich0, ich);
-    //System.out.println("skip " + ich0 + " " + this.ich + " " + s);
-    return (ich0 == ich ? i : Integer.valueOf(s).intValue());
+    if (ich0 == ich)
+      return i;
+    long v = Math.abs(i);
+    for (int pt = ich0; pt < ich; pt++) {
+      char ch = line[pt];
+      if (ch < '0' || ch > '9' || pt - ich0 > 8)
+        return Integer.valueOf(i + new String(line, ich0, ich - ich0)).intValue();
+      v = v * 10 + (ch - '0');
+    }
+    return (int) (i < 0 ? -v : v);
   }
 
   private double getValue() {
     int ich0 = ich;
     if (ich == lineLen)
       return Double.NaN;
-    char ch = line.charAt(ich);
+    char ch = line[ich];
     int leader = 0;
     switch (ch) {
     case '+':
@@ -423,7 +481,7 @@ public class JDXDecompressor {
       return getValue();
     }
     next();
-    return Double.valueOf(leader + line.substring(ich0, ich)).doubleValue();
+    return parseNumber(leader, true, ich0, ich);
   }
   
   private final static String WHITE_SPACE = " ,\t\n";
@@ -431,7 +489,7 @@ public class JDXDecompressor {
   private double getValueDelim() {
     int ich0 = ich;
     char ch = '\0';
-    while (ich < lineLen && WHITE_SPACE.indexOf(ch = line.charAt(ich)) >= 0)
+    while (ich < lineLen && WHITE_SPACE.indexOf(ch = line[ich]) >= 0)
       ich++;
     double factor = 1;
     switch (ch) {
@@ -444,21 +502,109 @@ public class JDXDecompressor {
     }
     ch = next();
     if (ch == 'E' && ich + 3 < lineLen)
-      switch (line.charAt(ich + 1)) {
+      switch (line[ich + 1]) {
       case '-':
       case '+':
         ich += 4;
-        if (ich < lineLen && (ch = line.charAt(ich)) >= '0' && ch <= '9')
+        if (ich < lineLen && (ch = line[ich]) >= '0' && ch <= '9')
           ich++;
         break;
       }
-    return factor * ((Double.valueOf(line.substring(ich0, ich))).doubleValue());
+    return factor * parseNumber(0, false, ich0, ich);
+  }
+
+  private final static double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+      1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+      1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  /**
+   * Parses a decimal number from line[ich0, ich1), optionally preceded by the
+   * value of an SQZ leading character. The common cases (at most 15 significant
+   * digits and a modest exponent) are computed with a single exact
+   * multiplication or division, which gives the same correctly rounded result
+   * as Double.valueOf; anything else is passed to Double.valueOf.
+   * 
+   * @param leader
+   *        SQZ digit value, -9 to 9
+   * @param hasLeader
+   * @param ich0
+   * @param ich1
+   * @return the value
+   */
+  private double parseNumber(int leader, boolean hasLeader, int ich0, int ich1) {
+    int pt = ich0;
+    while (pt < ich1 && line[pt] <= ' ')
+      pt++;
+    long m = Math.abs(leader);
+    int nDigits = (hasLeader ? 1 : 0);
+    int nFraction = -1;
+    int exp = 0;
+    boolean ok = true;
+    for (; pt < ich1 && ok; pt++) {
+      char ch = line[pt];
+      if (ch >= '0' && ch <= '9') {
+        m = m * 10 + (ch - '0');
+        if (++nDigits > 15)
+          ok = false;
+        if (nFraction >= 0)
+          nFraction++;
+      } else if (ch == '.' && nFraction < 0) {
+        nFraction = 0;
+      } else if (ch == 'E' && nDigits > 0) {
+        ok = (pt + 2 < ich1);
+        if (!ok)
+          break;
+        boolean isNeg = (line[++pt] == '-');
+        if (!isNeg && line[pt] != '+')
+          ok = false;
+        while (ok && ++pt < ich1) {
+          ch = line[pt];
+          if (ch < '0' || ch > '9')
+            ok = false;
+          else
+            exp = exp * 10 + (ch - '0');
+        }
+        if (isNeg)
+          exp = -exp;
+      } else {
+        ok = false;
+      }
+    }
+    if (ok && nDigits > 0) {
+      if (nFraction > 0)
+        exp -= nFraction;
+      double d = m;
+      if (exp > 0 && exp < POWERS_OF_TEN.length)
+        d *= POWERS_OF_TEN[exp];
+      else if (exp < 0 && -exp < POWERS_OF_TEN.length)
+        d /= POWERS_OF_TEN[-exp];
+      else if (exp != 0)
+        ok = false;
+      if (ok)
+        return (leader < 0 ? -d : d);
+    }
+    String s = new String(line, ich0, ich1 - ich0);
+    return Double.valueOf(hasLeader ? leader + s : s).doubleValue();
+  }
+
+  /**
+   * fast lookup for allDelim
+   */
+  private final static boolean[] isDelim = new boolean[128];
+
+  static {
+    for (int i = allDelim.length(); --i >= 0;)
+      isDelim[allDelim.charAt(i)] = true;
   }
 
 	private char next() {
-		while (ich < lineLen && allDelim.indexOf(line.charAt(ich)) < 0)
+		while (ich < lineLen) {
+			char ch = line[ich];
+			if (ch < 128 && isDelim[ch])
+				return ch;
 			ich++;
-		return (ich == lineLen ? '\0' : line.charAt(ich));
+		}
+		return '\0';
 	}
 
   private void testAlgorithm() {
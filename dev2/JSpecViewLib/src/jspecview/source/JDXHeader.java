@@ -218,24 +218,44 @@ public class JDXHeader {
   }
 
   // Table of header variables specific to the jdx source or spectrum
-  protected Lst<String[]> headerTable = new Lst<String[]>();
+  protected JDXHeaderTable headerTable = new JDXHeaderTable();
   
   /**
    * Sets the headerTable for this Source or spectrum
    * 
    * @param table
-   *        the header table
+   *        the header table, as a list of {label, value, clean label}
    */
   public void setHeaderTable(Lst<String[]> table) {
-    headerTable = table;
+    headerTable = new JDXHeaderTable(table);
   }
 
   /**
    * Returns the table of headers
    * 
-   * @return the table of headers
+   * @return the table of headers, as a list of {label, value, clean label}
    */
   public Lst<String[]> getHeaderTable() {
+    return headerTable.getList();
+  }
+
+  /**
+   * Sets the indexed table of headers for this Source or spectrum
+   * 
+   * @param table
+   *        the header table
+   */
+  public void setLDRTable(JDXHeaderTable table) {
+    headerTable = table;
+  }
+
+  /**
+   * Returns the indexed table of headers, without copying in any entries it
+   * shares with others
+   * 
+   * @return the table of headers
+   */
+  public JDXHeaderTable getLDRTable() {
     return headerTable;
   }
 
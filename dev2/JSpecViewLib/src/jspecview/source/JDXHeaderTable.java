@@ -0,0 +1,212 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+import java.util.Hashtable;
+import java.util.Map;
+
+import javajs.util.Lst;
+
+/**
+ * The LDRs of a source or spectrum not read into fields, each as {label,
+ * value, clean label}, indexed by label. A table may end with the entries of
+ * another, shared one, as each NTUPLES page does with those of its source.
+ */
+public class JDXHeaderTable {
+
+  Lst<String[]> list;
+
+  JDXHeaderTable shared;
+
+  private Map<String, String[]> labels; // first entry for each label
+  private Map<String, String[]> keys; // last entry for each key, upper case
+  private int nIndexed;
+  private boolean hasNonAscii;
+
+  public JDXHeaderTable() {
+    list = new Lst<String[]>();
+  }
+
+  /**
+   * @param list
+   *        entries, each {label, value, clean label}, kept as the table's own
+   */
+  public JDXHeaderTable(Lst<String[]> list) {
+    this.list = list;
+  }
+
+  /**
+   * Copies in any shared entries, so that the caller may list or change them
+   * all.
+   * 
+   * @return the entries of this table, as {label, value, clean label}
+   */
+  public Lst<String[]> getList() {
+    unshare();
+    // the caller may change any entry, so index them again when next needed
+    labels = null;
+    return list;
+  }
+
+  public int size() {
+    return list.size() + (shared == null ? 0 : shared.size());
+  }
+
+  public String[] get(int i) {
+    int n = list.size();
+    return (i < n ? list.get(i) : shared.get(i - n));
+  }
+
+  /**
+   * @param table
+   *        a table whose entries follow those of this one, without being
+   *        copied
+   */
+  void setShared(JDXHeaderTable table) {
+    unshare();
+    shared = table;
+  }
+
+  /**
+   * @param skip
+   *        clean labels to leave out
+   * @return a new table of this table's other entries, for setShared()
+   */
+  JDXHeaderTable copyWithout(String[] skip) {
+    JDXHeaderTable table = new JDXHeaderTable();
+    out: for (int i = 0, n = size(); i < n; i++) {
+      String[] entry = get(i);
+      for (int j = skip.length; --j >= 0;)
+        if (entry[2].equals(skip[j]))
+          continue out;
+      table.list.addLast(entry);
+    }
+    return table;
+  }
+
+  /**
+   * Sets the value of the first entry with this label, or adds an entry.
+   *
+   * @param label
+   * @param value
+   * @param key
+   *        the clean label
+   */
+  void addHeader(String label, String value, String key) {
+    // shared entries are not to be changed, and new ones go after them
+    unshare();
+    index();
+    String[] entry = labels.get(label);
+    if (entry == null)
+      list.addLast(new String[] { label, value, key });
+    else
+      entry[1] = value;
+  }
+
+  /**
+   * @param key
+   *        a label or clean label, in any case
+   * @return the last entry with that label or clean label, or null
+   */
+  public String[] getEntry(String key) {
+    String k = toKey(key);
+    if (k != null && !hasNonAscii())
+      return findKey(k);
+    for (int i = size(); --i >= 0;) {
+      String[] entry = get(i);
+      if (entry[0].equalsIgnoreCase(key) || entry[2].equalsIgnoreCase(key))
+        return entry;
+    }
+    return null;
+  }
+
+  private String[] findKey(String k) {
+    String[] entry = (shared == null ? null : shared.findKey(k));
+    if (entry == null) {
+      index();
+      entry = keys.get(k);
+    }
+    return entry;
+  }
+
+  private boolean hasNonAscii() {
+    index();
+    return hasNonAscii || shared != null && shared.hasNonAscii();
+  }
+
+  /**
+   * Indexes any entries added to list since it was last indexed.
+   */
+  private void index() {
+    int n = list.size();
+    if (labels == null || n < nIndexed) {
+      labels = new Hashtable<String, String[]>();
+      keys = new Hashtable<String, String[]>();
+      nIndexed = 0;
+      hasNonAscii = false;
+    }
+    for (; nIndexed < n; nIndexed++) {
+      String[] entry = list.get(nIndexed);
+      if (!labels.containsKey(entry[0]))
+        labels.put(entry[0], entry);
+      String k0 = toKey(entry[0]);
+      String k2 = toKey(entry[2]);
+      if (k0 == null || k2 == null) {
+        hasNonAscii = true;
+        continue;
+      }
+      keys.put(k0, entry);
+      keys.put(k2, entry);
+    }
+  }
+
+  /**
+   * Copies the shared entries into list.
+   */
+  private void unshare() {
+    if (shared == null)
+      return;
+    for (int i = 0, n = shared.size(); i < n; i++) {
+      String[] entry = shared.get(i);
+      list.addLast(new String[] { entry[0], entry[1], entry[2] });
+    }
+    shared = null;
+  }
+
+  /**
+   * @param s
+   * @return s in upper case, or null if it is not all ASCII
+   */
+  private static String toKey(String s) {
+    char[] chars = null;
+    for (int i = s.length(); --i >= 0;) {
+      char c = s.charAt(i);
+      if (c > '~')
+        return null;
+      if (c >= 'a' && c <= 'z') {
+        if (chars == null)
+          chars = s.toCharArray();
+        chars[i] = (char) (c + ('A' - 'a'));
+      }
+    }
+    return (chars == null ? s : new String(chars));
+  }
+
+}
@@ -0,0 +1,110 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+import javajs.util.Lst;
+
+/**
+ * The lazily read spectra of one source that hold their values, if no more
+ * than a given number of them may; see JDXLazyData.
+ * 
+ * The least recently used are released first, but never those used during the
+ * current or last hold, such as one painting of the spectra on display,
+ * including every row of a 2D view. So the spectra a painting needs are
+ * decompressed at most once for it, even if there are more of them than the
+ * limit, and are still there for the next painting.
+ */
+class JDXLazyCache {
+
+  /**
+   * the number of spectra that may hold their values at one time, or 0 for no
+   * limit
+   */
+  private int limit;
+
+  int useCount;
+
+  private Lst<JDXDataObject> loaded = new Lst<JDXDataObject>();
+  private int holdCount;
+
+  /**
+   * spectra last used at or after this use are not released
+   */
+  private int keepFrom = Integer.MAX_VALUE;
+
+  JDXLazyCache(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Starts or ends a hold. Holds nest.
+   * 
+   * @param isHeld
+   */
+  synchronized void hold(boolean isHeld) {
+    if (isHeld) {
+      if (holdCount++ == 0)
+        keepFrom = useCount + 1;
+    } else if (holdCount > 0 && --holdCount == 0) {
+      release(null);
+    }
+  }
+
+  /**
+   * Records that a spectrum has just been decompressed, releasing others if
+   * there are too many.
+   * 
+   * @param spec
+   */
+  synchronized void add(JDXDataObject spec) {
+    if (limit <= 0)
+      return;
+    loaded.addLast(spec);
+    release(spec);
+  }
+
+  /**
+   * Releases the least recently used spectra, other than spec and any used
+   * since the current or last hold began, until no more than limit hold their
+   * values, or there are no more to release.
+   * 
+   * @param spec
+   */
+  private void release(JDXDataObject spec) {
+    while (loaded.size() > limit) {
+      int iOldest = -1;
+      int oldest = keepFrom;
+      for (int i = loaded.size(); --i >= 0;) {
+        JDXDataObject s = loaded.get(i);
+        if (s != spec && s.lazyData.lastUsed < oldest) {
+          iOldest = i;
+          oldest = s.lazyData.lastUsed;
+        }
+      }
+      if (iOldest < 0)
+        return;
+      JDXDataObject s = loaded.removeItemAt(iOldest);
+      // values that have been changed are kept
+      if (s.getDataVersion() == s.lazyData.dataVersion)
+        s.releaseData();
+    }
+  }
+
+}
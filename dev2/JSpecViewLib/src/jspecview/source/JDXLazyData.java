@@ -0,0 +1,132 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import javajs.util.SB;
+
+import org.jmol.util.Logger;
+
+import jspecview.api.JSVMappedReader;
+
+/**
+ * The ##XYDATA of a BLOCKS or NTUPLES spectrum read lazily by JDXReader,
+ * left compressed until the spectrum's values are first asked for: either its
+ * lines or, for a memory-mapped file, a copy of their bytes. The
+ * spectrum's own parameters (xFactor, yFactor, nPointsFile, fileFirstX,
+ * fileLastX) say how to decompress it.
+ *
+ * With a limit set, JDXLazyCache releases the values of the least recently
+ * used spectra of the source, to be decompressed again if they are needed
+ * again, unless their values have been changed since they were decompressed.
+ * Decompression errors are logged rather than added to the source's error
+ * log.
+ */
+class JDXLazyData {
+
+  /**
+   * shared by the lazily read spectra of the source
+   */
+  JDXLazyCache cache;
+
+  private String data;
+  private JSVMappedReader section;
+  private int length;
+  private int lineNo;
+
+  private boolean isNormalized;
+  private float nmrMaxY = Float.NaN;
+  int dataVersion;
+  int lastUsed;
+
+  /**
+   * @param data
+   *        the data lines
+   * @param lineNo
+   *        the line number of the ##XYDATA label
+   */
+  JDXLazyData(String data, int lineNo) {
+    this.data = data;
+    this.lineNo = lineNo;
+  }
+
+  /**
+   * @param reader
+   *        a memory-mapped file
+   * @param start
+   *        the offset of the first data line
+   * @param end
+   *        the offset after the last data line
+   * @param lineNo
+   *        the line number of the ##XYDATA label
+   */
+  JDXLazyData(JSVMappedReader reader, int start, int end, int lineNo) {
+    // a copy of the lines, since the file's own reader will be closed
+    section = (JSVMappedReader) reader.getSection(start, end);
+    length = end - start;
+    this.lineNo = lineNo;
+  }
+
+  /**
+   * Records that the values are to be normalized as JDXReader.addSpectrum()
+   * would have done had they been decompressed when read.
+   *
+   * @param nmrMaxY
+   */
+  void setNormalization(float nmrMaxY) {
+    isNormalized = true;
+    this.nmrMaxY = nmrMaxY;
+  }
+
+  /**
+   * @param spec
+   * @param isX
+   * @return the x or y values of spec, decompressed if necessary
+   */
+  double[] getData(JDXDataObject spec, boolean isX) {
+    synchronized (cache) {
+      lastUsed = ++cache.useCount;
+      if (spec.xValues == null)
+        load(spec);
+      return (isX ? spec.xValues : spec.yValues);
+    }
+  }
+
+  private void load(JDXDataObject spec) {
+    BufferedReader br = (section == null ? new BufferedReader(
+        new StringReader(data)) : section.getSection(0, length));
+    SB errorLog = new SB();
+    JDXReader.decodeData(new JDXSourceStreamTokenizer(br, lineNo), spec, null,
+        errorLog);
+    if (errorLog.length() > 0)
+      Logger.warn(errorLog.toString());
+    if (isNormalized) {
+      if (!Float.isNaN(nmrMaxY))
+        spec.doNormalize(nmrMaxY);
+      else if (spec.getMaxY() >= 10000)
+        spec.doNormalize(1000);
+    }
+    dataVersion = spec.getDataVersion();
+    cache.add(spec);
+  }
+
+}
@@ -0,0 +1,64 @@
+/* Copyright (c) 2002-2009 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+/**
+ * Allows a JDXReader running on another thread to report its progress and to
+ * be cancelled. The reader updates the counts as it goes; once cancelled, it
+ * stops reading as though it had reached the end of the file, and its source
+ * should be discarded.
+ */
+public class JDXLoadMonitor {
+
+  private volatile long charsRead;
+  private volatile int spectraRead;
+  private volatile boolean isCancelled;
+
+  /**
+   * @return the number of characters of JCAMP-DX text read so far
+   */
+  public long getCharsRead() {
+    return charsRead;
+  }
+
+  /**
+   * @return the number of spectra read so far
+   */
+  public int getSpectraRead() {
+    return spectraRead;
+  }
+
+  public void cancel() {
+    isCancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return isCancelled;
+  }
+
+  void addChars(int n) {
+    charsRead += n;
+  }
+
+  void addSpectrum() {
+    spectraRead++;
+  }
+
+}
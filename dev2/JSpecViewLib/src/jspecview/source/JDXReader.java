@@ -77,6 +77,26 @@ public class JDXReader implements JmolJDXMOLReader {
 	}
 
   final static String ERROR_SEPARATOR = "=====================\n";
+
+  /**
+   * @param n
+   *        a number of threads (script LOADTHREADS), or 0 for the default
+   * @return n, or if it is 0, the number of processors, or 1 for JavaScript
+   */
+  public static int getParallelism(int n) {
+    return (n > 0 ? n : getDefaultParallelism());
+  }
+
+  private static int getDefaultParallelism() {
+    /**
+     * @j2sNative
+     * 
+     * return 1;
+     */
+    {
+      return Runtime.getRuntime().availableProcessors();
+    }
+  }
   
 	private float nmrMaxY = Float.NaN;
 	
@@ -92,6 +112,20 @@ public class JDXReader implements JmolJDXMOLReader {
 
   private boolean isZipFile;
 
+  private JDXLoadMonitor monitor;
+
+  /**
+   * the number of threads used to decompress the spectra of BLOCKS and
+   * NTUPLES files; with 1, each is decompressed as it is read
+   */
+  private int nThreads = 1;
+
+  /**
+   * set to leave the ##XYDATA of the spectra of BLOCKS and NTUPLES files
+   * compressed until it is first needed (script LOADLAZY); see JDXLazyData
+   */
+  private JDXLazyCache lazyCache;
+
   private String filePath;
 
   private boolean loadImaginary = true;
@@ -149,10 +183,48 @@ public class JDXReader implements JmolJDXMOLReader {
 	public static JDXSource createJDXSource(BufferedReader br, String filePath,
 			boolean obscure, boolean loadImaginary,
 			int iSpecFirst, int iSpecLast, float nmrMaxY) throws Exception {
+		return createJDXSource(br, filePath, obscure, loadImaginary, iSpecFirst,
+				iSpecLast, nmrMaxY, null, 0, false, 0);
+	}
+
+	/**
+	 * general entrance method, with progress reporting and cancellation for
+	 * loading on another thread
+	 * 
+	 * @param br
+	 * @param filePath
+	 * @param obscure
+	 * @param loadImaginary
+	 * @param iSpecFirst
+	 * @param iSpecLast
+	 * @param nmrMaxY 
+	 * @param monitor
+	 *        or null; only JCAMP-DX files report progress or can be cancelled
+	 * @param nThreads
+	 *        the number of threads used to decompress the spectra of BLOCKS and
+	 *        NTUPLES files and the entries of a local ZIP file, or 0 for the
+	 *        default; see getParallelism()
+	 * @param isLazy
+	 *        true to decompress the data of BLOCKS and NTUPLES spectra only when
+	 *        first needed
+	 * @param lazyLimit
+	 *        the number of those spectra that may hold decompressed data at one
+	 *        time, or 0 for no limit
+	 * @return source, or null if reading was cancelled, since what was read of
+	 *         the file is not all of it
+	 * @throws Exception
+	 */
+	public static JDXSource createJDXSource(BufferedReader br, String filePath,
+			boolean obscure, boolean loadImaginary, int iSpecFirst, int iSpecLast,
+			float nmrMaxY, JDXLoadMonitor monitor, int nThreads, boolean isLazy,
+			int lazyLimit) throws Exception {
 		String header = null;
+		nThreads = getParallelism(nThreads);
 		try {
 			if (br == null)
 				br = JSVFileManager.getBufferedReaderFromName(filePath, "##TITLE");
+			if (br instanceof JSVZipReader)
+				((JSVZipReader) br).setParallelism(nThreads);
 			br.mark(400);
 			char[] chs = new char[400];
 			br.read(chs, 0, 400);
@@ -177,8 +249,14 @@ public class JDXReader implements JmolJDXMOLReader {
 				}
 				return xmlSource;
 			}
-			return (new JDXReader(filePath, obscure, loadImaginary, iSpecFirst,
-					iSpecLast, nmrMaxY)).getJDXSource(br);
+			JDXReader reader = new JDXReader(filePath, obscure, loadImaginary,
+					iSpecFirst, iSpecLast, nmrMaxY);
+			reader.monitor = monitor;
+			reader.nThreads = nThreads;
+			if (isLazy)
+				reader.lazyCache = new JDXLazyCache(Math.max(lazyLimit, 0));
+			JDXSource source = reader.getJDXSource(br);
+			return (monitor != null && monitor.isCancelled() ? null : source);
 		} catch (Exception e) {
 			if (br != null)
 				br.close();
@@ -209,6 +287,7 @@ public class JDXReader implements JmolJDXMOLReader {
     source = new JDXSource(JDXSource.TYPE_SIMPLE, filePath);
     isZipFile = (reader instanceof JSVZipReader);
     t = new JDXSourceStreamTokenizer((BufferedReader) reader);
+    t.monitor = monitor;
     errorLog = new SB();
 
     String label = null;
@@ -219,7 +298,7 @@ public class JDXReader implements JmolJDXMOLReader {
       if (label != null && !isZipFile)
         errorLog.append("Warning - file is a concatenation without LINK record -- does not conform to IUPAC standards!\n");
       Spectrum spectrum = new Spectrum();
-      Lst<String[]> dataLDRTable = new Lst<String[]>();
+      JDXHeaderTable dataLDRTable = new JDXHeaderTable();
       while (!done && (label = t.getLabel()) != null && (value = getValue(label)) != null) {
         if (isTabularData) {
           setTabularDataType(spectrum, label);
@@ -246,7 +325,7 @@ public class JDXReader implements JmolJDXMOLReader {
           spectrum = new Spectrum();
         if (readDataLabel(spectrum, label, value, errorLog, obscure))
           continue;
-        addHeader(dataLDRTable, t.rawLabel, value);
+        dataLDRTable.addHeader(t.rawLabel, value, label);
         if (checkCustomTags(spectrum, label, value))
         	continue;
       }
@@ -264,7 +343,14 @@ public class JDXReader implements JmolJDXMOLReader {
 
 	private boolean isTabularData;  
   private boolean isTabularDataLabel(String label) {
-  	return (isTabularData = ("##DATATABLE##PEAKTABLE##XYDATA##XYPOINTS#".indexOf(label + "#") >= 0));
+  	switch (getLDR(label)) {
+  	case LDR_DATATABLE:
+  	case LDR_PEAKTABLE:
+  	case LDR_XYDATA:
+  	case LDR_XYPOINTS:
+  		return isTabularData = true;
+  	}
+  	return isTabularData = false;
   }
   
   private int firstSpec = 0;
@@ -301,10 +387,15 @@ public class JDXReader implements JmolJDXMOLReader {
 					Logger.info("Failed to create peak data: " + e);
 				}
 			}
-			if (acdMolFile != null)
+			if (acdMolFile != null) {
 				JSVFileManager.cachePut("mol", acdMolFile);
+				source.molFile = acdMolFile;
+			}
 		}
-    if (!Float.isNaN(nmrMaxY))
+    JDXLazyData lazyData = getLazyData(spectrum);
+    if (lazyData != null)
+    	lazyData.setNormalization(nmrMaxY);
+    else if (!Float.isNaN(nmrMaxY))
 			spectrum.doNormalize(nmrMaxY);
     else if (spectrum.getMaxY() >= 10000)
 			spectrum.doNormalize(1000);
@@ -317,6 +408,8 @@ public class JDXReader implements JmolJDXMOLReader {
 			return !(done = true);
 		spectrum.setBlockID(blockID);
 		source.addJDXSpectrum(null, spectrum, forceSub);
+		if (monitor != null)
+			monitor.addSpectrum();
 		return true;
 	}
 
@@ -327,7 +420,7 @@ public class JDXReader implements JmolJDXMOLReader {
 	 * @return source
 	 * @throws JSVException
 	 */
-	private JDXSource getBlockSpectra(Lst<String[]> sourceLDRTable)
+	private JDXSource getBlockSpectra(JDXHeaderTable sourceLDRTable)
 			throws JSVException {
 
 		Logger.debug("--JDX block start--");
@@ -335,11 +428,18 @@ public class JDXReader implements JmolJDXMOLReader {
 		String value = null;
 		boolean isNew = (source.type == JDXSource.TYPE_SIMPLE);
 		boolean forceSub = false;
+		// blocks are read sequentially but their ##XYDATA is decompressed in
+		// batches, in parallel; until a batch is added, errors found while
+		// reading go to temporary logs so that the final log is still in order
+		int batchSize = getBatchSize();
+		Lst<SpectrumTask> blocks = new Lst<SpectrumTask>();
+		SpectrumTask block = null;
+		SB mainLog = errorLog;
 		while ((label = t.getLabel()) != null 
 				 && !label.equals("##TITLE")) {
 			value = getValue(label);
 			if (isNew && !readHeaderLabel(source, label, value, errorLog, obscure))
-					addHeader(sourceLDRTable, t.rawLabel, value);
+					sourceLDRTable.addHeader(t.rawLabel, value, label);
 			if (label.equals("##BLOCKS")) {
 				int nBlocks = PT.parseInt(value);
 				if (nBlocks > 100 && firstSpec <= 0)
@@ -351,12 +451,12 @@ public class JDXReader implements JmolJDXMOLReader {
 		if (!"##TITLE".equals(label))
 			throw new JSVException("Unable to read block source");
 		if (isNew)
-			source.setHeaderTable(sourceLDRTable);
+			source.setLDRTable(sourceLDRTable);
 		source.type = JDXSource.TYPE_BLOCK;
 		source.isCompoundSource = true;
-		Lst<String[]> dataLDRTable;
+		JDXHeaderTable dataLDRTable;
 		Spectrum spectrum = new Spectrum();
-		dataLDRTable = new Lst<String[]>();
+		dataLDRTable = new JDXHeaderTable();
 		readDataLabel(spectrum, label, value, errorLog, obscure);
 		try {
 			String tmp;
@@ -368,12 +468,29 @@ public class JDXReader implements JmolJDXMOLReader {
 				label = tmp;
 				if (isTabularData) {
 					setTabularDataType(spectrum, label);
-					if (!processTabularData(spectrum, dataLDRTable))
+					if (lazyCache != null && spectrum.dataClass.equals("XYDATA")) {
+						spectrum.setLDRTable(dataLDRTable);
+						spectrum.checkRequiredTokens();
+						readLazyData(spectrum);
+					} else if (batchSize > 1 && spectrum.dataClass.equals("XYDATA")) {
+						spectrum.setLDRTable(dataLDRTable);
+						spectrum.checkRequiredTokens();
+						block = newBlockTask(spectrum, forceSub, mainLog);
+						block.t = t.readDataBlock();
+						errorLog = block.logAfter = new SB();
+					} else if (!processTabularData(spectrum, dataLDRTable)) {
 						throw new JSVException("Unable to read Block Source");
+					}
 					continue;
 				}
-				if (label.equals("##DATATYPE")
-						&& value.toUpperCase().equals("LINK")) {
+				boolean isLink = (label.equals("##DATATYPE") && value.toUpperCase()
+						.equals("LINK"));
+				if (isLink || label.equals("##NTUPLES") || label.equals("##VARNAME")) {
+					addBlockTasks(blocks, mainLog);
+					if (done)
+						return source;
+				}
+				if (isLink) {
 					// embedded LINK
 					getBlockSpectra(dataLDRTable);
 					spectrum = null;
@@ -387,7 +504,7 @@ public class JDXReader implements JmolJDXMOLReader {
 					break;
 				if (spectrum == null) {
 					spectrum = new Spectrum();
-					dataLDRTable = new Lst<String[]>();
+					dataLDRTable = new JDXHeaderTable();
 					if (label == "")
 						continue;
 					if (label == null) {
@@ -398,20 +515,38 @@ public class JDXReader implements JmolJDXMOLReader {
 				if (value == null) {
 					// ##END -- Process Block
 
-					if (spectrum.getXYCoords().length > 0
-							&& !addSpectrum(spectrum, forceSub))
-						return source;
+					if (block == null)
+						block = newBlockTask(spectrum, forceSub, mainLog);
+					errorLog = new SB();
+					blocks.addLast(block);
+					block = null;
+					// ACD assignments go to the spectrum being added, so add it now
+					if (blocks.size() >= batchSize || acdAssignments != null) {
+						addBlockTasks(blocks, mainLog);
+						if (done)
+							return source;
+					}
+					// the next block's peaks, if any, are its own
+					peakData = null;
 					spectrum = new Spectrum();
-					dataLDRTable = new Lst<String[]>();
+					dataLDRTable = new JDXHeaderTable();
 					continue;
 				}
 				if (readDataLabel(spectrum, label, value, errorLog, obscure))
 						continue;
 
-				addHeader(dataLDRTable, t.rawLabel, value);
+				dataLDRTable.addHeader(t.rawLabel, value, label);
+				if (!blocks.isEmpty() && getCustomLDR(label) >= LDR_MODELS) {
+					addQueuedBlocks(blocks, mainLog);
+					if (done)
+						return source;
+				}
 				if (checkCustomTags(spectrum, label, value))
 					continue;
 			} // End Source File
+			addBlockTasks(blocks, mainLog);
+			if (done)
+				return source;
 		} catch (Exception e) {
 			throw new JSVException(e.getMessage());
 		}
@@ -433,6 +568,61 @@ public class JDXReader implements JmolJDXMOLReader {
 //	}
 
 
+	private int getBatchSize() {
+		return (nThreads > 1 ? nThreads * 4 : 1);
+	}
+
+	/**
+	 * Starts a task for a block, taking over anything logged since the last
+	 * block was queued. The caller must give errorLog a new buffer.
+	 * 
+	 * @param spectrum
+	 * @param forceSub
+	 * @param mainLog
+	 * @return new task
+	 */
+	private SpectrumTask newBlockTask(Spectrum spectrum, boolean forceSub,
+			SB mainLog) {
+		SpectrumTask task = new SpectrumTask(spectrum, forceSub);
+		task.isBlock = true;
+		if (errorLog != mainLog)
+			task.logBefore = errorLog;
+		return task;
+	}
+
+	/**
+	 * Adds all queued blocks and restores errorLog to mainLog, appending anything
+	 * logged since the last block unless reading is done.
+	 * 
+	 * @param blocks
+	 * @param mainLog
+	 * @throws JSVException
+	 */
+	private void addBlockTasks(Lst<SpectrumTask> blocks, SB mainLog)
+			throws JSVException {
+		SB log = errorLog;
+		errorLog = mainLog;
+		addSpectrumTasks(blocks, true, null);
+		if (log != mainLog && !done)
+			mainLog.appendSB(log);
+	}
+
+	/**
+	 * Adds all queued blocks in the middle of reading another, before its
+	 * custom tags change the ACD and peak state that they are to be added with.
+	 * 
+	 * @param blocks
+	 * @param mainLog
+	 * @throws JSVException
+	 */
+	private void addQueuedBlocks(Lst<SpectrumTask> blocks, SB mainLog)
+			throws JSVException {
+		SB log = errorLog;
+		errorLog = mainLog;
+		addSpectrumTasks(blocks, true, null);
+		errorLog = log;
+	}
+
 	private void addErrorLogSeparator() {
     if (errorLog.length() > 0
         && errorLog.lastIndexOf(ERROR_SEPARATOR) != errorLog.length()
@@ -452,7 +642,7 @@ public class JDXReader implements JmolJDXMOLReader {
    * @return source
    */
   @SuppressWarnings("null")
-	private JDXSource getNTupleSpectra(Lst<String[]> sourceLDRTable,
+	private JDXSource getNTupleSpectra(JDXHeaderTable sourceLDRTable,
                                      JDXDataObject spectrum0, String label)
       throws JSVException {
     double[] minMaxY = new double[] { Double.MAX_VALUE, Double.MIN_VALUE };
@@ -472,7 +662,7 @@ public class JDXReader implements JmolJDXMOLReader {
     if (isNew) {
       source.type = JDXSource.TYPE_NTUPLE;
       source.isCompoundSource = true;
-      source.setHeaderTable(sourceLDRTable);
+      source.setLDRTable(sourceLDRTable);
     }
 
     // Read NTuple Table
@@ -502,6 +692,12 @@ public class JDXReader implements JmolJDXMOLReader {
 
     Spectrum spectrum = null;
     boolean isFirst = true;
+    // pages are read sequentially but decompressed in batches, in parallel;
+    // a batch size of 1 decompresses each page directly from the file
+    int batchSize = getBatchSize();
+    Lst<SpectrumTask> pages = new Lst<SpectrumTask>();
+    // every page's headers end with the same ones from the source
+    JDXHeaderTable pageHeaders = null;
     while (!done) {
       if ((label = t.getLabel()).equals("##ENDNTUPLES")) {
         t.getValue();
@@ -534,11 +730,11 @@ public class JDXReader implements JmolJDXMOLReader {
         }
       }
 
-      Lst<String[]> dataLDRTable = new Lst<String[]>();
-      spectrum.setHeaderTable(dataLDRTable);
+      JDXHeaderTable dataLDRTable = new JDXHeaderTable();
+      spectrum.setLDRTable(dataLDRTable);
 
       while (!label.equals("##DATATABLE")) {
-        addHeader(dataLDRTable, t.rawLabel, t.getValue());
+        dataLDRTable.addHeader(t.rawLabel, t.getValue(), label);
         label = t.getLabel();
       }
 
@@ -566,32 +762,192 @@ public class JDXReader implements JmolJDXMOLReader {
 
       setTabularDataType(spectrum, "##" + (continuous ? "XYDATA" : "PEAKTABLE"));
 
-      if (!readNTUPLECoords(spectrum, nTupleTable, plotSymbols, minMaxY))
+      if (!readNTUPLECoords(spectrum, nTupleTable, plotSymbols))
         throw new JSVException("Unable to read Ntuple Source");
+      SpectrumTask p = new SpectrumTask(spectrum, !isFirst);
+      if (!spectrum.dataClass.equals("XYDATA")) {
+        // nothing to decompress
+      } else if (lazyCache != null) {
+        readLazyData(spectrum);
+      } else {
+        p.t = (batchSize > 1 ? t.readDataBlock() : t);
+      }
       if (!spectrum.nucleusX.equals("?"))
         spectrum0.nucleusX = spectrum.nucleusX;
       spectrum0.nucleusY = spectrum.nucleusY;
       spectrum0.freq2dX = spectrum.freq2dX;
       spectrum0.freq2dY = spectrum.freq2dY;
       spectrum0.y2DUnits = spectrum.y2DUnits;
-      for (int i = 0; i < sourceLDRTable.size(); i++) {
-        String[] entry = sourceLDRTable.get(i);
-        String key = JDXSourceStreamTokenizer.cleanLabel(entry[0]);
-        if (!key.equals("##TITLE") && !key.equals("##DATACLASS")
-            && !key.equals("##NTUPLES"))
-          dataLDRTable.addLast(entry);
-      }
-      if (isOK)
-        addSpectrum(spectrum, !isFirst);
+      if (pageHeaders == null)
+        pageHeaders = sourceLDRTable.copyWithout(new String[] { "##TITLE",
+            "##DATACLASS", "##NTUPLES" });
+      dataLDRTable.setShared(pageHeaders);
+      pages.addLast(p);
+      if (pages.size() >= batchSize)
+        addSpectrumTasks(pages, isOK, minMaxY);
       isFirst = false;
       spectrum = null;
     }
+    addSpectrumTasks(pages, isOK, minMaxY);
     addErrorLogSeparator();
     source.setErrorLog(errorLog.toString());
     Logger.info("NTUPLE MIN/MAX Y = " + minMaxY[0] + " " + minMaxY[1]);
     return source;
   }
 
+  /**
+   * Decompresses the ##XYDATA of a batch of NTUPLES pages or BLOCKS blocks,
+   * possibly in parallel, and then adds their spectra, error logs, and Y
+   * ranges in file order, exactly as though they had been read one at a time.
+   * 
+   * @param tasks
+   *        cleared on return
+   * @param isOK
+   * @param minMaxY
+   *        or null
+   * @throws JSVException
+   */
+  private void addSpectrumTasks(Lst<SpectrumTask> tasks, boolean isOK,
+                                double[] minMaxY) throws JSVException {
+    int n = tasks.size();
+    if (n > 1) {
+      if (taskPool == null)
+        taskPool = (JDXTaskPool) JSViewer
+            .getInterface("jspecview.source.JDXTaskPool");
+      taskPool.runAll(tasks, nThreads);
+    } else if (n == 1) {
+      tasks.get(0).run();
+    }
+    for (int i = 0; i < n && !done; i++) {
+      SpectrumTask p = tasks.get(i);
+      if (p.logBefore != null)
+        errorLog.appendSB(p.logBefore);
+      errorLog.appendSB(p.log);
+      if (p.logAfter != null)
+        errorLog.appendSB(p.logAfter);
+      if (minMaxY != null) {
+        if (p.minMaxY[0] < minMaxY[0])
+          minMaxY[0] = p.minMaxY[0];
+        if (p.minMaxY[1] > minMaxY[1])
+          minMaxY[1] = p.minMaxY[1];
+      }
+      if (isOK && (!p.isBlock || getLazyData(p.spectrum) != null
+          || p.spectrum.getXValues().length > 0))
+        addSpectrum(p.spectrum, p.forceSub);
+    }
+    tasks.clear();
+  }
+
+  private JDXTaskPool taskPool;
+
+  /**
+   * One NTUPLES page or BLOCKS block, holding its own tokenizer (the file's own
+   * or one that has read ahead just this spectrum's data), error log, and Y
+   * range so that it can be decompressed independently of the others.
+   */
+  private class SpectrumTask implements Runnable {
+
+    Spectrum spectrum;
+    boolean forceSub;
+    boolean isBlock;
+    JDXSourceStreamTokenizer t; // null if there is no ##XYDATA to decompress
+    SB log = new SB();
+    SB logBefore, logAfter; // blocks only: logged while reading, in order
+    double[] minMaxY = new double[] { Double.MAX_VALUE, Double.MIN_VALUE };
+
+    SpectrumTask(Spectrum spectrum, boolean forceSub) {
+      this.spectrum = spectrum;
+      this.forceSub = forceSub;
+    }
+
+    @Override
+    public void run() {
+      if (t != null)
+        decompressData(t, spectrum, minMaxY, log);
+      t = null;
+    }
+  }
+
+  /**
+   * The labels that are read into fields or otherwise handled specially, by
+   * clean label; LDR_* is the index of each. The last five are matched by
+   * their first ten characters.
+   */
+  private final static String[] ldrLabels = {
+      "##TITLE", "##JCAMPDX", "##ORIGIN", "##OWNER", "##DATATYPE",
+      "##LONGDATE", "##DATE", "##TIME",
+      "##MINX", "##MINY", "##MAXX", "##MAXY", "##FIRSTY", "##DELTAX",
+      "##DATACLASS",
+      "##FIRSTX", "##LASTX", "##NPOINTS", "##XFACTOR", "##YFACTOR",
+      "##XUNITS", "##YUNITS", "##XLABEL", "##YLABEL", "##NUMDIM", "##OFFSET",
+      "##.OBSERVEFREQUENCY", "##.OBSERVENUCLEUS", "##$REFERENCEPOINT",
+      "##.SHIFTREFERENCE",
+      "##DATATABLE", "##PEAKTABLE", "##XYDATA", "##XYPOINTS",
+      "##PEAKASSIGNMENTS",
+      "##$MODELS", "##$PEAKS",
+      "##$SIGNALS", "##$MOLFILE", "##PEAKASSI", "##$UVIRASS", "##$MSFRAGM" };
+
+  private final static int LDR_NONE = -1;
+  private final static int LDR_TITLE = 0;
+  private final static int LDR_JCAMPDX = 1;
+  private final static int LDR_ORIGIN = 2;
+  private final static int LDR_OWNER = 3;
+  private final static int LDR_DATATYPE = 4;
+  private final static int LDR_LONGDATE = 5;
+  private final static int LDR_DATE = 6;
+  private final static int LDR_TIME = 7;
+  private final static int LDR_MINX = 8;
+  private final static int LDR_MINY = 9;
+  private final static int LDR_MAXX = 10;
+  private final static int LDR_MAXY = 11;
+  private final static int LDR_FIRSTY = 12;
+  private final static int LDR_DELTAX = 13;
+  private final static int LDR_DATACLASS = 14;
+  private final static int LDR_FIRSTX = 15;
+  private final static int LDR_LASTX = 16;
+  private final static int LDR_NPOINTS = 17;
+  private final static int LDR_XFACTOR = 18;
+  private final static int LDR_YFACTOR = 19;
+  private final static int LDR_XUNITS = 20;
+  private final static int LDR_YUNITS = 21;
+  private final static int LDR_XLABEL = 22;
+  private final static int LDR_YLABEL = 23;
+  private final static int LDR_NUMDIM = 24;
+  private final static int LDR_OFFSET = 25;
+  private final static int LDR_OBSERVEFREQUENCY = 26;
+  private final static int LDR_OBSERVENUCLEUS = 27;
+  private final static int LDR_REFERENCEPOINT = 28;
+  private final static int LDR_SHIFTREFERENCE = 29;
+  private final static int LDR_DATATABLE = 30;
+  private final static int LDR_PEAKTABLE = 31;
+  private final static int LDR_XYDATA = 32;
+  private final static int LDR_XYPOINTS = 33;
+  private final static int LDR_PEAKASSIGNMENTS = 34;
+  private final static int LDR_MODELS = 35;
+  private final static int LDR_PEAKS = 36;
+  private final static int LDR_SIGNALS = 37;
+  private final static int LDR_MOLFILE = 38;
+  private final static int LDR_PEAKASSI = 39;
+  private final static int LDR_UVIRASS = 40;
+  private final static int LDR_MSFRAGM = 41;
+
+  private final static Map<String, Integer> ldrCodes = new Hashtable<String, Integer>();
+
+  static {
+    for (int i = ldrLabels.length; --i >= 0;)
+      ldrCodes.put(ldrLabels[i], Integer.valueOf(i));
+  }
+
+  /**
+   * @param label
+   *        a clean label
+   * @return its LDR_* index, or LDR_NONE
+   */
+  private static int getLDR(String label) {
+    Integer ldr = ldrCodes.get(label);
+    return (ldr == null ? LDR_NONE : ldr.intValue());
+  }
+
 	/**
    * 
    * @param spectrum
@@ -610,54 +966,47 @@ public class JDXReader implements JmolJDXMOLReader {
     // NOTE: returning TRUE for these means they are 
     // not included in the header map -- is that what we want?
 
-    label += " ";
-    if (("##MINX ##MINY ##MAXX ##MAXY ##FIRSTY ##DELTAX ##DATACLASS ").indexOf(label) >= 0)
-      return true;
-
     // NMR variations: need observedFreq, offset, dataPointNum, and shiftRefType 
-    switch (("##FIRSTX  "
-    		  + "##LASTX   "
-    		  + "##NPOINTS "
-    		  + "##XFACTOR "
-    		  + "##YFACTOR "
-    		  + "##XUNITS  "
-    		  + "##YUNITS  "
-    		  + "##XLABEL  "
-    		  + "##YLABEL  "
-    		  + "##NUMDIM  "
-    		  + "##OFFSET  "
-    		  ).indexOf(label)) {
-    	case 0:
+    switch (getLDR(label)) {
+    	case LDR_MINX:
+    	case LDR_MINY:
+    	case LDR_MAXX:
+    	case LDR_MAXY:
+    	case LDR_FIRSTY:
+    	case LDR_DELTAX:
+    	case LDR_DATACLASS:
+    		return true;
+    	case LDR_FIRSTX:
         spectrum.fileFirstX = Double.parseDouble(value);
         return true;
-    	case 10:
+    	case LDR_LASTX:
         spectrum.fileLastX = Double.parseDouble(value);
         return true;
-    	case 20:
+    	case LDR_NPOINTS:
         spectrum.nPointsFile = Integer.parseInt(value);
         return true;
-    	case 30:
+    	case LDR_XFACTOR:
         spectrum.xFactor = Double.parseDouble(value);
         return true;
-    	case 40:
+    	case LDR_YFACTOR:
         spectrum.yFactor = Double.parseDouble(value);
         return true;
-    	case 50:
+    	case LDR_XUNITS:
         spectrum.setXUnits(value);
         return true;
-    	case 60:
+    	case LDR_YUNITS:
         spectrum.setYUnits(value);
         return true;
-    	case 70:
+    	case LDR_XLABEL:
         spectrum.setXLabel(value);
         return false; // store in hashtable
-    	case 80:
+    	case LDR_YLABEL:
         spectrum.setYLabel(value);
         return false; // store in hashtable
-    	case 90:
+    	case LDR_NUMDIM:
         spectrum.numDim = Integer.parseInt(value);
         return true;
-    	case 100:
+    	case LDR_OFFSET:
         if (spectrum.shiftRefType != 0) {
         	if (spectrum.offset == JDXDataObject.ERROR)
             spectrum.offset = Double.parseDouble(value);
@@ -667,51 +1016,44 @@ public class JDXReader implements JmolJDXMOLReader {
           spectrum.shiftRefType = 1;
         }
         return false;
-      default:
-        //    if (label.equals("##PATHLENGTH")) {
+        //    case LDR_PATHLENGTH:
         //      jdxObject.pathlength = value;
         //      return true;
-        //    }
-
-      	if (label.length() < 17)
-      		return false;   
-        if (label.equals("##.OBSERVEFREQUENCY ")) {
-          spectrum.observedFreq = Double.parseDouble(value);
-          return true;
-        }
-        if (label.equals("##.OBSERVENUCLEUS ")) {
-          spectrum.setObservedNucleus(value);
-          return true;    
-        }
-        if ((label.equals("##$REFERENCEPOINT ")) && (spectrum.shiftRefType != 0)) {
+    	case LDR_OBSERVEFREQUENCY:
+        spectrum.observedFreq = Double.parseDouble(value);
+        return true;
+    	case LDR_OBSERVENUCLEUS:
+        spectrum.setObservedNucleus(value);
+        return true;    
+    	case LDR_REFERENCEPOINT:
+        if (spectrum.shiftRefType != 0) {
           spectrum.offset = Double.parseDouble(value);
           // varian doesn't need dataPointNum
           spectrum.dataPointNum = 1;
           // varian type
           spectrum.shiftRefType = 2;
-          return false; // save in file  
         }
-        if (label.equals("##.SHIFTREFERENCE ")) {
-          //TODO: don't save in file??
-          if (!(spectrum.dataType.toUpperCase().contains("SPECTRUM")))
-            return true;
-          value = PT.replaceAllCharacters(value, ")(", "");
-          StringTokenizer srt =   new StringTokenizer(value, ",");
-          if (srt.countTokens() != 4)
-            return true;
-          try {
-            srt.nextToken();
-            srt.nextToken();
-            spectrum.dataPointNum = Integer.parseInt(srt.nextToken().trim());
-            spectrum.offset = Double.parseDouble(srt.nextToken().trim());
-          } catch (Exception e) {
-            return true;
-          }
-          if (spectrum.dataPointNum <= 0)
-            spectrum.dataPointNum = 1;
-          spectrum.shiftRefType = 0;
+        return false; // save in file  
+    	case LDR_SHIFTREFERENCE:
+        //TODO: don't save in file??
+        if (!(spectrum.dataType.toUpperCase().contains("SPECTRUM")))
+          return true;
+        value = PT.replaceAllCharacters(value, ")(", "");
+        StringTokenizer srt =   new StringTokenizer(value, ",");
+        if (srt.countTokens() != 4)
+          return true;
+        try {
+          srt.nextToken();
+          srt.nextToken();
+          spectrum.dataPointNum = Integer.parseInt(srt.nextToken().trim());
+          spectrum.offset = Double.parseDouble(srt.nextToken().trim());
+        } catch (Exception e) {
           return true;
         }
+        if (spectrum.dataPointNum <= 0)
+          spectrum.dataPointNum = 1;
+        spectrum.shiftRefType = 0;
+        return true;
     }
     return false;
   }
@@ -719,19 +1061,12 @@ public class JDXReader implements JmolJDXMOLReader {
   private static boolean readHeaderLabel(JDXHeader jdxHeader, String label,
                                          String value, SB errorLog,
                                          boolean obscure) {
-  	switch (("##TITLE###" +
-  			     "##JCAMPDX#" +
-  			     "##ORIGIN##" +
-  			     "##OWNER###" +
-  			     "##DATATYPE" +
-  			     "##LONGDATE" +
-  			     "##DATE####" +
-  			     "##TIME####").indexOf(label + "#")) {
-  	case 0:
+  	switch (getLDR(label)) {
+  	case LDR_TITLE:
       jdxHeader.setTitle(obscure || value == null || value.equals("") ? "Unknown"
           : value);
       return true;
-  	case 10:
+  	case LDR_JCAMPDX:
       jdxHeader.jcampdx = value;
       float version = PT.parseFloat(value);
       if (version >= 6.0 || Float.isNaN(version)) {
@@ -741,23 +1076,23 @@ public class JDXReader implements JmolJDXMOLReader {
                   + value + "\n");
       }
       return true;
-  	case 20:
+  	case LDR_ORIGIN:
       jdxHeader.origin = (value != null && !value.equals("") ? value
           : "Unknown");
       return true;
-  	case 30:
+  	case LDR_OWNER:
       jdxHeader.owner = (value != null && !value.equals("") ? value : "Unknown");
       return true;
-  	case 40:
+  	case LDR_DATATYPE:
       jdxHeader.dataType = value;
       return true;
-  	case 50:
+  	case LDR_LONGDATE:
       jdxHeader.longDate = value;
       return true;
-  	case 60:
+  	case LDR_DATE:
       jdxHeader.date = value;
       return true;
-  	case 70:
+  	case LDR_TIME:
       jdxHeader.time = value;
       return true;
     }
@@ -765,14 +1100,20 @@ public class JDXReader implements JmolJDXMOLReader {
   }
 
   private void setTabularDataType(JDXDataObject spectrum, String label) {
-    if (label.equals("##PEAKASSIGNMENTS"))
+    switch (getLDR(label)) {
+    case LDR_PEAKASSIGNMENTS:
       spectrum.setDataClass("PEAKASSIGNMENTS");
-    else if (label.equals("##PEAKTABLE"))
+      break;
+    case LDR_PEAKTABLE:
       spectrum.setDataClass("PEAKTABLE");
-    else if (label.equals("##XYDATA"))
+      break;
+    case LDR_XYDATA:
       spectrum.setDataClass("XYDATA");
-    else if (label.equals("##XYPOINTS"))
+      break;
+    case LDR_XYPOINTS:
       spectrum.setDataClass("XYPOINTS");
+      break;
+    }
 //    try {
 //      t.readLineTrimmed();
 //    } catch (IOException e) {
@@ -780,13 +1121,13 @@ public class JDXReader implements JmolJDXMOLReader {
 //    }
   }
 
-	private boolean processTabularData(JDXDataObject spec, Lst<String[]> table)
+	private boolean processTabularData(JDXDataObject spec, JDXHeaderTable table)
 			throws JSVException {
-		spec.setHeaderTable(table);
+		spec.setLDRTable(table);
 
 		if (spec.dataClass.equals("XYDATA")) {
 			spec.checkRequiredTokens();
-			decompressData(spec, null);
+			decompressData(t, spec, null, errorLog);
 			return true;
 		}
 		if (spec.dataClass.equals("PEAKTABLE") || spec.dataClass.equals("XYPOINTS")) {
@@ -815,10 +1156,18 @@ public class JDXReader implements JmolJDXMOLReader {
 		return false;
 	}
 
+  /**
+   * Reads the page's coordinate parameters and, for PEAKTABLE or XYPOINTS, its
+   * data. ##XYDATA is left for the caller to decompress.
+   * 
+   * @param spec
+   * @param nTupleTable
+   * @param plotSymbols
+   * @return false if the data class is not recognized
+   */
   private boolean readNTUPLECoords(JDXDataObject spec, 
                                           Map<String, Lst<String>> nTupleTable,
-                                          String[] plotSymbols,
-                                          double[] minMaxY) {
+                                          String[] plotSymbols) {
     Lst<String> list;
     if (spec.dataClass.equals("XYDATA")) {
       // Get Label Values
@@ -855,8 +1204,6 @@ public class JDXReader implements JmolJDXMOLReader {
       	if (spec.nucleusX == null)
           spec.nucleusX = "?";
       }
-
-      decompressData(spec, minMaxY);
       return true;
     }
     if (spec.dataClass.equals("PEAKTABLE") || spec.dataClass.equals("XYPOINTS")) {
@@ -874,22 +1221,84 @@ public class JDXReader implements JmolJDXMOLReader {
     return false;
   }
 
-  private void decompressData(JDXDataObject spec, double[] minMaxY) {
+  /**
+   * Decompresses ##XYDATA; only uses its parameters, so may be run on any
+   * thread.
+   * 
+   * @param t
+   * @param spec
+   * @param minMaxY
+   * @param errorLog
+   */
+  private static void decompressData(JDXSourceStreamTokenizer t,
+                                     JDXDataObject spec, double[] minMaxY,
+                                     SB errorLog) {
+    setDataParameters(spec);
+    decodeData(t, spec, minMaxY, errorLog);
+  }
+
+  /**
+   * Sets what is known about ##XYDATA from the spectrum's parameters alone,
+   * before it is decompressed: its direction and, for NMR data in Hz, its
+   * conversion to ppm.
+   * 
+   * @param spec
+   */
+  private static void setDataParameters(JDXDataObject spec) {
+    spec.setIncreasing(Coordinate.deltaX(spec.fileLastX, spec.fileFirstX,
+        spec.nPointsFile) > 0);
+    spec.setContinuous(true);
+    if (getFreq(spec) != JDXDataObject.ERROR
+        && spec.getXUnits().toUpperCase().equals("HZ")) {
+      spec.setXUnits("PPM");
+      spec.setHZtoPPM(true);
+    }
+  }
 
+  /**
+   * Sets the parameters of ##XYDATA and skips it, leaving it to be
+   * decompressed when first needed.
+   * 
+   * @param spec
+   */
+  private void readLazyData(JDXDataObject spec) {
+    setDataParameters(spec);
+    spec.lazyData = t.readLazyData();
+    spec.lazyData.cache = lazyCache;
+    spec.releaseData();
+  }
+
+  private static JDXLazyData getLazyData(JDXDataObject spec) {
+    return spec.lazyData;
+  }
+
+  private static double getFreq(JDXDataObject spec) {
+    return (Double.isNaN(spec.freq2dX) ? spec.observedFreq : spec.freq2dX);
+  }
+
+  /**
+   * Decompresses ##XYDATA for a spectrum whose parameters have been set by
+   * setDataParameters().
+   * 
+   * @param t
+   * @param spec
+   * @param minMaxY
+   * @param errorLog
+   */
+  static void decodeData(JDXSourceStreamTokenizer t, JDXDataObject spec,
+                         double[] minMaxY, SB errorLog) {
     int errPt = errorLog.length();
     double fileDeltaX = Coordinate.deltaX(spec.fileLastX, spec.fileFirstX,
         spec.nPointsFile);
-    spec.setIncreasing(fileDeltaX > 0);
-    spec.setContinuous(true);
     JDXDecompressor decompressor = new JDXDecompressor(t, spec.fileFirstX,
         spec.xFactor, spec.yFactor, fileDeltaX, spec.nPointsFile);
 
     double[] firstLastX = new double[2];
-    long t = System.currentTimeMillis();
-    Coordinate[] xyCoords = decompressor.decompressData(errorLog, firstLastX);
+    long time = System.currentTimeMillis();
+    int nPoints = decompressor.decompressData(errorLog, firstLastX);
+    double[] xValues = decompressor.getXValues();
     if (Logger.debugging)
-    	Logger.debug("decompression time = " + (System.currentTimeMillis() - t) + " ms");
-    spec.setXYCoords(xyCoords);
+    	Logger.debug("decompression time = " + (System.currentTimeMillis() - time) + " ms");
     double d = decompressor.getMinY();
     if (minMaxY != null) {
       if (d < minMaxY[0])
@@ -898,21 +1307,18 @@ public class JDXReader implements JmolJDXMOLReader {
       if (d > minMaxY[1])
         minMaxY[1] = d;
     }
-    double freq = (Double.isNaN(spec.freq2dX) ? spec.observedFreq
-        : spec.freq2dX);
+    double freq = getFreq(spec);
     // apply offset
     if (spec.offset != JDXDataObject.ERROR && freq != JDXDataObject.ERROR
         && spec.dataType.toUpperCase().contains("SPECTRUM")) {
       Coordinate
-          .applyShiftReference(xyCoords, spec.dataPointNum, spec.fileFirstX,
+          .applyShiftReference(xValues, spec.dataPointNum, spec.fileFirstX,
               spec.fileLastX, spec.offset, freq, spec.shiftRefType);
     }
 
-    if (freq != JDXDataObject.ERROR && spec.getXUnits().toUpperCase().equals("HZ")) {
-      Coordinate.applyScale(xyCoords, (1.0 / freq), 1);
-      spec.setXUnits("PPM");
-      spec.setHZtoPPM(true);
-    }
+    if (spec.isHZtoPPM())
+      Coordinate.scale(xValues, 1.0 / freq);
+    spec.setXYData(xValues, decompressor.getYValues());
     if (errorLog.length() != errPt) {
       errorLog.append(spec.getTitle()).append("\n");
       errorLog.append("firstX: " + spec.fileFirstX + " Found " + firstLastX[0]
@@ -921,7 +1327,7 @@ public class JDXReader implements JmolJDXMOLReader {
           + firstLastX[1] + "\n");
       errorLog.append("deltaX from Header " + fileDeltaX + "\n");
       errorLog.append("Number of points in Header " + spec.nPointsFile
-          + " Found " + xyCoords.length + "\n");
+          + " Found " + nPoints + "\n");
     } else {
       //errorLog.append("No Errors decompressing data\n");
     }
@@ -932,6 +1338,10 @@ public class JDXReader implements JmolJDXMOLReader {
 
   }
 
+  public static void addHeader(JDXHeaderTable table, String label, String value) {
+    table.addHeader(label, value, JDXSourceStreamTokenizer.cleanLabel(label));
+  }
+
   public static void addHeader(Lst<String[]> table, String label, String value) {
     String[] entry;
     for (int i = 0; i < table.size(); i++)
@@ -945,39 +1355,45 @@ public class JDXReader implements JmolJDXMOLReader {
 
 	////// JCAMP-DX/MOL reading //////
 	
+	private static int getCustomLDR(String label) {
+		int ldr = getLDR(label);
+		if (ldr < LDR_SIGNALS && label.length() > 10)
+			for (int i = LDR_SIGNALS; i <= LDR_MSFRAGM; i++)
+				if (label.startsWith(ldrLabels[i]))
+					return i;
+		return ldr;
+	}
+
 	private boolean checkCustomTags(Spectrum spectrum, String label,
 			String value) throws JSVException {
-		if (label.length() > 10)
-			label = label.substring(0, 10);
+		int ldr = getCustomLDR(label);
 		if (spectrum == null)
 			System.out.println(label);
 		else
 			modelSpectrum = spectrum;
-    int pt = "##$MODELS ##$PEAKS  ##$SIGNALS##$MOLFILE##PEAKASSI##$UVIRASS##$MSFRAGM".indexOf(label);
-    //        0         10        20        30        40        50        60        
-		if (pt < 0)
+		if (ldr < LDR_MODELS)
 			return false;
 		getMpr().set(this, filePath, null);
 		try {
 			reader = new BufferedReader(new StringReader(value));
-			switch (pt) {
-			case 0:
+			switch (ldr) {
+			case LDR_MODELS:
 				mpr.readModels();
 				break;
-			case 10:
-			case 20:
+			case LDR_PEAKS:
+			case LDR_SIGNALS:
 				peakData = new Lst<PeakInfo>();
-				source.peakCount += mpr.readPeaks(pt == 20, source.peakCount);
+				source.peakCount += mpr.readPeaks(ldr == LDR_SIGNALS, source.peakCount);
 				break;
-			case 30:
+			case LDR_MOLFILE:
 				// moldata - skip
 				acdAssignments = new Lst<String[]>();
 				acdMolFile = PT.rep(value, "$$ Empty String", "");
 				break;
-	    case 40:
-	    case 50:
-	    case 60:
-	    	acdAssignments = mpr.readACDAssignments(spectrum.nPointsFile, pt == 40);
+	    case LDR_PEAKASSI:
+	    case LDR_UVIRASS:
+	    case LDR_MSFRAGM:
+	    	acdAssignments = mpr.readACDAssignments(spectrum.nPointsFile, ldr == LDR_PEAKASSI);
 	      break;
 			}				
 		} catch (Exception e) {
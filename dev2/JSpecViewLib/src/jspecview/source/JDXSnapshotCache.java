@@ -0,0 +1,469 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javajs.util.Lst;
+
+import org.jmol.util.Logger;
+
+import jspecview.common.JSVFileManager;
+import jspecview.common.PeakInfo;
+import jspecview.common.Spectrum;
+
+/**
+ * A binary snapshot of the JDXSource read from a local file, kept in a
+ * directory set with JSVFileManager.setSnapshotDirectory(), so that the file
+ * can be reopened without being parsed again. A snapshot holds the header
+ * tables, peak lists, and x and y values of each spectrum, the values as
+ * plain doubles that are copied straight out of a read-only memory map of the
+ * snapshot.
+ *
+ * A snapshot is only used if the file's path, size, and modification time and
+ * the options it was read with all match those it was made for; otherwise
+ * the file is read as usual and the snapshot replaced. Only loaded (by name)
+ * by JSVFileManager for the Java application.
+ */
+public class JDXSnapshotCache {
+
+  private final static int MAGIC = 0x4A535653; // JSVS
+  private final static int VERSION = 2;
+  private final static Charset UTF8 = Charset.forName("UTF-8");
+
+  private File file;
+  private String key;
+
+  /**
+   * header tables and entries written or read so far, by reference
+   */
+  private Map<Object, Integer> written;
+  private Lst<Object> read;
+
+  public JDXSnapshotCache() {
+    // for reflection
+  }
+
+  /**
+   * @param dir
+   *        the snapshot directory
+   * @param filePath
+   *        a local file
+   * @param options
+   *        the reader options, which must match as well
+   * @return this, or null if filePath is not a local file
+   */
+  public JDXSnapshotCache set(String dir, String filePath, String options) {
+    File f = new File(filePath);
+    if (!f.isFile())
+      return null;
+    key = filePath + "\n" + f.length() + "\n" + f.lastModified() + "\n"
+        + options;
+    file = new File(dir, f.getName() + "."
+        + Integer.toHexString((filePath + "\n" + options).hashCode())
+        + ".jsvs");
+    return this;
+  }
+
+  /**
+   * @return the source restored from the snapshot, or null if there is none or
+   *         it is out of date
+   */
+  public JDXSource getSource() {
+    if (!file.isFile())
+      return null;
+    RandomAccessFile raf = null;
+    try {
+      raf = new RandomAccessFile(file, "r");
+      FileChannel fc = raf.getChannel();
+      ByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+          || !key.equals(readString(buf)))
+        return null;
+      read = new Lst<Object>();
+      JDXSource source = readSource(buf);
+      Logger.info("JDXSnapshotCache read " + file);
+      return source;
+    } catch (Exception e) {
+      Logger.warn("JDXSnapshotCache could not read " + file + ": " + e);
+      return null;
+    } finally {
+      read = null;
+      if (raf != null)
+        try {
+          raf.close();
+        } catch (IOException e) {
+        }
+    }
+  }
+
+  /**
+   * Writes the snapshot, replacing any earlier one. Any spectra read lazily
+   * are decompressed to do so.
+   *
+   * @param source
+   */
+  public void putSource(JDXSource source) {
+    File tmp = null;
+    DataOutputStream out = null;
+    try {
+      File dir = file.getParentFile();
+      if (!dir.isDirectory() && !dir.mkdirs())
+        throw new IOException("cannot create " + dir);
+      tmp = File.createTempFile("jsvs", ".tmp", dir);
+      out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(tmp), 1 << 16));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(out, key);
+      written = new IdentityHashMap<Object, Integer>();
+      writeSource(out, source);
+      out.close();
+      out = null;
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+        throw new IOException("cannot rename " + tmp);
+      tmp = null;
+      Logger.info("JDXSnapshotCache wrote " + file);
+    } catch (Exception e) {
+      Logger.warn("JDXSnapshotCache could not write " + file + ": " + e);
+    } finally {
+      written = null;
+      if (out != null)
+        try {
+          out.close();
+        } catch (IOException e) {
+        }
+      if (tmp != null)
+        tmp.delete();
+    }
+  }
+
+  private void writeSource(DataOutputStream out, JDXSource source)
+      throws IOException {
+    out.writeInt(source.type);
+    writeString(out, source.getFilePath());
+    out.writeBoolean(source.isCompoundSource);
+    out.writeInt(source.peakCount);
+    writeString(out, source.getErrorLog());
+    writeString(out, source.molFile);
+    writeHeader(out, source);
+    Lst<Spectrum> specs = source.getSpectra();
+    out.writeInt(specs.size());
+    for (int i = 0; i < specs.size(); i++) {
+      Spectrum spec = specs.get(i);
+      Lst<Spectrum> subSpecs = spec.getSubSpectra();
+      int nSub = (subSpecs == null ? 0 : subSpecs.size());
+      out.writeInt(nSub);
+      out.writeBoolean(spec.isForcedSubset());
+      writeSpectrum(out, spec);
+      // the first subspectrum is the spectrum itself
+      for (int j = 1; j < nSub; j++)
+        writeSpectrum(out, subSpecs.get(j));
+    }
+  }
+
+  private JDXSource readSource(ByteBuffer buf) {
+    int type = buf.getInt();
+    JDXSource source = new JDXSource(type, readString(buf));
+    source.isCompoundSource = (buf.get() != 0);
+    source.peakCount = buf.getInt();
+    source.setErrorLog(readString(buf));
+    source.molFile = readString(buf);
+    if (source.molFile != null)
+      JSVFileManager.cachePut("mol", source.molFile);
+    readHeader(buf, source);
+    Lst<Spectrum> specs = source.getSpectra();
+    for (int i = buf.getInt(); --i >= 0;) {
+      int nSub = buf.getInt();
+      boolean isForcedSubset = (buf.get() != 0);
+      Spectrum spec = readSpectrum(buf);
+      specs.addLast(spec);
+      for (int j = 1; j < nSub; j++) {
+        Spectrum sub = readSpectrum(buf);
+        if (!spec.addSubSpectrum(sub, j < nSub - 1 || isForcedSubset))
+          spec.addSubSpectrum(sub, true);
+      }
+    }
+    return source;
+  }
+
+  private void writeHeader(DataOutputStream out, JDXHeader h)
+      throws IOException {
+    writeString(out, h.title);
+    writeString(out, h.jcampdx);
+    writeString(out, h.dataType);
+    writeString(out, h.dataClass);
+    writeString(out, h.origin);
+    writeString(out, h.owner);
+    writeString(out, h.longDate);
+    writeString(out, h.date);
+    writeString(out, h.time);
+    writeTable(out, h.getLDRTable());
+  }
+
+  /**
+   * Writes a header table, or just a reference to it or to any of its entries
+   * already written, since the spectra of a BLOCKS or NTUPLES file often share
+   * them, followed by any table whose entries it shares.
+   * 
+   * @param out
+   * @param table
+   * @throws IOException
+   */
+  private void writeTable(DataOutputStream out, JDXHeaderTable table)
+      throws IOException {
+    if (writeRef(out, table))
+      return;
+    Lst<String[]> list = table.list;
+    out.writeInt(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      String[] entry = list.get(i);
+      if (writeRef(out, entry))
+        continue;
+      out.writeInt(entry.length);
+      for (int j = 0; j < entry.length; j++)
+        writeString(out, entry[j]);
+    }
+    out.writeBoolean(table.shared != null);
+    if (table.shared != null)
+      writeTable(out, table.shared);
+  }
+
+  /**
+   * @param out
+   * @param o
+   * @return true if o has already been written, in which case a reference to
+   *         it has been written instead
+   * @throws IOException
+   */
+  private boolean writeRef(DataOutputStream out, Object o) throws IOException {
+    Integer ref = written.get(o);
+    if (ref != null) {
+      out.writeInt(-1 - ref.intValue());
+      return true;
+    }
+    written.put(o, Integer.valueOf(written.size()));
+    return false;
+  }
+
+  private void readHeader(ByteBuffer buf, JDXHeader h) {
+    h.title = readString(buf);
+    h.jcampdx = readString(buf);
+    h.dataType = readString(buf);
+    h.dataClass = readString(buf);
+    h.origin = readString(buf);
+    h.owner = readString(buf);
+    h.longDate = readString(buf);
+    h.date = readString(buf);
+    h.time = readString(buf);
+    h.setLDRTable(readTable(buf));
+  }
+
+  private JDXHeaderTable readTable(ByteBuffer buf) {
+    int n = buf.getInt();
+    if (n < 0)
+      return (JDXHeaderTable) read.get(-1 - n);
+    JDXHeaderTable table = new JDXHeaderTable();
+    read.addLast(table);
+    Lst<String[]> list = table.list;
+    for (int i = 0; i < n; i++) {
+      int len = buf.getInt();
+      if (len < 0) {
+        list.addLast((String[]) read.get(-1 - len));
+        continue;
+      }
+      String[] entry = new String[checkLength(buf, len, 4)];
+      for (int j = 0; j < len; j++)
+        entry[j] = readString(buf);
+      read.addLast(entry);
+      list.addLast(entry);
+    }
+    if (buf.get() != 0)
+      table.shared = readTable(buf);
+    return table;
+  }
+
+  private void writeSpectrum(DataOutputStream out, Spectrum spec)
+      throws IOException {
+    writeHeader(out, spec);
+    writeString(out, spec.getFilePath());
+    out.writeBoolean(spec.isSimulation);
+    writeString(out, spec.sourceID);
+    out.writeDouble(spec.blockID);
+    out.writeDouble(spec.fileFirstX);
+    out.writeDouble(spec.fileLastX);
+    out.writeInt(spec.nPointsFile);
+    out.writeDouble(spec.xFactor);
+    out.writeDouble(spec.yFactor);
+    writeString(out, spec.varName);
+    writeString(out, spec.xUnits);
+    writeString(out, spec.yUnits);
+    writeString(out, spec.xLabel);
+    writeString(out, spec.yLabel);
+    out.writeInt(spec.nH);
+    writeString(out, spec.observedNucl);
+    out.writeDouble(spec.observedFreq);
+    out.writeDouble(spec.offset);
+    out.writeInt(spec.shiftRefType);
+    out.writeInt(spec.dataPointNum);
+    out.writeInt(spec.numDim);
+    writeString(out, spec.nucleusX);
+    writeString(out, spec.nucleusY);
+    out.writeDouble(spec.freq2dX);
+    out.writeDouble(spec.freq2dY);
+    out.writeDouble(spec.getY2D());
+    writeString(out, spec.y2DUnits);
+    out.writeBoolean(spec.isHZtoPPM);
+    out.writeBoolean(spec.isXIncreasing());
+    out.writeBoolean(spec.isContinuous());
+    out.writeDouble(((JDXDataObject) spec).normalizationFactor);
+    Lst<PeakInfo> peaks = spec.getPeakList();
+    writeString(out, spec.getPeakListUnits(true));
+    writeString(out, spec.getPeakListUnits(false));
+    out.writeInt(peaks.size());
+    for (int i = 0; i < peaks.size(); i++)
+      writeString(out, peaks.get(i).toString());
+    double[] x = spec.getXData();
+    double[] y = spec.getYData();
+    out.writeInt(x.length);
+    writeDoubles(out, x);
+    writeDoubles(out, y);
+  }
+
+  private Spectrum readSpectrum(ByteBuffer buf) {
+    Spectrum spec = new Spectrum();
+    readHeader(buf, spec);
+    spec.setFilePath(readString(buf));
+    spec.isSimulation = (buf.get() != 0);
+    spec.sourceID = readString(buf);
+    spec.blockID = buf.getDouble();
+    spec.fileFirstX = buf.getDouble();
+    spec.fileLastX = buf.getDouble();
+    spec.nPointsFile = buf.getInt();
+    spec.xFactor = buf.getDouble();
+    spec.yFactor = buf.getDouble();
+    spec.varName = readString(buf);
+    spec.xUnits = readString(buf);
+    spec.yUnits = readString(buf);
+    spec.xLabel = readString(buf);
+    spec.yLabel = readString(buf);
+    spec.nH = buf.getInt();
+    spec.observedNucl = readString(buf);
+    spec.observedFreq = buf.getDouble();
+    spec.offset = buf.getDouble();
+    spec.shiftRefType = buf.getInt();
+    spec.dataPointNum = buf.getInt();
+    spec.numDim = buf.getInt();
+    spec.nucleusX = readString(buf);
+    spec.nucleusY = readString(buf);
+    spec.freq2dX = buf.getDouble();
+    spec.freq2dY = buf.getDouble();
+    spec.setY2D(buf.getDouble());
+    spec.y2DUnits = readString(buf);
+    spec.isHZtoPPM = (buf.get() != 0);
+    spec.setIncreasing(buf.get() != 0);
+    spec.setContinuous(buf.get() != 0);
+    ((JDXDataObject) spec).normalizationFactor = buf.getDouble();
+    String piUnitsX = readString(buf);
+    String piUnitsY = readString(buf);
+    Lst<PeakInfo> peaks = new Lst<PeakInfo>();
+    for (int i = buf.getInt(); --i >= 0;)
+      peaks.addLast(new PeakInfo(readString(buf)));
+    spec.setPeakList(peaks, piUnitsX, piUnitsY);
+    int n = checkLength(buf, buf.getInt(), 16);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    readDoubles(buf, x);
+    readDoubles(buf, y);
+    spec.setXYData(x, y);
+    return spec;
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] d)
+      throws IOException {
+    byte[] b = new byte[Math.min(d.length, 4096) << 3];
+    DoubleBuffer db = ByteBuffer.wrap(b).asDoubleBuffer();
+    for (int i = 0, n; i < d.length; i += n) {
+      n = Math.min(d.length - i, 4096);
+      ((Buffer) db).clear();
+      db.put(d, i, n);
+      out.write(b, 0, n << 3);
+    }
+  }
+
+  private static void readDoubles(ByteBuffer buf, double[] d) {
+    buf.asDoubleBuffer().get(d);
+    ((Buffer) buf).position(buf.position() + (d.length << 3));
+  }
+
+  private static void writeString(DataOutputStream out, String s)
+      throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] b = s.getBytes(UTF8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  private static String readString(ByteBuffer buf) {
+    int n = buf.getInt();
+    if (n < 0)
+      return null;
+    if (n == 0)
+      return "";
+    byte[] b = new byte[checkLength(buf, n, 1)];
+    buf.get(b);
+    return new String(b, UTF8);
+  }
+
+  /**
+   * Checks a count read from a snapshot before anything is allocated for it.
+   *
+   * @param buf
+   * @param n
+   *        the number of items that follow
+   * @param size
+   *        the least number of bytes each item takes
+   * @return n
+   * @throws BufferUnderflowException
+   *         if the rest of the snapshot is too short, as it is when corrupt
+   */
+  private static int checkLength(ByteBuffer buf, int n, int size) {
+    if (n > buf.remaining() / size)
+      throw new BufferUnderflowException();
+    return n;
+  }
+
+}
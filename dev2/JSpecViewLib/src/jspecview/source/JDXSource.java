@@ -56,12 +56,18 @@ public class JDXSource extends JDXHeader {
   
   public int peakCount;
 
+  /**
+   * an ACD/Labs molfile read with the spectra, cached again when the source
+   * is restored from a snapshot
+   */
+  String molFile;
+
 	public boolean isView;
 
   public JDXSource(int type, String filePath) {
     this.type = type;
     setFilePath(filePath);
-    headerTable = new Lst<String[]>();
+    headerTable = new JDXHeaderTable();
     jdxSpectra = new Lst<Spectrum>();
     isCompoundSource = (type != TYPE_SIMPLE);
   }
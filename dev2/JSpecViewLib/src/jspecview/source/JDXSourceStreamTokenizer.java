@@ -21,11 +21,16 @@ package jspecview.source;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Hashtable;
+import java.util.Map;
 
 import javajs.util.SB;
 
 import org.jmol.util.Logger;
 
+import jspecview.api.JSVMappedReader;
+
 
 /**
  * @author Debbie-Ann Facey
@@ -36,9 +41,28 @@ import org.jmol.util.Logger;
 public class JDXSourceStreamTokenizer {
 
   private BufferedReader br;
+
+  /**
+   * br, if it reads a memory-mapped file, for reading data lines without
+   * creating a String for each
+   */
+  private JSVMappedReader mappedReader;
   
   JDXSourceStreamTokenizer(BufferedReader br) {
     this.br = br;
+    if (br instanceof JSVMappedReader)
+      mappedReader = (JSVMappedReader) br;
+  }
+
+  /**
+   * @param br
+   *        data lines only
+   * @param lineNo
+   *        the number in the file of the line before the first one
+   */
+  JDXSourceStreamTokenizer(BufferedReader br, int lineNo) {
+    this(br);
+    labelLineNo = this.lineNo = lineNo;
   }
 
   /**
@@ -58,6 +82,18 @@ public class JDXSourceStreamTokenizer {
 
   private int lineNo;
 
+  /**
+   * the labels read so far, raw label to {raw label, clean label}, so that
+   * each is cleaned only once and every header table from this source refers
+   * to the same label instances
+   */
+  private Map<String, String[]> labels;
+
+  /**
+   * progress and cancellation when loading on another thread; may be null
+   */
+  JDXLoadMonitor monitor;
+
   String peakLabel() {
     return nextLabel(false);
   }
@@ -100,7 +136,14 @@ public class JDXSourceStreamTokenizer {
     labelLineNo = lineNo;
     if (Logger.debugging)
       Logger.info(rawLabel);
-    return cleanLabel(rawLabel);
+    if (labels == null)
+      labels = new Hashtable<String, String[]>();
+    String[] symbol = labels.get(rawLabel);
+    if (symbol == null)
+      labels.put(rawLabel, symbol = new String[] { rawLabel,
+          cleanLabel(rawLabel) });
+    rawLabel = symbol[0];
+    return symbol[1];
   }
   
   /**
@@ -108,15 +151,32 @@ public class JDXSourceStreamTokenizer {
    * 
    * @param label
    *        the label to be cleaned
-   * @return the new label
+   * @return the new label, which is label itself if it is clean already
    */
   public static String cleanLabel(String label) {
     if (label == null)
       return null;
+    int n = label.length();
     int i;
+    out: for (i = 0; i < n; i++) {
+      char c = label.charAt(i);
+      switch (c) {
+      case '/':
+      case '\\':
+      case ' ':
+      case '-':
+      case '_':
+        break out;
+      default:
+        if (c >= 'a' && c <= 'z' || c > '~')
+          break out;
+      }
+    }
+    if (i == n)
+      return label;
     SB str = new SB();
 
-    for (i = 0; i < label.length(); i++) {
+    for (i = 0; i < n; i++) {
       switch (label.charAt(i)) {
       case '/':
       case '\\':
@@ -155,6 +215,16 @@ public class JDXSourceStreamTokenizer {
 
   public String readLineTrimmed() throws IOException {
     readLine();
+    return trimLine(line);
+  }
+
+  /**
+   * Trims a single line and removes any $$ comment from it.
+   * 
+   * @param line
+   * @return trimmed line or null if line is null
+   */
+  static String trimLine(String line) {
     if (line == null)
       return null;
     if (line.indexOf("$$") < 0)
@@ -163,6 +233,111 @@ public class JDXSourceStreamTokenizer {
     return trimLines(sb);
   }
 
+  /**
+   * A reusable buffer holding the current data line as delivered by
+   * readDataLine()
+   */
+  char[] dataLine = new char[100];
+
+  /**
+   * Reads the next line into dataLine, trimmed and with any $$ comment
+   * removed, creating no objects other than the line itself, and not even that
+   * for a mapped file unless the line holds a label. A label line is still
+   * available as this.line.
+   * 
+   * @return the number of characters in dataLine, or -1 at end of file
+   * @throws IOException
+   */
+  int readDataLine() throws IOException {
+    int n;
+    if (mappedReader == null) {
+      if (readLine() == null)
+        return -1;
+      n = line.length();
+      if (n > dataLine.length)
+        dataLine = new char[n * 2];
+      line.getChars(0, n, dataLine, 0);
+    } else if ((n = readMappedLine()) < 0) {
+      return -1;
+    }
+    char[] buf = dataLine;
+    for (int i = 0; i < n - 1; i++)
+      if (buf[i] == '$' && buf[i + 1] == '$') {
+        n = i;
+        break;
+      }
+    while (n > 0 && buf[n - 1] <= ' ')
+      n--;
+    int i0 = 0;
+    while (i0 < n && buf[i0] <= ' ')
+      i0++;
+    if (i0 > 0)
+      System.arraycopy(buf, i0, buf, 0, n -= i0);
+    return n;
+  }
+
+  /**
+   * @param n
+   *        the length of dataLine
+   * @return true if dataLine contains "##"
+   */
+  boolean isLabelLine(int n) {
+    char[] buf = dataLine;
+    for (int i = n - 1; --i >= 0;)
+      if (buf[i] == '#' && buf[i + 1] == '#')
+        return true;
+    return false;
+  }
+
+  /**
+   * Reads ahead the data lines following a ##DATATABLE label so that they can
+   * be decompressed on another thread. This tokenizer is left on the next
+   * label line, just as if the data had been decompressed here.
+   * 
+   * @return a tokenizer delivering the same lines with the same numbering
+   */
+  JDXSourceStreamTokenizer readDataBlock() {
+    int lineNo0 = labelLineNo;
+    return new JDXSourceStreamTokenizer(new BufferedReader(new StringReader(
+        readDataLines())), lineNo0);
+  }
+
+  private String readDataLines() {
+    SB sb = new SB();
+    int n;
+    try {
+      while ((n = readDataLine()) >= 0 && !isLabelLine(n)) {
+        sb.appendCB(dataLine, 0, n);
+        sb.appendC('\n');
+      }
+    } catch (IOException e) {
+      // as for JDXDecompressor, just stop reading
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Skips the data lines following a ##DATATABLE label, just as readDataBlock()
+   * does, keeping them to be decompressed later, or, for a memory-mapped file,
+   * keeping only where they are in the file.
+   * 
+   * @return the data
+   */
+  JDXLazyData readLazyData() {
+    int lineNo0 = labelLineNo;
+    if (mappedReader == null)
+      return new JDXLazyData(readDataLines(), lineNo0);
+    int start = mappedReader.getPosition();
+    int end = start;
+    try {
+      for (int n; (n = readDataLine()) >= 0 && !isLabelLine(n);)
+        end = mappedReader.getPosition();
+    } catch (IOException e) {
+      // as for readDataBlock
+    }
+    return new JDXLazyData(mappedReader, start, end, lineNo0);
+  }
+
   String flushLine() {
     SB sb = new SB().append(line);
     line = null;
@@ -170,11 +345,39 @@ public class JDXSourceStreamTokenizer {
   }
 
   private String readLine() throws IOException {
-    line = br.readLine();
+    if (monitor == null) {
+      line = br.readLine();
+    } else if (monitor.isCancelled()) {
+      line = null;
+    } else if ((line = br.readLine()) != null) {
+      monitor.addChars(line.length() + 1);
+    }
     lineNo++;
     return line;
   }
 
+  /**
+   * Reads the next line of a mapped file straight into dataLine.
+   * 
+   * @return the length of the line, or -1 at end of file
+   * @throws IOException
+   */
+  private int readMappedLine() throws IOException {
+    int n = -1;
+    if (monitor == null || !monitor.isCancelled())
+      while ((n = mappedReader.readLineChars(dataLine)) < -1)
+        dataLine = new char[(-2 - n) * 2];
+    lineNo++;
+    if (n < 0) {
+      line = null;
+      return -1;
+    }
+    if (monitor != null)
+      monitor.addChars(n + 1);
+    line = (isLabelLine(n) ? new String(dataLine, 0, n) : null);
+    return n;
+  }
+
   private static String trimLines(SB v) {
     int n = v.length();
     int ilast = n - 1;
@@ -0,0 +1,140 @@
+/* Copyright (c) 2002-2009 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package jspecview.source;
+
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javajs.util.Lst;
+
+import jspecview.exception.JSVException;
+
+/**
+ * Runs independent decoding or rendering tasks on shared pools of daemon
+ * threads, one pool for each name and number of threads, so that tasks of one
+ * kind never wait for those of another. A pool is never shut down, since
+ * another reader may be using it, but its threads end when idle. This class is
+ * only loaded (by name) when more than one thread is to be used, so the
+ * JavaScript version never needs java.util.concurrent.
+ */
+public class JDXTaskPool {
+
+  private static Map<String, ExecutorService> pools = new Hashtable<String, ExecutorService>();
+
+  private String name = "JDXReader";
+
+  public JDXTaskPool() {
+    // for reflection
+  }
+
+  /**
+   * @param name
+   *        the name of the pools to use and of their threads; "JDXReader" by
+   *        default
+   * @return this
+   */
+  public JDXTaskPool set(String name) {
+    this.name = name;
+    return this;
+  }
+
+  private ExecutorService getPool(int nThreads) {
+    final String key = name + "-" + nThreads;
+    synchronized (pools) {
+      ExecutorService pool = pools.get(key);
+      if (pool == null) {
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(nThreads, nThreads, 30,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+              private int n;
+
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, key + "-" + (++n));
+                t.setDaemon(true);
+                return t;
+              }
+            });
+        tpe.allowCoreThreadTimeOut(true);
+        pools.put(key, pool = tpe);
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * Runs all of the tasks, returning only when all have finished. Any
+   * runtime exception thrown by a task is rethrown here, just as if the task
+   * had been run on this thread.
+   *
+   * @param tasks
+   * @param nThreads
+   *        the maximum number of threads to use
+   * @throws JSVException
+   */
+  public void runAll(Lst<? extends Runnable> tasks, int nThreads)
+      throws JSVException {
+    int n = tasks.size();
+    if (n < 2 || nThreads < 2) {
+      for (int i = 0; i < n; i++)
+        tasks.get(i).run();
+      return;
+    }
+    Lst<Callable<Object>> list = new Lst<Callable<Object>>();
+    for (int i = 0; i < n; i++)
+      list.addLast(Executors.callable(tasks.get(i)));
+    try {
+      for (Future<Object> f : getPool(nThreads).invokeAll(list))
+        f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JSVException("Interrupted while decoding data");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new JSVException(cause.toString());
+    }
+  }
+
+  /**
+   * Starts a task, returning without waiting for it to finish.
+   *
+   * @param task
+   * @param nThreads
+   *        the maximum number of threads to use
+   * @return the task's pending result
+   */
+  public <T> Future<T> submit(Callable<T> task, int nThreads) {
+    return getPool(nThreads).submit(task);
+  }
+
+}
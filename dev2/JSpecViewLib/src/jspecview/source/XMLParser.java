@@ -22,6 +22,7 @@ package jspecview.source;
 import java.io.BufferedReader;
 import java.util.Hashtable;
 
+import javajs.util.BC;
 import javajs.util.SB;
 
 
@@ -34,6 +35,9 @@ public class XMLParser {
    *
    *  Bob Hanson hansonr@stolaf.edu  8/22/2008
    *
+   *  Input is read a block at a time, and what has been parsed is discarded,
+   *  so only the current event is held in memory. Base64 value sets are
+   *  decoded straight from that buffer by getBase64Values.
    *
    */
 
@@ -54,7 +58,7 @@ public class XMLParser {
   }
 
   public String getBufferData() {
-    return (buffer == null ? null : buffer.data.toString().substring(0, buffer.ptr));
+    return (buffer == null ? null : buffer.data.substring2(0, buffer.ptr));
   }
 
   /**
@@ -151,8 +155,45 @@ public class XMLParser {
     return sb.toString();
   }
 
+  /**
+   * Decodes the Base64 character data that follows, up to the next tag, as
+   * little-endian float64 or float32 values. The characters are decoded as
+   * they are read, so neither they nor the bytes they encode are ever held
+   * in full.
+   * 
+   * @param values
+   *        filled with up to values.length values
+   * @param isFloat64
+   * @return the number of values decoded
+   * @throws Exception
+   */
+  public int getBase64Values(double[] values, boolean isFloat64)
+      throws Exception {
+    return buffer.readBase64(values, isFloat64);
+  }
+
+  /**
+   * the standard Base64 alphabet, plus the URL-safe '-' and '_'
+   */
+  private final static int[] decode64 = new int[128];
+
+  static {
+    String s = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (int i = s.length(); --i >= 0;)
+      decode64[s.charAt(i)] = i;
+    decode64['-'] = 62;
+    decode64['_'] = 63;
+  }
+
+  /**
+   * characters read from the file at a time
+   */
+  private final static int BLOCK_SIZE = 8192;
+
   private class DataBuffer extends DataString {
 
+    private char[] block = new char[BLOCK_SIZE];
+
     DataBuffer(BufferedReader br) {
       reader = br;
     }
@@ -160,7 +201,7 @@ public class XMLParser {
     boolean hasNext() {
       if (ptr == ptEnd)
         try {
-          readLine();
+          readBlock();
         } catch (Exception e) {
           return false;
         }
@@ -168,20 +209,76 @@ public class XMLParser {
     }
 
     @Override
-    public boolean readLine() throws Exception {
-      String s = reader.readLine();
-      if (s == null) {
+    public boolean readBlock() throws Exception {
+      int n = reader.read(block, 0, BLOCK_SIZE);
+      if (n < 0)
         return false;
-      }
-      data.append(s + "\n");
+      data.appendCB(block, 0, n);
       ptEnd = data.length();
       return true;
     }
 
+    /**
+     * Discards what has been parsed once that is more than a block, so that
+     * the buffer holds little more than the current event.
+     */
+    void flush() {
+      if (ptr < BLOCK_SIZE)
+        return;
+      data = new SB().append(data.substring(ptr));
+      ptEnd -= ptr;
+      ptr = 0;
+    }
+
+    int readBase64(double[] values, boolean isFloat64) throws Exception {
+      byte[] bytes = new byte[isFloat64 ? 8 : 4];
+      int nValues = 0;
+      int nBytes = 0;
+      int nPad = 0;
+      int b = 0;
+      int offset = 18;
+      while (true) {
+        if (ptr == ptEnd) {
+          data.setLength(0);
+          ptr = ptEnd = 0;
+          if (!readBlock())
+            break;
+        }
+        char ch = data.charAt(ptr);
+        if (ch == '<')
+          break;
+        ptr++;
+        // skipped, as any other character not in the alphabet
+        if (ch >= 128)
+          continue;
+        int c = ch;
+        int bits = decode64[c];
+        if (c == '=')
+          nPad++;
+        else if (bits == 0 && c != 'A')
+          continue;
+        b |= bits << offset;
+        if ((offset -= 6) >= 0)
+          continue;
+        for (int i = 0, n = 3 - nPad; i < n; i++) {
+          bytes[nBytes++] = (byte) (b >> (16 - 8 * i));
+          if (nBytes < bytes.length)
+            continue;
+          if (nValues < values.length)
+            values[nValues++] = (isFloat64 ? BC.bytesToDoubleToFloat(bytes, 0,
+                false) : BC.bytesToFloat(bytes, 0, false));
+          nBytes = 0;
+        }
+        b = nPad = 0;
+        offset = 18;
+      }
+      return nValues;
+    }
+
     XmlEvent peek() throws Exception {
       if (ptEnd - ptr < 2)
         try {
-          readLine();
+          fill();
         } catch (Exception e) {
           return new XmlEvent(EOF);
         }
@@ -194,16 +291,29 @@ public class XMLParser {
     XmlEvent nextTag() throws Exception {
       flush();
       skipTo('<', false);
+      fill();
       XmlEvent e = new XmlEvent(this);
       return e;
     }
 
     XmlEvent nextEvent() throws Exception {
       flush();
+      fill();
       // cursor is always left after the last element
       return new XmlEvent(this);
     }
 
+    /**
+     * Makes sure that the two characters that identify the next event are in
+     * the buffer, unless the file has ended.
+     * 
+     * @throws Exception
+     */
+    private void fill() throws Exception {
+      while (ptEnd - ptr < 2 && readBlock()) {
+      }
+    }
+
   }
 
   private class DataString {
@@ -226,18 +336,8 @@ public class XMLParser {
       return ptEnd - ptr;
     }
 
-    protected void flush() {
-      if (data.length() < 1000 || ptEnd - ptr > 100)
-        return;
-      data = new SB().append(data.substring(ptr));
-      //System.out.println(data);
-      ptr = 0;
-      ptEnd = data.length();
-      //System.out.println("flush " + ptEnd);
-    }
-
     String substring(int i, int j) {
-      return data.toString().substring(i, j);
+      return data.substring2(i, j);
     }
 
     int skipOver(char c, boolean inQuotes) throws Exception {
@@ -254,7 +354,7 @@ public class XMLParser {
       if (ptr == ptEnd) {
         if (reader == null)
           return -1;
-        readLine();
+        readBlock();
       }
       int ptEnd1 = ptEnd - 1;
       while (ptr < ptEnd && (ch = data.charAt(ptr)) != toWhat) {
@@ -271,13 +371,13 @@ public class XMLParser {
         if (++ptr == ptEnd) {
           if (reader == null)
             return -1;
-          readLine();
+          readBlock();
         }
       }
       return ptr;
     }
 
-    public boolean readLine() throws Exception {
+    public boolean readBlock() throws Exception {
       return false;
     }
   }
@@ -308,10 +408,10 @@ public class XMLParser {
         return;
       if (eventType == CHARACTERS) {
         b.skipTo('<', false);
-        data = b.data.toString().substring(ptr, b.ptr);
+        data = b.substring(ptr, b.ptr);
       } else {
         b.skipOver('>', false);
-        String s = b.data.toString().substring(ptr, b.ptr);
+        String s = b.substring(ptr, b.ptr);
         if (s.startsWith("<!--"))
           eventType = COMMENT;
         //System.out.println("new tag: " + s);
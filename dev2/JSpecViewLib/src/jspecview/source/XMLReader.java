@@ -22,7 +22,6 @@ package jspecview.source;
 import java.io.BufferedReader;
 import java.io.IOException;
 
-import javajs.util.Lst;
 import javajs.util.SB;
 
 
@@ -30,7 +29,6 @@ import javajs.util.SB;
 import org.jmol.util.Logger;
 
 import jspecview.api.SourceReader;
-import jspecview.common.Coordinate;
 import jspecview.common.Spectrum;
 
 /**
@@ -104,7 +102,7 @@ abstract class XMLReader implements SourceReader {
     // end of import of CML document
     // now populate all the JSpecView spectrum variables.....
 
-    Lst<String[]> LDRTable = new Lst<String[]>();
+    JDXHeaderTable LDRTable = new JDXHeaderTable();
     Spectrum spectrum = new Spectrum();
 
     spectrum.setTitle(title);
@@ -139,7 +137,7 @@ abstract class XMLReader implements SourceReader {
       JDXReader.addHeader(LDRTable, "##SPECTROMETER/DATA SYSTEM", modelType);
 
     //etc etc.
-    spectrum.setHeaderTable(LDRTable);
+    spectrum.setLDRTable(LDRTable);
 
     double xScale = 1; // NMR data stored internally as ppm
     if (obFreq != JDXDataObject.ERROR) {
@@ -151,19 +149,20 @@ abstract class XMLReader implements SourceReader {
       }
     }
 
-    Coordinate[] xyCoords = new Coordinate[npoints];
+    double[] xValues = new double[npoints];
+    double[] yValues = new double[npoints];
 
     //   for ease of plotting etc. all data is stored internally in increasing order
-    for (int x = 0; x < npoints; x++)
-      xyCoords[x] = new Coordinate().set(xaxisData[x] / xScale, yaxisData[x]);
-
-    if (!increasing)
-      xyCoords = Coordinate.reverse(xyCoords);
+    for (int x = 0; x < npoints; x++) {
+      int pt = (increasing ? x : npoints - 1 - x);
+      xValues[pt] = xaxisData[x] / xScale;
+      yValues[pt] = yaxisData[x];
+    }
       
     spectrum.setXUnits(xUnits);
     spectrum.setYUnits(yUnits);
 
-    spectrum.setXYCoords(xyCoords);
+    spectrum.setXYData(xValues, yValues);
     source.addJDXSpectrum(filePath, spectrum, false);
   }
 
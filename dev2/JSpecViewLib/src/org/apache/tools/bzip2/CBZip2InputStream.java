@@ -36,10 +36,13 @@ import java.io.InputStream;
  * allocated memory.  See {@link CBZip2OutputStream
  * CBZip2OutputStream} for information about memory usage.</p>
  *
- * <p><tt>CBZip2InputStream</tt> reads bytes from the compressed
- * source stream via the single byte {@link java.io.InputStream#read()
- * read()} method exclusively. Thus you should consider to use a
- * buffered source stream.</p>
+ * <p><tt>CBZip2InputStream</tt> reads the compressed source stream
+ * into a buffer of its own, in bulk, unless it is to stop after the
+ * first .bz2 stream and the source stream does not support
+ * {@link java.io.InputStream#mark(int) mark()}, in which case it reads
+ * it via the single byte {@link java.io.InputStream#read() read()}
+ * method, so as not to read past the end of the .bz2 stream. Thus you
+ * should consider to use a buffered source stream.</p>
  * 
  * <p>Instances of this class are not threadsafe.</p>
  */
@@ -65,6 +68,13 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
     private int bsBuff;
     private int bsLive;
+
+    /**
+     * The compressed bytes read from in but not yet used, if in is read in
+     * bulk; inLen is -1 if it is not.
+     */
+    private byte[] inBuf;
+    private int inPos, inLen;
     private final CRC crc = new CRC();
 
     private int nInUse;
@@ -85,6 +95,8 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
     private int currentState = START_BLOCK_STATE;
 
+    private static final int IN_BUFFER_SIZE = 8192;
+
     private int storedBlockCRC, storedCombinedCRC;
     private int computedBlockCRC, computedCombinedCRC;
 
@@ -156,6 +168,19 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
         this.in = in;
         this.decompressConcatenated = decompressConcatenated;
+        /**
+         * @j2sNative
+         * 
+         * // read by in.readByteAsInt()
+         * 
+         */
+        {
+          if (decompressConcatenated || in.markSupported()) {
+              this.inBuf = new byte[IN_BUFFER_SIZE];
+          } else {
+              this.inLen = -1;
+          }
+        }
 
         init(true);
         initBlock();
@@ -195,8 +220,17 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
         final int hi = offs + len;
         int destOffs = offs;
-        for (int b; (destOffs < hi) && ((b = read0()) >= 0);) {
-            dest[destOffs++] = (byte) b;
+        while (destOffs < hi) {
+            if (this.currentState == NO_RAND_PART_B_STATE
+                || this.currentState == NO_RAND_PART_C_STATE) {
+                destOffs = readNoRand(dest, destOffs, hi);
+            } else {
+                int b = read0();
+                if (b < 0) {
+                    break;
+                }
+                dest[destOffs++] = (byte) b;
+            }
         }
 
         return (destOffs == offs) ? -1 : (destOffs - offs);
@@ -256,6 +290,89 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
         return retChar;
     }
 
+    /**
+     * Does for a block that is not randomised what read0() and the
+     * setupNoRand* methods do for a single byte, with the state held in
+     * local variables, until either hi is reached or the block ends.
+     *
+     * @param dest
+     * @param destOffs
+     * @param hi
+     * @return the new destOffs
+     * @throws IOException
+     */
+    private int readNoRand(final byte[] dest, int destOffs, final int hi)
+        throws IOException {
+        final byte[] ll8 = this.data.ll8;
+        final int[] tt = this.data.tt;
+        final int[] crc32Table = CRC.crc32Table;
+        final int lastShadow = this.last;
+        int globalCrc = this.crc.globalCrc;
+        int state = this.currentState;
+        int ch = this.currentChar;
+        int tPos = this.su_tPos;
+        int i2 = this.su_i2;
+        int j2 = this.su_j2;
+        int z = this.su_z;
+        int ch2 = this.su_ch2;
+        int chPrev = this.su_chPrev;
+        int count = this.su_count;
+        boolean isBlockEnd = false;
+
+        while (destOffs < hi) {
+            dest[destOffs++] = (byte) ch;
+            if (state == NO_RAND_PART_B_STATE) {
+                if (ch2 != chPrev) {
+                    count = 1;
+                } else if (++count >= 4) {
+                    z = ll8[tPos] & 0xff;
+                    tPos = tt[tPos];
+                    j2 = 0;
+                    state = NO_RAND_PART_C_STATE;
+                }
+            }
+            if (state == NO_RAND_PART_C_STATE) {
+                if (j2 < z) {
+                    globalCrc = (globalCrc << 8)
+                        ^ crc32Table[((globalCrc >> 24) ^ ch2) & 0xff];
+                    j2++;
+                    continue;
+                }
+                i2++;
+                count = 0;
+            }
+            if (i2 > lastShadow) {
+                isBlockEnd = true;
+                break;
+            }
+            chPrev = ch2;
+            ch = ch2 = ll8[tPos] & 0xff;
+            tPos = tt[tPos];
+            i2++;
+            state = NO_RAND_PART_B_STATE;
+            globalCrc = (globalCrc << 8)
+                ^ crc32Table[((globalCrc >> 24) ^ ch) & 0xff];
+        }
+
+        this.crc.globalCrc = globalCrc;
+        this.currentChar = ch;
+        this.su_tPos = tPos;
+        this.su_i2 = i2;
+        this.su_j2 = j2;
+        this.su_z = (char) z;
+        this.su_ch2 = ch2;
+        this.su_chPrev = chPrev;
+        this.su_count = count;
+        this.currentState = state;
+        if (isBlockEnd) {
+            this.currentState = NO_RAND_PART_A_STATE;
+            endBlock();
+            initBlock();
+            setupBlock();
+        }
+        return destOffs;
+    }
+
     private boolean init(boolean isFirstStream) throws IOException {
         if (null == in) {
             throw new IOException("No InputStream");
@@ -297,17 +414,57 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
         return true;
     }
 
-    public synchronized int readByteAsInt() throws IOException {
+    public int readByteAsInt() throws IOException {
       /**
        * @j2sNative
        * 
        * return(this.in.readByteAsInt());
        */
       {
-        return in.read();
+        return (inPos < inLen ? inBuf[inPos++] & 0xff : inLen < 0 ? in.read()
+            : fillBuffer());
       }
     }
 
+    /**
+     * Refills the buffer from in, marking in first so that any bytes past
+     * the end of the .bz2 stream can be given back by unreadBuffer().
+     *
+     * @return the next byte, or -1 at the end of in
+     * @throws IOException
+     */
+    private int fillBuffer() throws IOException {
+        if (!this.decompressConcatenated) {
+            in.mark(IN_BUFFER_SIZE);
+        }
+        this.inPos = 0;
+        this.inLen = in.read(this.inBuf, 0, IN_BUFFER_SIZE);
+        if (this.inLen <= 0) {
+            this.inLen = 0;
+            return -1;
+        }
+        return this.inBuf[this.inPos++] & 0xff;
+    }
+
+    /**
+     * Leaves in pointing to the byte after the end of the .bz2 stream.
+     *
+     * @throws IOException
+     */
+    private void unreadBuffer() throws IOException {
+        if (this.inPos < this.inLen) {
+            in.reset();
+            for (long n = this.inPos; n > 0;) {
+                long skipped = in.skip(n);
+                if (skipped <= 0) {
+                    throw new IOException("cannot skip to the end of the stream");
+                }
+                n -= skipped;
+            }
+        }
+        this.inPos = this.inLen = 0;
+    }
+
   private void initBlock() throws IOException {
     char magic0;
     char magic1;
@@ -399,7 +556,13 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
         // Look for the next .bz2 stream if decompressing
         // concatenated files.
-        return !decompressConcatenated || !init(false);
+        if (!decompressConcatenated) {
+            if (this.inLen > 0) {
+                unreadBuffer();
+            }
+            return true;
+        }
+        return !init(false);
     }
 
     @Override
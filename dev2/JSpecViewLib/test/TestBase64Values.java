@@ -0,0 +1,60 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import javajs.util.Base64;
+
+import jspecview.source.XMLParser;
+
+/**
+ * Decodes Base64 float64 values with characters outside the alphabet mixed
+ * in, including ones above 127, and checks that they are all skipped.
+ */
+public class TestBase64Values {
+
+  public static void main(String[] args) throws Exception {
+    double[] expected = { 1.5, -2.25, 1e10 };
+    byte[] bytes = new byte[expected.length * 8];
+    for (int i = 0; i < expected.length; i++) {
+      long bits = Double.doubleToLongBits(expected[i]);
+      for (int j = 0; j < 8; j++)
+        bytes[i * 8 + j] = (byte) (bits >> (8 * j));
+    }
+    String s = Base64.getBase64(bytes).toString();
+    // \u00C1 and \u00E1 are 'A' and 'a' with the high bit set
+    String noisy = " \n" + s.substring(0, 5) + "\u00C1\u00E1 \u20AC\n"
+        + s.substring(5);
+    XMLParser parser = new XMLParser(new BufferedReader(new StringReader(
+        "<encodedValueSet>" + noisy + "</encodedValueSet>")));
+    parser.nextTag();
+    double[] values = new double[expected.length];
+    int n = parser.getBase64Values(values, true);
+    if (n != expected.length)
+      throw new Exception(n + " values");
+    for (int i = 0; i < n; i++)
+      if (values[i] != expected[i])
+        throw new Exception("value " + i + " is " + values[i]);
+    System.out.println("base64: OK");
+  }
+
+}
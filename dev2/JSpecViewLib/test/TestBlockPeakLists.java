@@ -0,0 +1,73 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import javajs.util.Lst;
+
+import jspecview.common.PeakInfo;
+import jspecview.common.Spectrum;
+import jspecview.source.JDXReader;
+import jspecview.source.JDXSource;
+
+/**
+ * Reads a BLOCKS file with ACD peak assignments in each block, on one thread
+ * and on several, and checks that each spectrum has only its own peaks.
+ */
+public class TestBlockPeakLists {
+
+  private static String getBlock(String title, String assignment) {
+    return "##TITLE=" + title + "\n##JCAMP-DX=5.01\n"
+        + "##DATA TYPE=NMR SPECTRUM\n##.OBSERVE FREQUENCY=400\n"
+        + "##XUNITS=PPM\n##YUNITS=ARBITRARY UNITS\n##XFACTOR=1\n"
+        + "##YFACTOR=1\n##FIRSTX=10\n##LASTX=0\n##NPOINTS=16\n"
+        + "##PEAK ASSIGNMENTS=(XYMA)\n" + assignment + "\n"
+        + "##XYDATA=(X++(Y..Y))\n"
+        + "10 10 11 12 13 14 15 16 10 11 12 13 14 15 16 10 11\n##END=\n";
+  }
+
+  public static void main(String[] args) throws Exception {
+    String data = "##TITLE=two ACD blocks\n##JCAMP-DX=5.01\n##DATA TYPE=LINK\n"
+        + "##BLOCKS=2\n" + getBlock("A", "(1.5,1,3,<1>)")
+        + getBlock("B", "(7.2,1,3,<2>)") + "##END=\n";
+    for (int nThreads = 1; nThreads <= 4; nThreads += 3) {
+      JDXSource source = JDXReader.createJDXSource(new BufferedReader(
+          new StringReader(data)), "blocks.jdx", false, false, -1, -1,
+          Float.NaN, null, nThreads, false, 0);
+      Lst<Spectrum> spectra = source.getSpectra();
+      if (spectra.size() != 2)
+        throw new Exception(nThreads + " threads: " + spectra.size()
+            + " spectra");
+      for (int i = 0; i < spectra.size(); i++) {
+        Spectrum spec = spectra.get(i);
+        Lst<PeakInfo> peaks = spec.getPeakList();
+        String model = spec.getTitle() + " (assigned)";
+        if (peaks == null || peaks.size() != 1
+            || !model.equals(peaks.get(0).getModel()))
+          throw new Exception(nThreads + " threads: " + spec.getTitle()
+              + " has peaks " + peaks);
+      }
+      System.out.println(nThreads + " threads: OK");
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import jspecview.common.Coordinate;
+
+/**
+ * Checks that the deprecated Coordinate[] helpers give the same results as
+ * their double[] versions and change the coordinates in place.
+ */
+@SuppressWarnings("deprecation")
+public class TestCoordinateArrays {
+
+  public static void main(String[] args) throws Exception {
+    double[] x = { 1, 2, 3, 4, 5, 6 };
+    double[] y = { 0, 1, 4, 9, 4, 1 };
+    Coordinate[] xy = Coordinate.getCoordinates(x, y);
+    check("min/max", Coordinate.getMin(x, 1, 5) == Coordinate.getMinX(xy, 1, 5)
+        && Coordinate.getMax(y, 0, 6) == Coordinate.getMaxY(xy, 0, 6));
+    check("index", Coordinate.getNearestIndexForX(x, 3.5) == Coordinate
+        .getNearestIndexForX(xy, 3.5));
+    check("peak", Coordinate.findXForPeakNearest(x, y, 3, false) == Coordinate
+        .findXForPeakNearest(xy, 3, false)
+        && Coordinate.getYValueAt(x, y, 2.5) == Coordinate.getYValueAt(xy, 2.5));
+    Coordinate.applyShiftReference(xy, 1, 1, 6, 0.5, 1, 0);
+    Coordinate.applyShiftReference(x, 1, 1, 6, 0.5, 1, 0);
+    boolean same = true;
+    for (int i = 0; i < x.length; i++)
+      same &= (xy[i].getXVal() == x[i]);
+    check("shift", same);
+  }
+
+  private static void check(String what, boolean ok) throws Exception {
+    if (!ok)
+      throw new Exception(what + " differs");
+    System.out.println(what + ": OK");
+  }
+
+}
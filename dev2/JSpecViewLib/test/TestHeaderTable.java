@@ -0,0 +1,73 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import javajs.util.Lst;
+
+import jspecview.common.Spectrum;
+import jspecview.source.JDXReader;
+import jspecview.source.JDXSource;
+
+/**
+ * Lists and changes a spectrum's headers as a list of {label, value, clean
+ * label}, and checks that lookups by key see the changes.
+ */
+public class TestHeaderTable {
+
+  public static void main(String[] args) throws Exception {
+    String data = "##TITLE=headers\n##JCAMP-DX=5.01\n"
+        + "##DATA TYPE=INFRARED SPECTRUM\n##$VENDOR PARAM=12\n"
+        + "##XUNITS=1/CM\n##YUNITS=ABSORBANCE\n##XFACTOR=1\n"
+        + "##YFACTOR=1\n##FIRSTX=1000\n##LASTX=1015\n##NPOINTS=16\n"
+        + "##XYDATA=(X++(Y..Y))\n"
+        + "1000 10 11 12 13 14 15 16 10\n1008 11 12 13 14 15 16 10 11\n"
+        + "##END=\n";
+    JDXSource source = JDXReader.createJDXSource(new BufferedReader(
+        new StringReader(data)), "headers.jdx", false, false, -1, -1,
+        Float.NaN, null, 1, false, 0);
+    Spectrum spec = source.getSpectra().get(0);
+    Lst<String[]> table = spec.getHeaderTable();
+    String value = null;
+    for (int i = 0; i < table.size(); i++)
+      if (table.get(i)[0].equals("##$VENDOR PARAM"))
+        value = table.get(i)[1];
+    check("listed", "12", value);
+    JDXReader.addHeader(table, "##$VENDOR PARAM", "13");
+    JDXReader.addHeader(table, "##$ADDED", "added");
+    check("changed", "13", spec.getInfo("##$VENDORPARAM").get("##$VENDORPARAM"));
+    check("added", "added", spec.getInfo("##$ADDED").get("##$ADDED"));
+    table = new Lst<String[]>();
+    JDXReader.addHeader(table, "##$REPLACED", "replaced");
+    spec.setHeaderTable(table);
+    check("replaced", "replaced",
+        spec.getInfo("##$REPLACED").get("##$REPLACED"));
+  }
+
+  private static void check(String what, String expected, Object value)
+      throws Exception {
+    if (!expected.equals(value))
+      throw new Exception(what + ": " + value);
+    System.out.println(what + ": OK");
+  }
+
+}
@@ -0,0 +1,104 @@
+/* Copyright (c) 2002-2016 The University of the West Indies
+ *
+ * Contact: robert.lancashire@uwimona.edu.jm
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import javajs.util.Lst;
+
+import jspecview.common.Spectrum;
+import jspecview.source.JDXReader;
+
+/**
+ * Reads a BLOCKS file lazily with a limit of two spectra holding their values,
+ * and checks which values are kept, with and without a hold such as each
+ * painting takes.
+ */
+public class TestLazyHold {
+
+  private final static int N_BLOCKS = 4;
+
+  public static void main(String[] args) throws Exception {
+    String data = "##TITLE=blocks\n##JCAMP-DX=5.01\n##DATA TYPE=LINK\n"
+        + "##BLOCKS=" + N_BLOCKS + "\n";
+    for (int i = 1; i <= N_BLOCKS; i++)
+      data += "##TITLE=" + i + "\n##JCAMP-DX=5.01\n"
+          + "##DATA TYPE=INFRARED SPECTRUM\n##BLOCK_ID=" + i + "\n"
+          + "##XUNITS=1/CM\n##YUNITS=ABSORBANCE\n##XFACTOR=1\n"
+          + "##YFACTOR=1\n##FIRSTX=1000\n##LASTX=1015\n##NPOINTS=16\n"
+          + "##XYDATA=(X++(Y..Y))\n"
+          + "1000 10 11 12 13 14 15 16 10\n1008 11 12 13 14 15 16 10 11\n"
+          + "##END=\n";
+    data += "##END=\n";
+
+    // no hold: the least recently used is released
+    Lst<Spectrum> spectra = read(data);
+    double[][] y = getYData(spectra);
+    check("limit", !isKept(spectra, y, 0) && isKept(spectra, y, 3));
+
+    // a hold keeps all it uses, during it and after it
+    spectra = read(data);
+    Spectrum spec0 = spectra.get(0);
+    spec0.holdLazyData(true);
+    y = getYData(spectra);
+    check("held", isKept(spectra, y, 0, 1, 2, 3));
+    spec0.holdLazyData(false);
+    check("after hold", isKept(spectra, y, 0, 1, 2, 3));
+
+    // the next hold releases the oldest of those it does not use
+    spec0.holdLazyData(true);
+    spectra.get(3).getYData();
+    spec0.holdLazyData(false);
+    check("next hold", isKept(spectra, y, 3, 2) && !isKept(spectra, y, 0));
+  }
+
+  private static Lst<Spectrum> read(String data) throws Exception {
+    return JDXReader.createJDXSource(new BufferedReader(new StringReader(data)),
+        "blocks.jdx", false, false, -1, -1, Float.NaN, null, 1, true, 2)
+        .getSpectra();
+  }
+
+  private static double[][] getYData(Lst<Spectrum> spectra) {
+    double[][] y = new double[N_BLOCKS][];
+    for (int i = 0; i < N_BLOCKS; i++)
+      y[i] = spectra.get(i).getYData();
+    return y;
+  }
+
+  /**
+   * @return true if these spectra still have the same values, not
+   *         decompressed again; checking a spectrum also uses it
+   */
+  private static boolean isKept(Lst<Spectrum> spectra, double[][] y,
+                                int... indices) {
+    for (int i = 0; i < indices.length; i++)
+      if (spectra.get(indices[i]).getYData() != y[indices[i]])
+        return false;
+    return true;
+  }
+
+  private static void check(String what, boolean ok) throws Exception {
+    if (!ok)
+      throw new Exception(what + ": wrong values kept");
+    System.out.println(what + ": OK");
+  }
+
+}